@@ -1,24 +1,33 @@
 package org.entur.netex.validation.validator;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import net.sf.saxon.s9api.XPathCompiler;
 import net.sf.saxon.s9api.XdmNode;
 import org.apache.commons.lang3.time.StopWatch;
-import org.entur.netex.NetexParser;
 import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.validation.cli.FileEntry;
+import org.entur.netex.validation.exception.NetexValidationException;
 import org.entur.netex.validation.validator.id.IdVersion;
-import org.entur.netex.validation.validator.id.NetexIdExtractorHelper;
+import org.entur.netex.validation.validator.id.NetexIdCollectingContentHandler;
 import org.entur.netex.validation.validator.jaxb.*;
 import org.entur.netex.validation.validator.schema.NetexSchemaValidationContext;
 import org.entur.netex.validation.validator.schema.NetexSchemaValidator;
 import org.entur.netex.validation.validator.xpath.XPathValidationContext;
+import org.entur.netex.validation.xml.MappedFileContent;
 import org.entur.netex.validation.xml.NetexXMLParser;
+import org.entur.netex.validation.xml.XdmNodeBuildingContentHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,8 +35,11 @@ import org.slf4j.LoggerFactory;
  * Orchestrate the execution of individual instances of {@link NetexValidator}.
  * The first step in the validation process is the XML Schema validation.
  * The XML Schema validation is a blocking step: further validators downstream are skipped in case of XML Schema validation errors.
- * The second step runs XPath-based validators.
- * The third step runs JAXB-based validators.
+ * Optionally, the XML nodes graph used by the XPath validators is built in the same parsing pass as the XML Schema validation.
+ * Alternatively, the XPath and JAXB validation contexts can be prepared speculatively while the XML Schema validation
+ * is running, and discarded if the XML Schema validation fails.
+ * The second step runs XPath-based validators, optionally in parallel on a caller-supplied executor.
+ * The third step runs JAXB-based validators, optionally in parallel on a caller-supplied executor.
  */
 public class NetexValidatorsRunner {
 
@@ -36,6 +48,7 @@ public class NetexValidatorsRunner {
   );
   private static final int VALIDATION_PROGRESS_NOTIFICATION_PERIOD_MILLIS = 10000;
   private static final int MAX_WAITING_LOOPS = 180;
+  private static final long MEMORY_MAPPING_THRESHOLD_BYTES = 64L * 1024 * 1024;
 
   private final NetexSchemaValidator netexSchemaValidator;
   private final List<XPathValidator> xPathValidators;
@@ -46,6 +59,15 @@ public class NetexValidatorsRunner {
   private final Function<JAXBValidationContext, StopPlaceRepository> stopPlaceRepository;
   private final NetexXMLParser netexXMLParser;
   private final ValidationReportEntryFactory validationReportEntryFactory;
+  private final Executor xPathValidatorExecutor;
+  private final Executor jaxbValidatorExecutor;
+  private final boolean singlePassParsing;
+  private final Executor speculativeExecutor;
+  private final NetexParserPool netexParserPool;
+  private final Set<String> lineFileElementsToSkip;
+  private final Set<String> commonFileElementsToSkip;
+  private final Executor frameUnmarshallingExecutor;
+  private final XdmNodeUnmarshaller xdmNodeUnmarshaller;
 
   NetexValidatorsRunner(NetexValidatorsRunnerBuilder builder) {
     this.netexXMLParser = builder.getNetexXMLParser();
@@ -63,6 +85,35 @@ public class NetexValidatorsRunner {
     this.stopPlaceRepository = builder.getStopPlaceRepository();
     this.validationReportEntryFactory =
       Objects.requireNonNull(builder.getValidationReportEntryFactory());
+    this.xPathValidatorExecutor = builder.getXPathValidatorExecutor();
+    this.jaxbValidatorExecutor = builder.getJaxbValidatorExecutor();
+    this.singlePassParsing = builder.isSinglePassParsing();
+    this.speculativeExecutor = builder.getSpeculativeExecutor();
+    this.netexParserPool =
+      Objects.requireNonNullElseGet(builder.getNetexParserPool(), NetexParserPool::new);
+
+    List<Set<String>> requiredNetexElements = new ArrayList<>();
+    jaxbValidators.forEach(jaxbValidator ->
+      requiredNetexElements.add(jaxbValidator.getRequiredNetexElements())
+    );
+    netexDataCollectors.forEach(netexDataCollector ->
+      requiredNetexElements.add(netexDataCollector.getRequiredNetexElements())
+    );
+    this.lineFileElementsToSkip =
+      SkippableNetexElements.elementsToSkip(requiredNetexElements);
+    // the common data repository reads the whole common files
+    this.commonFileElementsToSkip =
+      commonDataRepository == null ? lineFileElementsToSkip : Set.of();
+    this.frameUnmarshallingExecutor = builder.getFrameUnmarshallingExecutor();
+    if (builder.isXdmNodeUnmarshalling() && netexXMLParser == null) {
+      throw new IllegalArgumentException(
+        "Unmarshalling from the XML nodes graph requires a NeTEx XML parser"
+      );
+    }
+    this.xdmNodeUnmarshaller =
+      builder.isXdmNodeUnmarshalling()
+        ? new XdmNodeUnmarshaller(frameUnmarshallingExecutor)
+        : null;
   }
 
   public NetexValidatorsRunnerBuilder toBuilder() {
@@ -76,9 +127,23 @@ public class NetexValidatorsRunner {
     builder.withCommonDataRepository(this.commonDataRepository);
     builder.withStopPlaceRepository(this.stopPlaceRepository);
     builder.withValidationReportEntryFactory(this.validationReportEntryFactory);
+    builder.withXPathValidatorExecutor(this.xPathValidatorExecutor);
+    builder.withJaxbValidatorExecutor(this.jaxbValidatorExecutor);
+    builder.withSinglePassParsing(this.singlePassParsing);
+    builder.withSpeculativeExecutor(this.speculativeExecutor);
+    builder.withNetexParserPool(this.netexParserPool);
+    builder.withXdmNodeUnmarshalling(this.xdmNodeUnmarshaller != null);
+    builder.withFrameUnmarshallingExecutor(this.frameUnmarshallingExecutor);
     return builder;
   }
 
+  /**
+   * Return the pool of parsers used for building the NeTEx entities index of each file, that exposes usage counters.
+   */
+  public NetexParserPool getNetexParserPool() {
+    return netexParserPool;
+  }
+
   public static NetexValidatorsRunnerBuilder of() {
     return new NetexValidatorsRunnerBuilder();
   }
@@ -115,17 +180,146 @@ public class NetexValidatorsRunner {
     boolean skipSchemaValidation,
     boolean skipValidators,
     NetexValidationProgressCallBack netexValidationProgressCallBack
+  ) {
+    return validate(
+      codespace,
+      validationReportId,
+      filename,
+      () -> new ByteArrayInputStream(fileContent),
+      skipSchemaValidation,
+      skipValidators,
+      netexValidationProgressCallBack
+    );
+  }
+
+  /**
+   * Validate a NeTEx file read from the file system.
+   * The file is streamed into the parsers instead of being loaded in memory.
+   */
+  public ValidationReport validate(
+    String codespace,
+    String validationReportId,
+    Path file
+  ) {
+    return validate(
+      codespace,
+      validationReportId,
+      file,
+      false,
+      false,
+      new NoopNetexValidationCallBack()
+    );
+  }
+
+  /**
+   * Validate a NeTEx file read from the file system.
+   * The file is streamed into the parsers instead of being loaded in memory.
+   * Large files are mapped in memory, so that they are read from the page cache and not copied onto the heap.
+   * Optionally skip the NeTEx schema validation or the NeTEx validators
+   */
+  public ValidationReport validate(
+    String codespace,
+    String validationReportId,
+    Path file,
+    boolean skipSchemaValidation,
+    boolean skipValidators,
+    NetexValidationProgressCallBack netexValidationProgressCallBack
+  ) {
+    Supplier<InputStream> fileContent;
+    try {
+      if (Files.size(file) >= MEMORY_MAPPING_THRESHOLD_BYTES) {
+        fileContent = MappedFileContent.of(file);
+      } else {
+        fileContent =
+          () -> {
+            try {
+              return Files.newInputStream(file);
+            } catch (IOException e) {
+              throw new NetexValidationException("Could not read file " + file, e);
+            }
+          };
+      }
+    } catch (IOException e) {
+      throw new NetexValidationException("Could not read file " + file, e);
+    }
+    return validate(
+      codespace,
+      validationReportId,
+      file.getFileName().toString(),
+      fileContent,
+      skipSchemaValidation,
+      skipValidators,
+      netexValidationProgressCallBack
+    );
+  }
+
+  /**
+   * Validate a NeTEx file provided as a supplier of input streams.
+   * The document is streamed into the parsers. It is read several times, once for each parsing step that cannot
+   * share a parsing pass with the others: each call to the supplier must return a new stream positioned at the beginning
+   * of the document. The supplier may be called concurrently when validation steps run in parallel.
+   * Optionally skip the NeTEx schema validation or the NeTEx validators
+   */
+  public ValidationReport validate(
+    String codespace,
+    String validationReportId,
+    String filename,
+    Supplier<InputStream> fileContent,
+    boolean skipSchemaValidation,
+    boolean skipValidators,
+    NetexValidationProgressCallBack netexValidationProgressCallBack
   ) {
     ValidationReport validationReport = new ValidationReport(
       codespace,
       validationReportId
     );
 
+    NetexIdCollectingContentHandler netexIdCollector = null;
+    XdmNodeBuildingContentHandler xdmNodeBuilder = null;
+    CompletableFuture<XPathValidationContext> speculativeXPathValidationContext = null;
+    CompletableFuture<NetexEntitiesIndex> speculativeNetexEntitiesIndex = null;
     if (netexSchemaValidator == null || skipSchemaValidation) {
       LOGGER.debug("Skipping schema validation");
     } else {
+      boolean runNetexValidators = !skipValidators && hasNetexValidators();
+      if (singlePassParsing && netexXMLParser != null && runNetexValidators) {
+        // build the XML nodes graph and collect NeTEx ids while parsing the document for schema validation
+        netexIdCollector =
+          new NetexIdCollectingContentHandler(filename, Set.of("Codespace"));
+        xdmNodeBuilder =
+          netexXMLParser.newXdmNodeBuildingContentHandler(netexIdCollector);
+      } else if (speculativeExecutor != null && runNetexValidators) {
+        // most files pass the schema validation: prepare the XPath validation context in the meantime
+        speculativeXPathValidationContext =
+          CompletableFuture.supplyAsync(
+            () ->
+              prepareXPathValidationContext(
+                validationReportId,
+                codespace,
+                filename,
+                fileContent
+              ),
+            speculativeExecutor
+          );
+      }
+      if (
+        speculativeExecutor != null &&
+        runNetexValidators &&
+        !isUnmarshalledFromXdmNode(filename)
+      ) {
+        speculativeNetexEntitiesIndex =
+          CompletableFuture.supplyAsync(
+            () -> parseNetexEntitiesIndex(filename, fileContent),
+            speculativeExecutor
+          );
+      }
       NetexSchemaValidationContext netexSchemaValidationContext =
-        new NetexSchemaValidationContext(filename, codespace, fileContent);
+        new NetexSchemaValidationContext(
+          filename,
+          codespace,
+          fileContent,
+          xdmNodeBuilder
+        );
       validationReport.addAllValidationReportEntries(
         runSchemaValidation(
           validationReportId,
@@ -137,6 +331,9 @@ public class NetexValidatorsRunner {
 
     if (validationReport.hasError()) {
       // do not run subsequent validators if the XML Schema validation fails
+      // speculative results are discarded, the tasks already started run to completion
+      cancel(speculativeXPathValidationContext);
+      cancel(speculativeNetexEntitiesIndex);
       return validationReport;
     }
 
@@ -145,12 +342,29 @@ public class NetexValidatorsRunner {
       return validationReport;
     }
 
-    XPathValidationContext xPathValidationContext = prepareXPathValidationContext(
-      validationReportId,
-      codespace,
-      filename,
-      fileContent
-    );
+    XPathValidationContext xPathValidationContext;
+    if (speculativeXPathValidationContext != null) {
+      xPathValidationContext = join(speculativeXPathValidationContext);
+    } else if (xdmNodeBuilder != null && xdmNodeBuilder.getDocumentNode() != null) {
+      xPathValidationContext =
+        new XPathValidationContext(
+          xdmNodeBuilder.getDocumentNode(),
+          netexXMLParser,
+          codespace,
+          filename,
+          netexIdCollector.getIds(),
+          netexIdCollector.getRefs(),
+          validationReportId
+        );
+    } else {
+      xPathValidationContext =
+        prepareXPathValidationContext(
+          validationReportId,
+          codespace,
+          filename,
+          fileContent
+        );
+    }
 
     validationReport.addAllValidationReportEntries(
       runXPathValidators(
@@ -164,16 +378,42 @@ public class NetexValidatorsRunner {
 
     if (validationReport.hasError()) {
       // do not run subsequent validators if the XPath validation fails
+      cancel(speculativeNetexEntitiesIndex);
       return validationReport;
     }
 
-    JAXBValidationContext jaxbValidationContext = prepareJAXBValidationContext(
-      validationReportId,
-      codespace,
-      filename,
-      fileContent,
-      xPathValidationContext.getLocalIdsMap()
-    );
+    JAXBValidationContext jaxbValidationContext;
+    if (isUnmarshalledFromXdmNode(filename)) {
+      jaxbValidationContext =
+        createJAXBValidationContext(
+          validationReportId,
+          codespace,
+          filename,
+          xdmNodeUnmarshaller.unmarshal(
+            xPathValidationContext.getXmlNode(),
+            elementsToSkip(filename)
+          ),
+          xPathValidationContext.getLocalIdsMap()
+        );
+    } else if (speculativeNetexEntitiesIndex != null) {
+      jaxbValidationContext =
+        createJAXBValidationContext(
+          validationReportId,
+          codespace,
+          filename,
+          join(speculativeNetexEntitiesIndex),
+          xPathValidationContext.getLocalIdsMap()
+        );
+    } else {
+      jaxbValidationContext =
+        prepareJAXBValidationContext(
+          validationReportId,
+          codespace,
+          filename,
+          fileContent,
+          xPathValidationContext.getLocalIdsMap()
+        );
+    }
 
     if (jaxbValidationContext.isCommonFile() && commonDataRepository != null) {
       LOGGER.info(
@@ -199,10 +439,114 @@ public class NetexValidatorsRunner {
         netexValidationProgressCallBack
       )
     );
+    LOGGER.debug(
+      "Lookup statistics for file {}: {}",
+      filename,
+      jaxbValidationContext.getLookupStatistics()
+    );
 
     return validationReport;
   }
 
+  /**
+   * Validate a complete NeTEx dataset.
+   * See {@link #validateDataset(String, String, Iterable, Executor, NetexValidationProgressCallBack)}
+   */
+  public ValidationReport validateDataset(
+    String codespace,
+    String validationReportId,
+    Iterable<FileEntry> fileEntries,
+    Executor executor
+  ) {
+    return validateDataset(
+      codespace,
+      validationReportId,
+      fileEntries,
+      executor,
+      new NoopNetexValidationCallBack()
+    );
+  }
+
+  /**
+   * Validate a complete NeTEx dataset.
+   * The validation runs in three phases:
+   * <ol>
+   *   <li>the common files (prefixed with "_") are validated sequentially on the calling thread.
+   *   They populate the shared repositories (common data, shared NeTEx ids) used when validating the line files.</li>
+   *   <li>once all common files are validated, the line files are validated in parallel on the given executor.</li>
+   *   <li>the dataset validators are run on the merged validation report.</li>
+   * </ol>
+   * The validation report entries are merged in the order of the files: common files first, then line files.
+   */
+  public ValidationReport validateDataset(
+    String codespace,
+    String validationReportId,
+    Iterable<FileEntry> fileEntries,
+    Executor executor,
+    NetexValidationProgressCallBack netexValidationProgressCallBack
+  ) {
+    ValidationReport validationReport = new ValidationReport(
+      codespace,
+      validationReportId
+    );
+
+    List<FileEntry> lineFileEntries = new ArrayList<>();
+    for (FileEntry fileEntry : fileEntries) {
+      if (isCommonFile(fileEntry.fileName())) {
+        ValidationReport commonFileReport = validate(
+          codespace,
+          validationReportId,
+          fileEntry.fileName(),
+          fileEntry.content(),
+          false,
+          false,
+          netexValidationProgressCallBack
+        );
+        validationReport.addAllValidationReportEntries(
+          commonFileReport.getValidationReportEntries()
+        );
+      } else {
+        lineFileEntries.add(fileEntry);
+      }
+    }
+
+    List<CompletableFuture<ValidationReport>> lineFileReports = lineFileEntries
+      .stream()
+      .map(fileEntry ->
+        CompletableFuture.supplyAsync(
+          () ->
+            validate(
+              codespace,
+              validationReportId,
+              fileEntry.fileName(),
+              fileEntry.content(),
+              false,
+              false,
+              netexValidationProgressCallBack
+            ),
+          executor
+        )
+      )
+      .toList();
+    lineFileReports
+      .stream()
+      .map(NetexValidatorsRunner::join)
+      .forEach(lineFileReport ->
+        validationReport.addAllValidationReportEntries(
+          lineFileReport.getValidationReportEntries()
+        )
+      );
+
+    return runNetexDatasetValidators(validationReport, netexValidationProgressCallBack);
+  }
+
+  /**
+   * Return true if the file is a common file, following the same naming convention as {@link ValidationContext#isCommonFile()}.
+   */
+  private static boolean isCommonFile(String fileName) {
+    return fileName != null && fileName.startsWith("_");
+  }
+
   /**
    *
    * @return true if this validator runner is configured to run the XML schema validation.
@@ -227,40 +571,59 @@ public class NetexValidatorsRunner {
     return !datasetValidators.isEmpty();
   }
 
+  /**
+   *
+   * @deprecated use {@link #prepareXPathValidationContext(String, String, String, Supplier)}.
+   * The runner calls only the stream supplier overload.
+   */
+  @Deprecated
   protected XPathValidationContext prepareXPathValidationContext(
     String validationReportId,
     String codespace,
     String filename,
     byte[] fileContent
   ) {
-    XdmNode document = netexXMLParser.parseByteArrayToXdmNode(fileContent);
-    XPathCompiler xPathCompiler = netexXMLParser.getXPathCompiler();
-    Set<IdVersion> localIds = new HashSet<>(
-      NetexIdExtractorHelper.collectEntityIdentifiers(
-        document,
-        xPathCompiler,
-        filename,
-        Set.of("Codespace")
-      )
-    );
-    List<IdVersion> localRefs = NetexIdExtractorHelper.collectEntityReferences(
-      document,
-      xPathCompiler,
+    return prepareXPathValidationContext(
+      validationReportId,
+      codespace,
       filename,
-      null
+      () -> new ByteArrayInputStream(fileContent)
     );
+  }
+
+  protected XPathValidationContext prepareXPathValidationContext(
+    String validationReportId,
+    String codespace,
+    String filename,
+    Supplier<InputStream> fileContent
+  ) {
+    // collect NeTEx ids and references in the same parsing pass that builds the XML nodes graph
+    NetexIdCollectingContentHandler netexIdCollector =
+      new NetexIdCollectingContentHandler(filename, Set.of("Codespace"));
+    XdmNode document;
+    try (InputStream inputStream = fileContent.get()) {
+      document = netexXMLParser.parseInputStreamToXdmNode(inputStream, netexIdCollector);
+    } catch (IOException e) {
+      throw new NetexValidationException(e);
+    }
 
     return new XPathValidationContext(
       document,
       netexXMLParser,
       codespace,
       filename,
-      localIds,
-      localRefs,
+      netexIdCollector.getIds(),
+      netexIdCollector.getRefs(),
       validationReportId
     );
   }
 
+  /**
+   *
+   * @deprecated use {@link #prepareJAXBValidationContext(String, String, String, Supplier, Map)}.
+   * The runner calls only the stream supplier overload.
+   */
+  @Deprecated
   protected JAXBValidationContext prepareJAXBValidationContext(
     String validationReportId,
     String codespace,
@@ -268,11 +631,38 @@ public class NetexValidatorsRunner {
     byte[] fileContent,
     Map<String, IdVersion> localIdMap
   ) {
-    NetexParser netexParser = new NetexParser();
-    NetexEntitiesIndex netexEntitiesIndex = netexParser.parse(
-      new ByteArrayInputStream(fileContent)
+    return prepareJAXBValidationContext(
+      validationReportId,
+      codespace,
+      filename,
+      () -> new ByteArrayInputStream(fileContent),
+      localIdMap
+    );
+  }
+
+  protected JAXBValidationContext prepareJAXBValidationContext(
+    String validationReportId,
+    String codespace,
+    String filename,
+    Supplier<InputStream> fileContent,
+    Map<String, IdVersion> localIdMap
+  ) {
+    return createJAXBValidationContext(
+      validationReportId,
+      codespace,
+      filename,
+      parseNetexEntitiesIndex(filename, fileContent),
+      localIdMap
     );
+  }
 
+  private JAXBValidationContext createJAXBValidationContext(
+    String validationReportId,
+    String codespace,
+    String filename,
+    NetexEntitiesIndex netexEntitiesIndex,
+    Map<String, IdVersion> localIdMap
+  ) {
     return new JAXBValidationContext(
       validationReportId,
       netexEntitiesIndex,
@@ -284,6 +674,39 @@ public class NetexValidatorsRunner {
     );
   }
 
+  /**
+   * Build the NeTEx entities index, leaving out the elements that no JAXB validator and no NeTEx data collector reads.
+   */
+  private NetexEntitiesIndex parseNetexEntitiesIndex(
+    String filename,
+    Supplier<InputStream> fileContent
+  ) {
+    try (InputStream inputStream = fileContent.get()) {
+      return netexParserPool.parse(inputStream, elementsToSkip(filename));
+    } catch (IOException e) {
+      throw new NetexValidationException(e);
+    }
+  }
+
+  /**
+   * Return true if the NeTEx entities index of the file is built from its XML nodes graph.
+   * Common files are parsed again when a common data repository is configured: the repository
+   * reads the whole common files, including the elements ignored by the NeTEx XML parser.
+   */
+  private boolean isUnmarshalledFromXdmNode(String filename) {
+    return (
+      xdmNodeUnmarshaller != null &&
+      !(commonDataRepository != null && isCommonFile(filename))
+    );
+  }
+
+  /**
+   * Return the NeTEx elements that no JAXB validator and no NeTEx data collector reads in the given file.
+   */
+  private Set<String> elementsToSkip(String filename) {
+    return isCommonFile(filename) ? commonFileElementsToSkip : lineFileElementsToSkip;
+  }
+
   /**
    * Run the XML schema validation.
    */
@@ -304,6 +727,7 @@ public class NetexValidatorsRunner {
 
   /**
    * Run the NeTEx validators.
+   * If an executor is configured, the validators are run concurrently.
    */
   private List<ValidationReportEntry> runXPathValidators(
     String codespace,
@@ -312,24 +736,36 @@ public class NetexValidatorsRunner {
     XPathValidationContext xPathValidationContext,
     NetexValidationProgressCallBack netexValidationProgressCallBack
   ) {
-    return xPathValidators
-      .stream()
-      .map(xPathValidator ->
-        runValidator(
-          codespace,
-          validationReportId,
-          filename,
-          xPathValidator,
-          netexValidationProgressCallBack,
-          xPathValidationContext
+    if (xPathValidatorExecutor == null) {
+      return xPathValidators
+        .stream()
+        .map(xPathValidator ->
+          runValidator(
+            codespace,
+            validationReportId,
+            filename,
+            xPathValidator,
+            netexValidationProgressCallBack,
+            xPathValidationContext
+          )
         )
-      )
-      .flatMap(Collection::stream)
-      .toList();
+        .flatMap(Collection::stream)
+        .toList();
+    }
+    return runConcurrently(
+      codespace,
+      validationReportId,
+      filename,
+      xPathValidators,
+      xPathValidatorExecutor,
+      netexValidationProgressCallBack,
+      xPathValidationContext
+    );
   }
 
   /**
    * Run the NeTEx validators.
+   * If an executor is configured, the validators are run concurrently.
    */
   private List<ValidationReportEntry> runJAXBValidators(
     String codespace,
@@ -338,20 +774,31 @@ public class NetexValidatorsRunner {
     JAXBValidationContext jaxbValidationContext,
     NetexValidationProgressCallBack netexValidationProgressCallBack
   ) {
-    return jaxbValidators
-      .stream()
-      .map(jaxbValidator ->
-        runValidator(
-          codespace,
-          validationReportId,
-          filename,
-          jaxbValidator,
-          netexValidationProgressCallBack,
-          jaxbValidationContext
+    if (jaxbValidatorExecutor == null) {
+      return jaxbValidators
+        .stream()
+        .map(jaxbValidator ->
+          runValidator(
+            codespace,
+            validationReportId,
+            filename,
+            jaxbValidator,
+            netexValidationProgressCallBack,
+            jaxbValidationContext
+          )
         )
-      )
-      .flatMap(Collection::stream)
-      .toList();
+        .flatMap(Collection::stream)
+        .toList();
+    }
+    return runConcurrently(
+      codespace,
+      validationReportId,
+      filename,
+      jaxbValidators,
+      jaxbValidatorExecutor,
+      netexValidationProgressCallBack,
+      jaxbValidationContext
+    );
   }
 
   /**
@@ -435,6 +882,90 @@ public class NetexValidatorsRunner {
     });
   }
 
+  /**
+   * Submit the validators to the executor and collect the validation report entries
+   * in the order the validators are registered.
+   * Validators marked as {@link SequentialValidator} are run on the calling thread, one after the other,
+   * while the other validators are running on the executor.
+   */
+  private <C extends ValidationContext> List<ValidationReportEntry> runConcurrently(
+    String codespace,
+    String validationReportId,
+    String filename,
+    List<? extends NetexValidator<C>> validators,
+    Executor executor,
+    NetexValidationProgressCallBack progressCallback,
+    C validationContext
+  ) {
+    List<CompletableFuture<List<ValidationReportEntry>>> futures = validators
+      .stream()
+      .map(validator ->
+        validator instanceof SequentialValidator
+          ? new CompletableFuture<List<ValidationReportEntry>>()
+          : CompletableFuture.supplyAsync(
+            () ->
+              runValidator(
+                codespace,
+                validationReportId,
+                filename,
+                validator,
+                progressCallback,
+                validationContext
+              ),
+            executor
+          )
+      )
+      .toList();
+    for (int i = 0; i < validators.size(); i++) {
+      NetexValidator<C> validator = validators.get(i);
+      if (validator instanceof SequentialValidator) {
+        futures
+          .get(i)
+          .complete(
+            runValidator(
+              codespace,
+              validationReportId,
+              filename,
+              validator,
+              progressCallback,
+              validationContext
+            )
+          );
+      }
+    }
+    return futures
+      .stream()
+      .map(NetexValidatorsRunner::join)
+      .flatMap(Collection::stream)
+      .toList();
+  }
+
+  /**
+   * Wait for the completion of a validation task and rethrow the original exception if the task failed.
+   */
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Discard the result of a speculative task, if any.
+   */
+  private static void cancel(CompletableFuture<?> future) {
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
   private <C extends ValidationContext> List<ValidationReportEntry> runValidator(
     String codespace,
     String validationReportId,
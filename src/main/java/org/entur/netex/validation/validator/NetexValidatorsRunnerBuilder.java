@@ -1,12 +1,14 @@
 package org.entur.netex.validation.validator;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import org.entur.netex.validation.validator.jaxb.CommonDataRepositoryLoader;
 import org.entur.netex.validation.validator.jaxb.JAXBValidationContext;
 import org.entur.netex.validation.validator.jaxb.JAXBValidator;
 import org.entur.netex.validation.validator.jaxb.NetexDataCollector;
 import org.entur.netex.validation.validator.jaxb.NetexDataRepository;
+import org.entur.netex.validation.validator.jaxb.NetexParserPool;
 import org.entur.netex.validation.validator.jaxb.StopPlaceRepository;
 import org.entur.netex.validation.validator.schema.NetexSchemaValidator;
 import org.entur.netex.validation.xml.NetexXMLParser;
@@ -24,6 +26,13 @@ public class NetexValidatorsRunnerBuilder {
   private List<NetexDataCollector> netexDataCollectors = List.of();
   private ValidationReportEntryFactory validationReportEntryFactory =
     new SimpleValidationEntryFactory();
+  private Executor xPathValidatorExecutor = null;
+  private Executor jaxbValidatorExecutor = null;
+  private boolean singlePassParsing = false;
+  private Executor speculativeExecutor = null;
+  private NetexParserPool netexParserPool = null;
+  private boolean xdmNodeUnmarshalling = false;
+  private Executor frameUnmarshallingExecutor = null;
 
   NetexValidatorsRunnerBuilder() {}
 
@@ -67,6 +76,34 @@ public class NetexValidatorsRunnerBuilder {
     return validationReportEntryFactory;
   }
 
+  public Executor getXPathValidatorExecutor() {
+    return xPathValidatorExecutor;
+  }
+
+  public Executor getJaxbValidatorExecutor() {
+    return jaxbValidatorExecutor;
+  }
+
+  public boolean isSinglePassParsing() {
+    return singlePassParsing;
+  }
+
+  public Executor getSpeculativeExecutor() {
+    return speculativeExecutor;
+  }
+
+  public NetexParserPool getNetexParserPool() {
+    return netexParserPool;
+  }
+
+  public boolean isXdmNodeUnmarshalling() {
+    return xdmNodeUnmarshalling;
+  }
+
+  public Executor getFrameUnmarshallingExecutor() {
+    return frameUnmarshallingExecutor;
+  }
+
   public NetexValidatorsRunnerBuilder withNetexXMLParser(NetexXMLParser netexXMLParser) {
     this.netexXMLParser = netexXMLParser;
     return this;
@@ -142,6 +179,101 @@ public class NetexValidatorsRunnerBuilder {
     return this;
   }
 
+  /**
+   * Run the XPath validators concurrently on the given executor.
+   * By default, the XPath validators are run sequentially on the calling thread.
+   * Validation report entries are returned in the order the validators are registered, whatever the execution order.
+   * The validators and the progress callback may then be called from the executor threads.
+   * Validators that are not thread-safe can implement {@link SequentialValidator} to be run on the calling thread.
+   */
+  public NetexValidatorsRunnerBuilder withXPathValidatorExecutor(
+    Executor xPathValidatorExecutor
+  ) {
+    this.xPathValidatorExecutor = xPathValidatorExecutor;
+    return this;
+  }
+
+  /**
+   * Run the JAXB validators concurrently on the given executor.
+   * By default, the JAXB validators are run sequentially on the calling thread.
+   * The validators share the same {@link JAXBValidationContext}, which is safe for concurrent reads.
+   * Validation report entries are returned in the order the validators are registered, whatever the execution order.
+   * Validators that are not thread-safe can implement {@link SequentialValidator} to be run on the calling thread.
+   */
+  public NetexValidatorsRunnerBuilder withJaxbValidatorExecutor(
+    Executor jaxbValidatorExecutor
+  ) {
+    this.jaxbValidatorExecutor = jaxbValidatorExecutor;
+    return this;
+  }
+
+  /**
+   * Parse the NeTEx document only once for the XML schema validation, the NeTEx version detection,
+   * the construction of the XML nodes graph used by the XPath validators and the extraction of NeTEx ids and references.
+   * This requires both a NeTEx schema validator and a NeTEx XML parser.
+   * By default, each of these steps parses the document separately.
+   */
+  public NetexValidatorsRunnerBuilder withSinglePassParsing(boolean singlePassParsing) {
+    this.singlePassParsing = singlePassParsing;
+    return this;
+  }
+
+  /**
+   * Prepare the XPath and JAXB validation contexts on the given executor while the XML schema validation is running.
+   * Almost all files pass the XML schema validation, so that the preparation steps can be started speculatively.
+   * The prepared contexts are discarded if the XML schema validation fails: downstream validators are still skipped.
+   * Note that in this mode the JAXB validation context is not created through
+   * {@link NetexValidatorsRunner#prepareJAXBValidationContext}.
+   * By default, the validation contexts are prepared after the XML schema validation, on the calling thread.
+   */
+  public NetexValidatorsRunnerBuilder withSpeculativeExecutor(
+    Executor speculativeExecutor
+  ) {
+    this.speculativeExecutor = speculativeExecutor;
+    return this;
+  }
+
+  /**
+   * Build the NeTEx entities index of each file with JAXB unmarshallers taken from the given pool.
+   * A pool can be shared between several runners.
+   * By default, each runner creates its own pool with {@link NetexParserPool#DEFAULT_POOL_SIZE} unmarshallers.
+   */
+  public NetexValidatorsRunnerBuilder withNetexParserPool(
+    NetexParserPool netexParserPool
+  ) {
+    this.netexParserPool = netexParserPool;
+    return this;
+  }
+
+  /**
+   * Build the NeTEx entities index used by the JAXB validators from the XML nodes graph built for the XPath validators,
+   * instead of parsing the document again.
+   * Elements ignored by the NeTEx XML parser are then also absent from the NeTEx entities index.
+   * In this mode the JAXB validation context is not created through
+   * {@link NetexValidatorsRunner#prepareJAXBValidationContext} and is not prepared speculatively.
+   * When a common data repository is configured, common files are still parsed again, so that the
+   * repository collects the whole common files.
+   * By default, the NeTEx entities index is built by parsing the document.
+   */
+  public NetexValidatorsRunnerBuilder withXdmNodeUnmarshalling(
+    boolean xdmNodeUnmarshalling
+  ) {
+    this.xdmNodeUnmarshalling = xdmNodeUnmarshalling;
+    return this;
+  }
+
+  /**
+   * When the NeTEx entities index is built from the XML nodes graph, unmarshal the frames of the composite frames
+   * concurrently on the given executor.
+   * By default, the frames are unmarshalled sequentially on the calling thread.
+   */
+  public NetexValidatorsRunnerBuilder withFrameUnmarshallingExecutor(
+    Executor frameUnmarshallingExecutor
+  ) {
+    this.frameUnmarshallingExecutor = frameUnmarshallingExecutor;
+    return this;
+  }
+
   public NetexValidatorsRunner build() {
     return new NetexValidatorsRunner(this);
   }
@@ -0,0 +1,52 @@
+package org.entur.netex.validation.validator;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Policy for evicting the per-report state kept by shared repositories, when the report is not cleaned up explicitly,
+ * for instance because the validation job crashed or timed out.
+ *
+ * @param maxIdleTime reports that have not been accessed for this duration are evicted.
+ * @param maxResidentWeight maximum total weight (an estimate of the number of entries) of the reports kept in memory.
+ * When the budget is exceeded, the least recently accessed reports are evicted.
+ */
+public record ReportEvictionPolicy(Duration maxIdleTime, long maxResidentWeight) {
+  /**
+   * Reports are never evicted, they are removed only by an explicit clean-up.
+   * This is the policy of the repositories created without an explicit policy.
+   */
+  public static final ReportEvictionPolicy NONE = new ReportEvictionPolicy(
+    null,
+    Long.MAX_VALUE
+  );
+
+  public ReportEvictionPolicy {
+    if (maxIdleTime != null && (maxIdleTime.isNegative() || maxIdleTime.isZero())) {
+      throw new IllegalArgumentException("Invalid max idle time " + maxIdleTime);
+    }
+    if (maxResidentWeight <= 0) {
+      throw new IllegalArgumentException(
+        "Invalid max resident weight " + maxResidentWeight
+      );
+    }
+  }
+
+  /**
+   * Return true if the policy evicts reports, that is unless it is {@link #NONE}.
+   */
+  public boolean evicts() {
+    return maxIdleTime != null || maxResidentWeight != Long.MAX_VALUE;
+  }
+
+  /**
+   * Evict reports idle for the given duration, with a memory budget.
+   * Use {@link Long#MAX_VALUE} as budget to evict only idle reports.
+   */
+  public static ReportEvictionPolicy of(Duration maxIdleTime, long maxResidentWeight) {
+    return new ReportEvictionPolicy(
+      Objects.requireNonNull(maxIdleTime),
+      maxResidentWeight
+    );
+  }
+}
@@ -0,0 +1,277 @@
+package org.entur.netex.validation.validator;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Track the last access time and the weight of the per-report state kept by a repository,
+ * and evict the reports according to a {@link ReportEvictionPolicy}.
+ * The repository wraps each write to the state of a report in {@link #beginWrite(String)} and
+ * {@link #endWrite(String, long)}, calls {@link #touch(String)} on reads and {@link #remove(String)} on clean-up.
+ * A report is tracked from its first write, and is never evicted while a write is in progress.
+ * Later writes to an evicted report fail instead of silently starting from an empty state.
+ * Reads only flag the report as accessed: the access time is updated at the next sweep, so that reads stay cheap.
+ * Eviction is checked at the end of writes, at most once per sweep interval or as soon as the memory budget is exceeded:
+ * no background thread is started. {@link #evictExpiredReports()} can also be called periodically by the application.
+ * Evicted reports are passed to the eviction listener, that removes their state from the repository.
+ * With {@link ReportEvictionPolicy#NONE} the tracker does nothing.
+ * This class is thread-safe.
+ */
+public class ReportStateTracker {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReportStateTracker.class);
+
+  private static final long MAX_SWEEP_INTERVAL_NANOS = 60_000_000_000L;
+  private static final int MAX_REMEMBERED_EVICTIONS = 10_000;
+
+  private final ReportEvictionPolicy policy;
+  private final boolean enabled;
+  private final Consumer<String> evictionListener;
+  private final LongSupplier nanoClock;
+  private final long sweepIntervalNanos;
+  private final Map<String, ReportState> reports = new ConcurrentHashMap<>();
+  private final AtomicLong residentWeight = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final AtomicLong nextSweep;
+  // evicted reports whose later writes are rejected, until they are cleaned up
+  private final Map<String, Boolean> evictedReports = Collections.synchronizedMap(
+    new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > MAX_REMEMBERED_EVICTIONS;
+      }
+    }
+  );
+
+  /**
+   * @param policy the eviction policy.
+   * @param evictionListener called with the id of each evicted report. The listener is called after the report is
+   *                         removed from the tracker, outside of the lock of the report, so that it can release
+   *                         resources that are slow to free (files for example) without blocking other reports.
+   */
+  public ReportStateTracker(
+    ReportEvictionPolicy policy,
+    Consumer<String> evictionListener
+  ) {
+    this(policy, evictionListener, System::nanoTime);
+  }
+
+  ReportStateTracker(
+    ReportEvictionPolicy policy,
+    Consumer<String> evictionListener,
+    LongSupplier nanoClock
+  ) {
+    this.policy = Objects.requireNonNull(policy);
+    this.enabled = policy.evicts();
+    this.evictionListener = Objects.requireNonNull(evictionListener);
+    this.nanoClock = nanoClock;
+    this.sweepIntervalNanos =
+      policy.maxIdleTime() == null
+        ? Long.MAX_VALUE
+        : Math.min(MAX_SWEEP_INTERVAL_NANOS, policy.maxIdleTime().toNanos() / 10);
+    this.nextSweep = new AtomicLong(nanoClock.getAsLong() + sweepIntervalNanos);
+  }
+
+  /**
+   * Record a read access to the state of a report.
+   * Reads do not register untracked reports, they are cheap enough to be called on every lookup.
+   */
+  public void touch(String reportId) {
+    if (!enabled) {
+      return;
+    }
+    ReportState reportState = reports.get(reportId);
+    if (reportState != null && !reportState.accessed) {
+      reportState.accessed = true;
+    }
+  }
+
+  /**
+   * Record the start of a write to the state of a report, and start tracking the report if needed.
+   * The report is not evicted until the matching call to {@link #endWrite(String, long)}.
+   * @throws NetexValidationException if the report was evicted: its state is incomplete and cannot be written to
+   * until the report is cleaned up.
+   */
+  public void beginWrite(String reportId) {
+    if (!enabled) {
+      return;
+    }
+    long now = nanoClock.getAsLong();
+    reports.compute(
+      reportId,
+      (id, reportState) -> {
+        if (evictedReports.containsKey(reportId)) {
+          throw new NetexValidationException(
+            "The state of validation report " + reportId + " was evicted"
+          );
+        }
+        ReportState state = reportState == null ? new ReportState() : reportState;
+        state.inFlightWrites++;
+        state.lastAccess = now;
+        return state;
+      }
+    );
+  }
+
+  /**
+   * Record the end of a write to the state of a report, and evict reports if needed.
+   * The weight is not added if the report was cleaned up in the meantime.
+   * This must be called once for each call to {@link #beginWrite(String)}, whether the write succeeded or not.
+   * @param addedWeight estimate of the number of entries added to the state of the report.
+   */
+  public void endWrite(String reportId, long addedWeight) {
+    if (!enabled) {
+      return;
+    }
+    long now = nanoClock.getAsLong();
+    reports.computeIfPresent(
+      reportId,
+      (id, state) -> {
+        state.inFlightWrites--;
+        state.lastAccess = now;
+        state.weight += addedWeight;
+        residentWeight.addAndGet(addedWeight);
+        return state;
+      }
+    );
+    long sweep = nextSweep.get();
+    if (
+      (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + sweepIntervalNanos)) ||
+      residentWeight.get() > policy.maxResidentWeight()
+    ) {
+      evict(now, reportId);
+    }
+  }
+
+  /**
+   * Stop tracking a report whose state has been cleaned up.
+   */
+  public void remove(String reportId) {
+    if (!enabled) {
+      return;
+    }
+    evictedReports.remove(reportId);
+    ReportState reportState = reports.remove(reportId);
+    if (reportState != null) {
+      residentWeight.addAndGet(-reportState.weight);
+    }
+  }
+
+  /**
+   * Evict the reports that exceed the idle time or the memory budget.
+   */
+  public void evictExpiredReports() {
+    if (enabled) {
+      evict(nanoClock.getAsLong(), null);
+    }
+  }
+
+  /**
+   * Return the number of reports evicted since the creation of the tracker.
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /**
+   * Return the number of reports currently tracked.
+   */
+  public int getResidentReportCount() {
+    return reports.size();
+  }
+
+  /**
+   * Return the total weight of the reports currently tracked.
+   */
+  public long getResidentWeight() {
+    return residentWeight.get();
+  }
+
+  private void evict(long now, String accessedReportId) {
+    reports
+      .values()
+      .forEach(reportState -> {
+        if (reportState.accessed) {
+          reportState.accessed = false;
+          reportState.lastAccess = now;
+        }
+      });
+    if (policy.maxIdleTime() != null) {
+      long maxIdleNanos = policy.maxIdleTime().toNanos();
+      reports.forEach((reportId, reportState) -> {
+        if (now - reportState.lastAccess > maxIdleNanos) {
+          evict(reportId, "idle", state -> now - state.lastAccess > maxIdleNanos);
+        }
+      });
+    }
+    if (residentWeight.get() > policy.maxResidentWeight()) {
+      // the report being accessed is evicted last
+      List<Map.Entry<String, ReportState>> leastRecentlyAccessed = reports
+        .entrySet()
+        .stream()
+        .filter(entry -> !entry.getKey().equals(accessedReportId))
+        .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+        .toList();
+      for (Map.Entry<String, ReportState> entry : leastRecentlyAccessed) {
+        if (residentWeight.get() <= policy.maxResidentWeight()) {
+          break;
+        }
+        evict(
+          entry.getKey(),
+          "over memory budget",
+          state -> residentWeight.get() > policy.maxResidentWeight()
+        );
+      }
+    }
+  }
+
+  /**
+   * Evict a report if it still matches the eviction condition and no write is in progress.
+   * The check and the eviction are atomic with respect to the writes to the report.
+   * Once evicted, the report rejects new writes: the eviction listener can then remove its state
+   * without holding the lock of the report.
+   */
+  private void evict(String reportId, String reason, Predicate<ReportState> condition) {
+    boolean[] evicted = new boolean[1];
+    reports.computeIfPresent(
+      reportId,
+      (id, reportState) -> {
+        if (reportState.inFlightWrites > 0 || !condition.test(reportState)) {
+          return reportState;
+        }
+        LOGGER.warn("Evicting state of validation report {}: {}", reportId, reason);
+        residentWeight.addAndGet(-reportState.weight);
+        evictionCount.incrementAndGet();
+        evictedReports.put(reportId, Boolean.TRUE);
+        evicted[0] = true;
+        return null;
+      }
+    );
+    if (evicted[0]) {
+      evictionListener.accept(reportId);
+    }
+  }
+
+  /**
+   * The write counter and the weight are guarded by the lock of the report in the map of reports.
+   */
+  private static final class ReportState {
+
+    private volatile long lastAccess;
+    private volatile boolean accessed;
+    private int inFlightWrites;
+    private long weight;
+  }
+}
@@ -0,0 +1,9 @@
+package org.entur.netex.validation.validator;
+
+/**
+ * Marker interface for {@link NetexValidator} implementations that are not thread-safe.
+ * When the validators are run concurrently (see {@link NetexValidatorsRunnerBuilder#withXPathValidatorExecutor}
+ * and {@link NetexValidatorsRunnerBuilder#withJaxbValidatorExecutor}), the validators implementing this interface
+ * are not submitted to the executor: they are run one after the other on the calling thread.
+ */
+public interface SequentialValidator {}
@@ -30,10 +30,7 @@ public class BlockJourneyReferencesIgnorer implements ExternalReferenceValidator
     return (
       JOURNEY_REF_TYPES.contains(ref.getElementName()) &&
       (ref.getId().contains("DeadRun") || ref.getId().contains("ServiceJourney")) &&
-      (
-        ref.getParentElementNames() != null &&
-        ref.getParentElementNames().contains("Block")
-      )
+      ref.hasParentElement("Block")
     );
   }
 }
@@ -6,64 +6,101 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import org.entur.netex.validation.validator.ReportEvictionPolicy;
+import org.entur.netex.validation.validator.ReportStateTracker;
 
 /**
  * Hashmap-based implementation of the NeTEX ids repository.
+ * The repository is lock-free: the ids of each report are stored in their own concurrent set,
+ * so that reports do not contend with each other and files of the same report are checked and inserted in parallel.
+ * A duplicated id is reported by every file that inserts it, except the first one.
+ * The state of reports that are not cleaned up can be evicted according to a {@link ReportEvictionPolicy}.
+ * By default, reports are not evicted.
  */
 public class DefaultNetexIdRepository implements NetexIdRepository {
 
   private final Map<String, Set<String>> commonIdsCache;
   private final Map<String, Set<String>> accumulatedNetexIdsMap;
+  private final ReportStateTracker reportStateTracker;
 
+  /**
+   * Create a repository that never evicts the state of reports: it is removed only by {@link #cleanUp(String)}.
+   */
   public DefaultNetexIdRepository() {
+    this(ReportEvictionPolicy.NONE);
+  }
+
+  /**
+   * @param reportEvictionPolicy the policy for evicting the state of reports that are not cleaned up.
+   * The weight of a report is the number of ids it holds.
+   */
+  public DefaultNetexIdRepository(ReportEvictionPolicy reportEvictionPolicy) {
     this.commonIdsCache = new ConcurrentHashMap<>();
     this.accumulatedNetexIdsMap = new ConcurrentHashMap<>();
+    this.reportStateTracker =
+      new ReportStateTracker(reportEvictionPolicy, this::removeReportState);
   }
 
   @Override
-  public synchronized Set<String> getDuplicateNetexIds(
+  public Set<String> getDuplicateNetexIds(
     String reportId,
     String filename,
     Set<String> localIds
   ) {
-    Set<String> accumulatedNetexIds = accumulatedNetexIdsMap.computeIfAbsent(
-      reportId,
-      s -> new HashSet<>()
-    );
-    Set<String> duplicates = new HashSet<>(localIds);
-    duplicates.retainAll(accumulatedNetexIds);
-    accumulatedNetexIds.addAll(localIds);
+    reportStateTracker.beginWrite(reportId);
+    Set<String> duplicates = new HashSet<>();
+    try {
+      Set<String> accumulatedNetexIds = accumulatedNetexIdsMap.computeIfAbsent(
+        reportId,
+        s -> ConcurrentHashMap.newKeySet()
+      );
+      for (String localId : localIds) {
+        // atomic insertion: the id is a duplicate if it was already added by another file
+        if (!accumulatedNetexIds.add(localId)) {
+          duplicates.add(localId);
+        }
+      }
+    } finally {
+      reportStateTracker.endWrite(reportId, (long) localIds.size() - duplicates.size());
+    }
     return duplicates;
   }
 
   @Override
   public Set<String> getSharedNetexIds(String reportId) {
+    reportStateTracker.touch(reportId);
     Set<String> commonIds = commonIdsCache.get(reportId);
     return Objects.requireNonNullElse(commonIds, Collections.emptySet());
   }
 
   @Override
-  public synchronized void addSharedNetexIds(
-    String reportId,
-    Set<IdVersion> commonIdVersions
-  ) {
-    Set<String> commonIds = commonIdVersions
-      .stream()
-      .map(IdVersion::getId)
-      .collect(Collectors.toSet());
-    commonIdsCache.computeIfPresent(
-      reportId,
-      (key, value) -> {
-        value.addAll(commonIds);
-        return value;
-      }
-    );
-    commonIdsCache.putIfAbsent(reportId, commonIds);
+  public void addSharedNetexIds(String reportId, Set<IdVersion> commonIdVersions) {
+    reportStateTracker.beginWrite(reportId);
+    try {
+      Set<String> commonIds = commonIdsCache.computeIfAbsent(
+        reportId,
+        s -> ConcurrentHashMap.newKeySet()
+      );
+      commonIdVersions.forEach(idVersion -> commonIds.add(idVersion.getId()));
+    } finally {
+      reportStateTracker.endWrite(reportId, commonIdVersions.size());
+    }
   }
 
   @Override
   public void cleanUp(String reportId) {
+    reportStateTracker.remove(reportId);
+    removeReportState(reportId);
+  }
+
+  /**
+   * Return the tracker of the reports kept in the repository, that exposes eviction metrics.
+   */
+  public ReportStateTracker getReportStateTracker() {
+    return reportStateTracker;
+  }
+
+  private void removeReportState(String reportId) {
     commonIdsCache.remove(reportId);
     accumulatedNetexIdsMap.remove(reportId);
   }
@@ -0,0 +1,128 @@
+package org.entur.netex.validation.validator.id;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the distinct element paths of a NeTEx document.
+ * A path is identified by an int and is built incrementally from the path of its parent element,
+ * so that entering an element costs a single lookup regardless of its depth.
+ * Element names are interned: all the paths share the same instance of each element name.
+ * The lists of parent element names are built once per distinct path by {@link #freeze()}, and shared by all the
+ * ids and references declared on this path.
+ * The table is not thread-safe while it is being populated. Once frozen, it is immutable and can be read
+ * concurrently.
+ */
+public final class ElementPathTable {
+
+  /**
+   * Path of the document node, that is the parent path of the root element.
+   */
+  public static final int DOCUMENT_PATH = 0;
+
+  private final Map<PathStep, Integer> pathIds = new HashMap<>();
+  private final Map<String, String> elementNames = new HashMap<>();
+  private final List<PathStep> paths = new ArrayList<>();
+  // built by freeze(), null while the table is being populated
+  private volatile List<List<String>> elementNamesOnPath;
+
+  public ElementPathTable() {
+    paths.add(null);
+  }
+
+  /**
+   * Return the id of the path of a child element.
+   * @param parentPath the path of the parent element.
+   * @param elementName the name of the child element.
+   */
+  public int childPath(int parentPath, String elementName) {
+    PathStep pathStep = new PathStep(parentPath, internElementName(elementName));
+    Integer pathId = pathIds.get(pathStep);
+    if (pathId == null) {
+      if (elementNamesOnPath != null) {
+        throw new IllegalStateException("The element path table is frozen");
+      }
+      pathId = paths.size();
+      paths.add(pathStep);
+      pathIds.put(pathStep, pathId);
+    }
+    return pathId;
+  }
+
+  /**
+   * Return the interned instance of an element name.
+   */
+  public String internElementName(String elementName) {
+    return elementNames.computeIfAbsent(elementName, name -> name);
+  }
+
+  /**
+   * Build the lists of element names of all the paths, and make the table immutable.
+   * This is called once the document is parsed, before the table is shared with other threads.
+   * Calling it again has no effect.
+   */
+  public void freeze() {
+    if (elementNamesOnPath != null) {
+      return;
+    }
+    List<List<String>> names = new ArrayList<>(paths.size());
+    names.add(List.of());
+    // a path is always created after its parent path
+    for (int path = 1; path < paths.size(); path++) {
+      PathStep pathStep = paths.get(path);
+      List<String> parentNames = names.get(pathStep.parentPath());
+      String[] pathNames = new String[parentNames.size() + 1];
+      pathNames[0] = pathStep.elementName();
+      for (int i = 0; i < parentNames.size(); i++) {
+        pathNames[i + 1] = parentNames.get(i);
+      }
+      names.add(List.of(pathNames));
+    }
+    elementNamesOnPath = List.copyOf(names);
+  }
+
+  /**
+   * Return the names of the elements on the path, from the innermost element up to the root element.
+   * This is the list of parent element names of the ids and references declared in a child of the innermost element.
+   * The list is immutable. Once the table is frozen, it is shared by all the callers.
+   */
+  public List<String> elementNames(int path) {
+    List<List<String>> frozenElementNames = elementNamesOnPath;
+    if (frozenElementNames != null) {
+      return frozenElementNames.get(path);
+    }
+    List<String> names = new ArrayList<>();
+    for (int p = path; p != DOCUMENT_PATH; p = paths.get(p).parentPath()) {
+      names.add(paths.get(p).elementName());
+    }
+    return List.copyOf(names);
+  }
+
+  /**
+   * Return true if an element with the given name is on the path.
+   * The test walks up the path ids and compares interned names, without building the list of element names.
+   */
+  public boolean containsElement(int path, String elementName) {
+    String internedName = elementNames.get(elementName);
+    if (internedName == null) {
+      return false;
+    }
+    for (int p = path; p != DOCUMENT_PATH; p = paths.get(p).parentPath()) {
+      if (paths.get(p).elementName() == internedName) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return the number of distinct paths, including the document path.
+   */
+  public int size() {
+    return paths.size();
+  }
+
+  private record PathStep(int parentPath, String elementName) {}
+}
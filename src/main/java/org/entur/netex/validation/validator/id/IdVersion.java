@@ -16,6 +16,9 @@ public class IdVersion {
   private String filename;
   private int lineNumber;
   private int columnNumber;
+  // set when the IdVersion is a view on an IdVersionStore, see hasParentElement
+  private transient ElementPathTable elementPathTable;
+  private transient int parentPath;
 
   public IdVersion() {}
 
@@ -37,6 +40,33 @@ public class IdVersion {
     this.lineNumber = lineNumber;
   }
 
+  /**
+   * Create a view on an entry of an {@link IdVersionStore}.
+   * @param parentPath the path of the parent element in the element path table of the document.
+   */
+  IdVersion(
+    String id,
+    String version,
+    String elementName,
+    ElementPathTable elementPathTable,
+    int parentPath,
+    String filename,
+    int lineNumber,
+    int columnNumber
+  ) {
+    this(
+      id,
+      version,
+      elementName,
+      elementPathTable.elementNames(parentPath),
+      filename,
+      lineNumber,
+      columnNumber
+    );
+    this.elementPathTable = elementPathTable;
+    this.parentPath = parentPath;
+  }
+
   public DataLocation dataLocation() {
     return new DataLocation(id, filename, lineNumber, columnNumber);
   }
@@ -102,6 +132,18 @@ public class IdVersion {
     return parentElementNames;
   }
 
+  /**
+   * Return true if the id is declared in a descendant of an element with the given name.
+   * For ids collected while parsing the document, the test compares interned path elements
+   * instead of scanning the list of parent element names.
+   */
+  public boolean hasParentElement(String elementName) {
+    if (elementPathTable != null) {
+      return elementPathTable.containsElement(parentPath, elementName);
+    }
+    return parentElementNames != null && parentElementNames.contains(elementName);
+  }
+
   public String getFilename() {
     return filename;
   }
@@ -0,0 +1,270 @@
+package org.entur.netex.validation.validator.id;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Compact, column-oriented, list of NeTEx ids or references declared in a NeTEx document.
+ * Instead of one {@link IdVersion} object per entry, each attribute is stored in its own array:
+ * the parent element names are stored as a path id in a shared {@link ElementPathTable},
+ * the element names are interned and the line and column numbers are stored in primitive arrays.
+ * {@link #get(int)} returns an {@link IdVersion} view of an entry, created on demand. The view is a small object
+ * that shares its strings and its list of parent element names with the store.
+ * {@link #asSet()} and {@link #asMap()} give set and map views of the entries without copying them.
+ * The store is not thread-safe while it is being populated. Once it is populated and its element path table is
+ * frozen, it can be read concurrently.
+ */
+public final class IdVersionStore
+  extends AbstractList<IdVersion>
+  implements RandomAccess {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final String filename;
+  private final ElementPathTable elementPathTable;
+  private String[] ids = new String[INITIAL_CAPACITY];
+  private String[] versions = new String[INITIAL_CAPACITY];
+  private String[] elementNames = new String[INITIAL_CAPACITY];
+  private int[] parentPaths = new int[INITIAL_CAPACITY];
+  private int[] lineNumbers = new int[INITIAL_CAPACITY];
+  private int[] columnNumbers = new int[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * @param filename the NeTEx file name.
+   * @param elementPathTable the table of element paths of the document. It can be shared by several stores.
+   */
+  public IdVersionStore(String filename, ElementPathTable elementPathTable) {
+    this.filename = filename;
+    this.elementPathTable = elementPathTable;
+  }
+
+  /**
+   * Add an entry.
+   * @param parentPath the path of the parent element in the element path table.
+   */
+  public void add(
+    String id,
+    String version,
+    String elementName,
+    int parentPath,
+    int lineNumber,
+    int columnNumber
+  ) {
+    if (size == ids.length) {
+      grow();
+    }
+    ids[size] = id;
+    versions[size] = version;
+    elementNames[size] = elementPathTable.internElementName(elementName);
+    parentPaths[size] = parentPath;
+    lineNumbers[size] = lineNumber;
+    columnNumbers[size] = columnNumber;
+    size++;
+  }
+
+  @Override
+  public IdVersion get(int index) {
+    checkIndex(index);
+    return new IdVersion(
+      ids[index],
+      versions[index],
+      elementNames[index],
+      elementPathTable,
+      parentPaths[index],
+      filename,
+      lineNumbers[index],
+      columnNumbers[index]
+    );
+  }
+
+  /**
+   * Return a read-only set view of the entries, with one element per distinct (id, version) pair,
+   * as in a set of {@link IdVersion}.
+   * The view holds a hash table of entry indexes, the IdVersion elements are created on demand.
+   * The view must be created after the store is populated, it can then be read concurrently.
+   */
+  public Set<IdVersion> asSet() {
+    return new IdVersionSet();
+  }
+
+  /**
+   * Return a read-only map view of the entries by NeTEx id. An id declared several times is mapped to its first entry.
+   * The view holds a hash table of entry indexes, the IdVersion values are created on demand.
+   * The view must be created after the store is populated, it can then be read concurrently.
+   */
+  public Map<String, IdVersion> asMap() {
+    return new IdVersionMap();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private void grow() {
+    int capacity = ids.length * 2;
+    ids = Arrays.copyOf(ids, capacity);
+    versions = Arrays.copyOf(versions, capacity);
+    elementNames = Arrays.copyOf(elementNames, capacity);
+    parentPaths = Arrays.copyOf(parentPaths, capacity);
+    lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+    columnNumbers = Arrays.copyOf(columnNumbers, capacity);
+  }
+
+  /**
+   * Open-addressing hash table of the first entry of each distinct key.
+   * The key is either the id or the (id, version) pair of an entry.
+   */
+  private final class FirstEntryTable {
+
+    private final boolean keyedByVersion;
+    // entry index + 1, 0 for an empty slot
+    private final int[] slots;
+    // first entries of each distinct key, in store order
+    private final int[] entries;
+
+    FirstEntryTable(boolean keyedByVersion) {
+      this.keyedByVersion = keyedByVersion;
+      int capacity = 2;
+      while (capacity < size * 2) {
+        capacity <<= 1;
+      }
+      slots = new int[capacity];
+      int[] firstEntries = new int[size];
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        int slot = findSlot(ids[i], versions[i]);
+        if (slots[slot] == 0) {
+          slots[slot] = i + 1;
+          firstEntries[count++] = i;
+        }
+      }
+      entries = Arrays.copyOf(firstEntries, count);
+    }
+
+    /**
+     * Return the index of the first entry with the given key, or -1 if there is none.
+     */
+    int indexOf(String id, String version) {
+      return slots[findSlot(id, version)] - 1;
+    }
+
+    <T> Iterator<T> iterator(IntFunction<T> entryMapper) {
+      return new Iterator<>() {
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+          return next < entries.length;
+        }
+
+        @Override
+        public T next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return entryMapper.apply(entries[next++]);
+        }
+      };
+    }
+
+    private int findSlot(String id, String version) {
+      int mask = slots.length - 1;
+      int hash = keyedByVersion ? Objects.hash(id, version) : id.hashCode();
+      int slot = (hash ^ (hash >>> 16)) & mask;
+      while (slots[slot] != 0 && !matches(slots[slot] - 1, id, version)) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private boolean matches(int entry, String id, String version) {
+      return (
+        ids[entry].equals(id) &&
+        (!keyedByVersion || Objects.equals(versions[entry], version))
+      );
+    }
+  }
+
+  private final class IdVersionSet extends AbstractSet<IdVersion> {
+
+    private final FirstEntryTable firstEntries = new FirstEntryTable(true);
+
+    @Override
+    public boolean contains(Object o) {
+      return (
+        o instanceof IdVersion idVersion &&
+        idVersion.getId() != null &&
+        firstEntries.indexOf(idVersion.getId(), idVersion.getVersion()) >= 0
+      );
+    }
+
+    @Override
+    public Iterator<IdVersion> iterator() {
+      return firstEntries.iterator(IdVersionStore.this::get);
+    }
+
+    @Override
+    public int size() {
+      return firstEntries.entries.length;
+    }
+  }
+
+  private final class IdVersionMap extends AbstractMap<String, IdVersion> {
+
+    private final FirstEntryTable firstEntries = new FirstEntryTable(false);
+
+    @Override
+    public IdVersion get(Object key) {
+      int index = indexOf(key);
+      return index >= 0 ? IdVersionStore.this.get(index) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return firstEntries.entries.length;
+    }
+
+    @Override
+    public Set<Entry<String, IdVersion>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, IdVersion>> iterator() {
+          return firstEntries.iterator(index ->
+            Map.entry(ids[index], IdVersionStore.this.get(index))
+          );
+        }
+
+        @Override
+        public int size() {
+          return firstEntries.entries.length;
+        }
+      };
+    }
+
+    private int indexOf(Object key) {
+      return key instanceof String id ? firstEntries.indexOf(id, null) : -1;
+    }
+  }
+}
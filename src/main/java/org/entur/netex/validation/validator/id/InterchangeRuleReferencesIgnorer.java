@@ -19,7 +19,7 @@ public class InterchangeRuleReferencesIgnorer implements ExternalReferenceValida
   private static boolean isIgnorableReferenceFromInterchangeRule(IdVersion ref) {
     return (
       "LineRef".equals(ref.getElementName()) &&
-      ref.getParentElementNames().contains("InterchangeRule")
+      ref.hasParentElement("InterchangeRule")
     );
   }
 }
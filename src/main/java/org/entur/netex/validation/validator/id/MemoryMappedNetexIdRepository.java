@@ -0,0 +1,617 @@
+package org.entur.netex.validation.validator.id;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.entur.netex.validation.validator.ReportEvictionPolicy;
+import org.entur.netex.validation.validator.ReportStateTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of the NeTEx ids repository that stores the accumulated ids of each report on disk,
+ * in files under a local work directory.
+ * This allows for validating reports whose ids do not fit in the heap.
+ * The ids of a report are indexed in a memory-mapped open-addressing hash table keyed on a 64-bit hash of the id.
+ * The ids themselves are appended to a data file and are read back only to verify that two ids with the same hash
+ * are equal.
+ * Reports are independent: each report has its own files and its own lock.
+ * A Bloom filter screens the ids in memory before the table is accessed: ids that are certainly new are appended to
+ * the data file and indexed later in batches, in table order, so that only candidate duplicates are looked up
+ * immediately.
+ * The shared ids declared in common files are few and are kept in memory.
+ * The files of a report are deleted by {@link #cleanUp(String)}, or when the report is evicted
+ * according to a {@link ReportEvictionPolicy}. By default, reports are not evicted.
+ * The hash tables are unmapped before their files are deleted, so that the disk space is freed immediately
+ * instead of when the mapped buffers are garbage-collected (and so that the files can be deleted on Windows).
+ */
+public class MemoryMappedNetexIdRepository implements NetexIdRepository {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    MemoryMappedNetexIdRepository.class
+  );
+
+  public static final int DEFAULT_INITIAL_CAPACITY = 1 << 16;
+  public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+  /**
+   * Unmap a mapped buffer. The JDK does not provide a public API for unmapping buffers:
+   * the cleaner is invoked through sun.misc.Unsafe when available.
+   */
+  private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+  private final Path workDirectory;
+  private final int initialCapacity;
+  private final double falsePositiveProbability;
+  private final ToLongFunction<String> hashFunction;
+  private final Map<String, MappedIdSet> accumulatedNetexIdsMap;
+  private final Map<String, Set<String>> commonIdsCache;
+  private final ReportStateTracker reportStateTracker;
+
+  /**
+   * @param workDirectory the directory where the report files are created.
+   */
+  public MemoryMappedNetexIdRepository(Path workDirectory) {
+    this(workDirectory, DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param workDirectory the directory where the report files are created.
+   * @param initialCapacity the initial number of slots in the hash table of a report. Rounded up to a power of 2.
+   */
+  public MemoryMappedNetexIdRepository(Path workDirectory, int initialCapacity) {
+    this(workDirectory, initialCapacity, DEFAULT_FALSE_POSITIVE_PROBABILITY);
+  }
+
+  /**
+   * @param workDirectory the directory where the report files are created.
+   * @param initialCapacity the initial number of slots in the hash table of a report. Rounded up to a power of 2.
+   * This is also the number of ids the first stage of the Bloom filter is sized for.
+   * @param falsePositiveProbability the false positive probability of the Bloom filter.
+   * A lower probability sends fewer new ids through the exact check, at the cost of a larger filter
+   * (about 1.2 bytes per id at 1%, 1.8 bytes per id at 0.1%). 0 disables the Bloom filter.
+   */
+  public MemoryMappedNetexIdRepository(
+    Path workDirectory,
+    int initialCapacity,
+    double falsePositiveProbability
+  ) {
+    this(
+      workDirectory,
+      initialCapacity,
+      falsePositiveProbability,
+      MemoryMappedNetexIdRepository::hash
+    );
+  }
+
+  MemoryMappedNetexIdRepository(
+    Path workDirectory,
+    int initialCapacity,
+    double falsePositiveProbability,
+    ToLongFunction<String> hashFunction
+  ) {
+    this(
+      workDirectory,
+      initialCapacity,
+      falsePositiveProbability,
+      ReportEvictionPolicy.NONE,
+      hashFunction
+    );
+  }
+
+  /**
+   * @param workDirectory the directory where the report files are created.
+   * @param initialCapacity the initial number of slots in the hash table of a report.
+   * @param falsePositiveProbability the false positive probability of the Bloom filter. 0 disables the Bloom filter.
+   * @param reportEvictionPolicy the policy for evicting the reports that are not cleaned up.
+   * The weight of a report is the number of ids it holds.
+   */
+  public MemoryMappedNetexIdRepository(
+    Path workDirectory,
+    int initialCapacity,
+    double falsePositiveProbability,
+    ReportEvictionPolicy reportEvictionPolicy
+  ) {
+    this(
+      workDirectory,
+      initialCapacity,
+      falsePositiveProbability,
+      reportEvictionPolicy,
+      MemoryMappedNetexIdRepository::hash
+    );
+  }
+
+  MemoryMappedNetexIdRepository(
+    Path workDirectory,
+    int initialCapacity,
+    double falsePositiveProbability,
+    ReportEvictionPolicy reportEvictionPolicy,
+    ToLongFunction<String> hashFunction
+  ) {
+    this.workDirectory = Objects.requireNonNull(workDirectory);
+    this.initialCapacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+    this.falsePositiveProbability = falsePositiveProbability;
+    this.hashFunction = hashFunction;
+    this.accumulatedNetexIdsMap = new ConcurrentHashMap<>();
+    this.commonIdsCache = new ConcurrentHashMap<>();
+    this.reportStateTracker =
+      new ReportStateTracker(reportEvictionPolicy, this::removeReportState);
+  }
+
+  @Override
+  public Set<String> getDuplicateNetexIds(
+    String reportId,
+    String filename,
+    Set<String> localIds
+  ) {
+    // the report is not evicted while its ids are being inserted
+    reportStateTracker.beginWrite(reportId);
+    Set<String> duplicates = new HashSet<>();
+    long addedIds = 0;
+    try {
+      MappedIdSet accumulatedNetexIds = accumulatedNetexIdsMap.computeIfAbsent(
+        reportId,
+        id ->
+          new MappedIdSet(
+            workDirectory,
+            initialCapacity,
+            falsePositiveProbability > 0
+              ? new ScalableBloomFilter(initialCapacity, falsePositiveProbability)
+              : null
+          )
+      );
+      synchronized (accumulatedNetexIds) {
+        for (String localId : localIds) {
+          if (!accumulatedNetexIds.add(localId, hashFunction.applyAsLong(localId))) {
+            duplicates.add(localId);
+          }
+        }
+      }
+      addedIds = (long) localIds.size() - duplicates.size();
+    } finally {
+      reportStateTracker.endWrite(reportId, addedIds);
+    }
+    return duplicates;
+  }
+
+  @Override
+  public Set<String> getSharedNetexIds(String reportId) {
+    reportStateTracker.touch(reportId);
+    Set<String> commonIds = commonIdsCache.get(reportId);
+    return Objects.requireNonNullElse(commonIds, Collections.emptySet());
+  }
+
+  @Override
+  public void addSharedNetexIds(String reportId, Set<IdVersion> commonIdVersions) {
+    reportStateTracker.beginWrite(reportId);
+    try {
+      Set<String> commonIds = commonIdsCache.computeIfAbsent(
+        reportId,
+        s -> ConcurrentHashMap.newKeySet()
+      );
+      commonIdVersions.forEach(idVersion -> commonIds.add(idVersion.getId()));
+    } finally {
+      reportStateTracker.endWrite(reportId, commonIdVersions.size());
+    }
+  }
+
+  @Override
+  public void cleanUp(String reportId) {
+    reportStateTracker.remove(reportId);
+    removeReportState(reportId);
+  }
+
+  /**
+   * Return the tracker of the reports kept in the repository, that exposes eviction metrics.
+   */
+  public ReportStateTracker getReportStateTracker() {
+    return reportStateTracker;
+  }
+
+  private void removeReportState(String reportId) {
+    commonIdsCache.remove(reportId);
+    MappedIdSet accumulatedNetexIds = accumulatedNetexIdsMap.remove(reportId);
+    if (accumulatedNetexIds != null) {
+      synchronized (accumulatedNetexIds) {
+        accumulatedNetexIds.delete();
+      }
+    }
+  }
+
+  private static MethodHandle findInvokeCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      return MethodHandles
+        .lookup()
+        .findVirtual(
+          unsafeClass,
+          "invokeCleaner",
+          MethodType.methodType(void.class, ByteBuffer.class)
+        )
+        .bindTo(theUnsafe.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.info(
+        "Mapped NeTEx ids tables cannot be unmapped explicitly, they will be unmapped by the garbage collector",
+        e
+      );
+      return null;
+    }
+  }
+
+  /**
+   * Release the memory mappings of the segments. The segments must not be accessed afterward.
+   */
+  private static void unmap(MappedByteBuffer[] segments) {
+    if (INVOKE_CLEANER == null || segments == null) {
+      return;
+    }
+    for (MappedByteBuffer segment : segments) {
+      try {
+        INVOKE_CLEANER.invokeExact((ByteBuffer) segment);
+      } catch (Throwable e) {
+        LOGGER.warn("Could not unmap NeTEx ids table", e);
+        return;
+      }
+    }
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the id, followed by a finalization step that spreads the bits.
+   * 0 is reserved for empty slots.
+   */
+  static long hash(String id) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < id.length(); i++) {
+      h ^= id.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h == 0 ? 1 : h;
+  }
+
+  /**
+   * Set of ids stored in a memory-mapped hash table and an append-only data file.
+   * A slot in the table is made of the 64-bit hash of the id and the offset of the id in the data file.
+   * The table is split into segments of at most 1GB, so that it can grow beyond the 2GB limit of a mapped buffer.
+   * Not thread-safe.
+   */
+  private static final class MappedIdSet {
+
+    private static final int SLOT_SIZE = 16;
+    private static final int SLOTS_PER_SEGMENT = 1 << 26;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int PENDING_BATCH_SIZE = 1 << 18;
+
+    private final Path workDirectory;
+    private final ScalableBloomFilter bloomFilter;
+    private final long[] pendingHashes;
+    private final long[] pendingOffsets;
+    private int pendingCount;
+    private final Path dataFile;
+    private final FileChannel dataChannel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private long dataSize;
+    private Path tableFile;
+    private MappedByteBuffer[] tableSegments;
+    private long capacity;
+    private long size;
+    private boolean deleted;
+
+    private MappedIdSet(
+      Path workDirectory,
+      long capacity,
+      ScalableBloomFilter bloomFilter
+    ) {
+      this.workDirectory = workDirectory;
+      this.bloomFilter = bloomFilter;
+      this.pendingHashes = bloomFilter != null ? new long[PENDING_BATCH_SIZE] : null;
+      this.pendingOffsets = bloomFilter != null ? new long[PENDING_BATCH_SIZE] : null;
+      try {
+        this.dataFile = Files.createTempFile(workDirectory, "netex-ids-", ".data");
+        this.dataChannel =
+          FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        throw new NetexValidationException("Could not create NeTEx ids data file", e);
+      }
+      allocateTable(capacity);
+    }
+
+    /**
+     * Add an id to the set.
+     * @return true if the id was not already present.
+     */
+    private boolean add(String id, long hash) {
+      if (deleted) {
+        throw new NetexValidationException(
+          "The NeTEx ids of the validation report have been deleted: " +
+          "the report was cleaned up or evicted while files were being validated"
+        );
+      }
+      byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+      if (bloomFilter != null) {
+        if (!bloomFilter.mightContain(hash)) {
+          // certainly a new id: index it later with the next batch
+          bloomFilter.put(hash);
+          pendingHashes[pendingCount] = hash;
+          pendingOffsets[pendingCount] = append(idBytes);
+          pendingCount++;
+          if (pendingCount == PENDING_BATCH_SIZE) {
+            indexPending();
+          }
+          return true;
+        }
+        // candidate duplicate: the exact check requires all the ids to be indexed
+        indexPending();
+        bloomFilter.put(hash);
+      }
+      long mask = capacity - 1;
+      for (long slot = hash & mask;; slot = (slot + 1) & mask) {
+        long slotHash = slotHash(slot);
+        if (slotHash == 0) {
+          setSlot(slot, hash, append(idBytes));
+          size++;
+          if (size * 2 > capacity) {
+            grow();
+          }
+          return true;
+        }
+        if (slotHash == hash && storedIdEquals(slotOffset(slot), idBytes)) {
+          return false;
+        }
+      }
+    }
+
+    /**
+     * Insert the pending ids in the table.
+     * The ids are inserted in the order of their home slot, so that the table is accessed sequentially.
+     */
+    private void indexPending() {
+      if (pendingCount == 0) {
+        return;
+      }
+      while ((size + pendingCount) * 2 > capacity) {
+        grow();
+      }
+      long mask = capacity - 1;
+      sortBySlot(0, pendingCount - 1, mask);
+      for (int i = 0; i < pendingCount; i++) {
+        insert(pendingHashes[i], pendingOffsets[i]);
+      }
+      size += pendingCount;
+      pendingCount = 0;
+    }
+
+    /**
+     * Insert an id that is known not to be in the table.
+     */
+    private void insert(long hash, long offset) {
+      long mask = capacity - 1;
+      long slot = hash & mask;
+      while (slotHash(slot) != 0) {
+        slot = (slot + 1) & mask;
+      }
+      setSlot(slot, hash, offset);
+    }
+
+    /**
+     * Sort the pending ids by home slot (quicksort on the two parallel arrays).
+     */
+    private void sortBySlot(int low, int high, long mask) {
+      while (low < high) {
+        long pivot = pendingHashes[(low + high) >>> 1] & mask;
+        int i = low;
+        int j = high;
+        while (i <= j) {
+          while ((pendingHashes[i] & mask) < pivot) {
+            i++;
+          }
+          while ((pendingHashes[j] & mask) > pivot) {
+            j--;
+          }
+          if (i <= j) {
+            swapPending(i++, j--);
+          }
+        }
+        // recurse on the smaller partition to bound the stack depth
+        if (j - low < high - i) {
+          sortBySlot(low, j, mask);
+          low = i;
+        } else {
+          sortBySlot(i, high, mask);
+          high = j;
+        }
+      }
+    }
+
+    private void swapPending(int i, int j) {
+      long hash = pendingHashes[i];
+      pendingHashes[i] = pendingHashes[j];
+      pendingHashes[j] = hash;
+      long offset = pendingOffsets[i];
+      pendingOffsets[i] = pendingOffsets[j];
+      pendingOffsets[j] = offset;
+    }
+
+    private long append(byte[] idBytes) {
+      long offset = dataSize;
+      int recordSize = Integer.BYTES + idBytes.length;
+      if (recordSize > writeBuffer.capacity()) {
+        flush();
+        write(ByteBuffer.allocate(recordSize).putInt(idBytes.length).put(idBytes));
+      } else {
+        if (writeBuffer.remaining() < recordSize) {
+          flush();
+        }
+        writeBuffer.putInt(idBytes.length).put(idBytes);
+      }
+      dataSize += recordSize;
+      return offset;
+    }
+
+    private boolean storedIdEquals(long offset, byte[] idBytes) {
+      flush();
+      try {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offset);
+        if (length.flip().getInt() != idBytes.length) {
+          return false;
+        }
+        ByteBuffer storedId = ByteBuffer.allocate(idBytes.length);
+        readFully(storedId, offset + Integer.BYTES);
+        return Arrays.equals(storedId.array(), idBytes);
+      } catch (IOException e) {
+        throw new NetexValidationException("Could not read NeTEx ids data file", e);
+      }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining()) {
+        if (dataChannel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of NeTEx ids data file " + dataFile);
+        }
+      }
+    }
+
+    /**
+     * Write the buffered ids to the data file.
+     */
+    private void flush() {
+      writeBuffer.flip();
+      long position = dataSize - writeBuffer.remaining();
+      writeAt(writeBuffer, position);
+      writeBuffer.clear();
+    }
+
+    /**
+     * Write a record at the end of the data file. The write buffer must be empty.
+     */
+    private void write(ByteBuffer record) {
+      record.flip();
+      writeAt(record, dataSize);
+    }
+
+    private void writeAt(ByteBuffer buffer, long position) {
+      try {
+        while (buffer.hasRemaining()) {
+          position += dataChannel.write(buffer, position);
+        }
+      } catch (IOException e) {
+        throw new NetexValidationException("Could not write NeTEx ids data file", e);
+      }
+    }
+
+    private void grow() {
+      MappedByteBuffer[] oldSegments = tableSegments;
+      long oldCapacity = capacity;
+      Path oldTableFile = tableFile;
+      allocateTable(oldCapacity * 2);
+      for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+        ByteBuffer oldSegment = oldSegments[(int) (oldSlot / SLOTS_PER_SEGMENT)];
+        int oldPosition = (int) (oldSlot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+        long hash = oldSegment.getLong(oldPosition);
+        if (hash != 0) {
+          insert(hash, oldSegment.getLong(oldPosition + Long.BYTES));
+        }
+      }
+      unmap(oldSegments);
+      deleteFile(oldTableFile);
+      LOGGER.debug("Resized NeTEx ids table {} to {} slots", tableFile, capacity);
+    }
+
+    private void allocateTable(long newCapacity) {
+      try {
+        Path newTableFile = Files.createTempFile(workDirectory, "netex-ids-", ".table");
+        int segmentCount = (int) Math.max(1, newCapacity / SLOTS_PER_SEGMENT);
+        long slotsPerSegment = Math.min(newCapacity, SLOTS_PER_SEGMENT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        try (
+          FileChannel tableChannel = FileChannel.open(
+            newTableFile,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+          )
+        ) {
+          for (int i = 0; i < segmentCount; i++) {
+            segments[i] =
+              tableChannel.map(
+                FileChannel.MapMode.READ_WRITE,
+                i * slotsPerSegment * SLOT_SIZE,
+                slotsPerSegment * SLOT_SIZE
+              );
+          }
+        }
+        tableFile = newTableFile;
+        tableSegments = segments;
+        capacity = newCapacity;
+      } catch (IOException e) {
+        throw new NetexValidationException("Could not create NeTEx ids table file", e);
+      }
+    }
+
+    private long slotHash(long slot) {
+      return segment(slot).getLong(position(slot));
+    }
+
+    private long slotOffset(long slot) {
+      return segment(slot).getLong(position(slot) + Long.BYTES);
+    }
+
+    private void setSlot(long slot, long hash, long offset) {
+      MappedByteBuffer segment = segment(slot);
+      int position = position(slot);
+      segment.putLong(position + Long.BYTES, offset);
+      segment.putLong(position, hash);
+    }
+
+    private MappedByteBuffer segment(long slot) {
+      return tableSegments[(int) (slot / SLOTS_PER_SEGMENT)];
+    }
+
+    private static int position(long slot) {
+      return (int) (slot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+    }
+
+    private void delete() {
+      deleted = true;
+      try {
+        dataChannel.close();
+      } catch (IOException e) {
+        LOGGER.warn("Could not close NeTEx ids data file {}", dataFile, e);
+      }
+      unmap(tableSegments);
+      tableSegments = null;
+      deleteFile(tableFile);
+      deleteFile(dataFile);
+    }
+
+    private static void deleteFile(Path file) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        LOGGER.warn("Could not delete NeTEx ids file {}", file, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.entur.netex.validation.validator.id;
+
+import java.util.Arrays;
+import java.util.Set;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler that collects NeTEx ids and references while the document is being parsed.
+ * This produces the same result as {@link NetexIdExtractorHelper#collectEntityIdentifiers} and
+ * {@link NetexIdExtractorHelper#collectEntityReferences}, without evaluating XPath queries on the parsed document.
+ * The parent elements are read from the stack of currently open elements, as ids in an {@link ElementPathTable},
+ * and the ids and references are stored in compact {@link IdVersionStore}s.
+ */
+public class NetexIdCollectingContentHandler extends DefaultHandler {
+
+  private final Set<String> ignorableElementNames;
+  private final IdVersionStore ids;
+  private final IdVersionStore refs;
+  private final ElementPathTable elementPathTable = new ElementPathTable();
+  private int[] openElementPaths = new int[32];
+  private int depth;
+  private Locator locator;
+
+  /**
+   * @param filename the NeTEx file name.
+   * @param ignorableElementNames set of NeTEx elements whose ids are not collected.
+   */
+  public NetexIdCollectingContentHandler(
+    String filename,
+    Set<String> ignorableElementNames
+  ) {
+    this.ignorableElementNames = ignorableElementNames;
+    this.ids = new IdVersionStore(filename, elementPathTable);
+    this.refs = new IdVersionStore(filename, elementPathTable);
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    this.locator = locator;
+  }
+
+  @Override
+  public void startElement(
+    String uri,
+    String localName,
+    String qName,
+    Attributes attributes
+  ) {
+    int parentPath = depth == 0
+      ? ElementPathTable.DOCUMENT_PATH
+      : openElementPaths[depth - 1];
+    if (NetexXMLParser.NETEX_NAMESPACE.equals(uri)) {
+      String id = attributes.getValue("", "id");
+      if (id != null && !ignorableElementNames.contains(localName)) {
+        add(ids, id, localName, parentPath, attributes);
+      }
+      String ref = attributes.getValue("", "ref");
+      if (ref != null) {
+        add(refs, ref, localName, parentPath, attributes);
+      }
+    }
+    if (depth == openElementPaths.length) {
+      openElementPaths = Arrays.copyOf(openElementPaths, depth * 2);
+    }
+    openElementPaths[depth] = elementPathTable.childPath(parentPath, localName);
+    depth++;
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) {
+    depth--;
+  }
+
+  @Override
+  public void endDocument() {
+    elementPathTable.freeze();
+  }
+
+  /**
+   * Return the NeTEx ids declared in the document, in document order.
+   */
+  public IdVersionStore getIds() {
+    return ids;
+  }
+
+  /**
+   * Return the NeTEx references declared in the document, in document order.
+   */
+  public IdVersionStore getRefs() {
+    return refs;
+  }
+
+  private void add(
+    IdVersionStore store,
+    String id,
+    String elementName,
+    int parentPath,
+    Attributes attributes
+  ) {
+    store.add(
+      id,
+      attributes.getValue("", "version"),
+      elementName,
+      parentPath,
+      locator != null ? locator.getLineNumber() : -1,
+      locator != null ? locator.getColumnNumber() : -1
+    );
+  }
+}
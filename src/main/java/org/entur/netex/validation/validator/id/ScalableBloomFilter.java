@@ -0,0 +1,116 @@
+package org.entur.netex.validation.validator.id;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Probabilistic set of 64-bit hashes, used as a pre-filter in front of an exact set.
+ * {@link #mightContain(long)} never returns false for a hash that was added, and returns true for a hash that was not
+ * added with a probability bounded by the configured false positive probability.
+ * The filter grows as hashes are added: when a stage reaches its expected number of insertions, a new stage with
+ * twice the capacity and a tighter false positive probability is added, so that the overall false positive
+ * probability stays within the configured bound.
+ * The k bit positions are derived from the 64-bit hash by double hashing, the hash is not recomputed.
+ * Not thread-safe.
+ */
+final class ScalableBloomFilter {
+
+  private static final double TIGHTENING_RATIO = 0.5;
+
+  private final List<Stage> stages = new ArrayList<>();
+  private int nextCapacity;
+  private double nextFalsePositiveProbability;
+
+  /**
+   * @param initialCapacity the expected number of insertions in the first stage.
+   * @param falsePositiveProbability the maximum probability of false positives, between 0 and 1 exclusive.
+   */
+  ScalableBloomFilter(int initialCapacity, double falsePositiveProbability) {
+    if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException(
+        "Invalid false positive probability " + falsePositiveProbability
+      );
+    }
+    this.nextCapacity = Math.max(1, initialCapacity);
+    // the sum of the false positive probabilities of the stages is bounded by the configured probability
+    this.nextFalsePositiveProbability =
+      falsePositiveProbability * (1 - TIGHTENING_RATIO);
+    addStage();
+  }
+
+  boolean mightContain(long hash) {
+    for (Stage stage : stages) {
+      if (stage.mightContain(hash)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void put(long hash) {
+    Stage stage = stages.get(stages.size() - 1);
+    if (stage.count >= stage.capacity) {
+      stage = addStage();
+    }
+    stage.put(hash);
+  }
+
+  /**
+   * Return the memory used by the filter, in bytes.
+   */
+  long sizeInBytes() {
+    return stages
+      .stream()
+      .mapToLong(stage -> (long) stage.bits.length * Long.BYTES)
+      .sum();
+  }
+
+  private Stage addStage() {
+    Stage stage = new Stage(nextCapacity, nextFalsePositiveProbability);
+    stages.add(stage);
+    nextCapacity = (int) Math.min(Integer.MAX_VALUE, 2L * nextCapacity);
+    nextFalsePositiveProbability *= TIGHTENING_RATIO;
+    return stage;
+  }
+
+  private static final class Stage {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int capacity;
+    private int count;
+
+    private Stage(int capacity, double falsePositiveProbability) {
+      double ln2 = Math.log(2);
+      long optimalBitCount = (long) Math.ceil(
+        -capacity * Math.log(falsePositiveProbability) / (ln2 * ln2)
+      );
+      this.bits = new long[(int) Math.max(1, (optimalBitCount + 63) / 64)];
+      this.bitCount = (long) bits.length * 64;
+      this.hashCount =
+        Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+      this.capacity = capacity;
+    }
+
+    private boolean mightContain(long hash) {
+      long h2 = Long.rotateLeft(hash, 32) | 1;
+      for (int i = 0; i < hashCount; i++) {
+        long bit = Long.remainderUnsigned(hash + i * h2, bitCount);
+        if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void put(long hash) {
+      long h2 = Long.rotateLeft(hash, 32) | 1;
+      for (int i = 0; i < hashCount; i++) {
+        long bit = Long.remainderUnsigned(hash + i * h2, bitCount);
+        bits[(int) (bit >>> 6)] |= 1L << bit;
+      }
+      count++;
+    }
+  }
+}
@@ -7,6 +7,8 @@ import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.entur.netex.validation.exception.NetexValidationException;
+import org.entur.netex.validation.validator.ReportEvictionPolicy;
+import org.entur.netex.validation.validator.ReportStateTracker;
 import org.entur.netex.validation.validator.model.FromToScheduledStopPointId;
 import org.entur.netex.validation.validator.model.QuayId;
 import org.entur.netex.validation.validator.model.ScheduledStopPointId;
@@ -27,32 +29,65 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
   private final Map<String, Map<String, String>> scheduledStopPointAndQuayIdCache;
   private final Map<String, Map<String, String>> serviceLinksAndFromToScheduledStopPointIdCache;
   private final Map<String, Map<String, String>> scheduledStopPointToFlexibleStopPlaceCache;
+  private final ReportStateTracker reportStateTracker;
 
   /**
    * The default constructor initializes synchronized data structures for storing the common data.
+   * The data of reports is never evicted: it is removed only by {@link #cleanUp(String)}.
    */
   public DefaultCommonDataRepository() {
+    this(ReportEvictionPolicy.NONE);
+  }
+
+  /**
+   * Create a common data repository that stores the common data in synchronized data structures.
+   * @param reportEvictionPolicy the policy for evicting the data of reports that are not cleaned up.
+   * The weight of a report is the number of entries it holds.
+   */
+  public DefaultCommonDataRepository(ReportEvictionPolicy reportEvictionPolicy) {
     this(
       Collections.synchronizedMap(new HashMap<>()),
       Collections.synchronizedMap(new HashMap<>()),
-      Collections.synchronizedMap(new HashMap<>())
+      Collections.synchronizedMap(new HashMap<>()),
+      reportEvictionPolicy
     );
   }
 
   /**
    * Create a common data repository that uses arbitrary data structures for storing common data.
    * This can be used for implementing distributed storage in a memory store.
+   * The data is not evicted: the memory store is expected to expire it.
    */
   public DefaultCommonDataRepository(
     Map<String, Map<String, String>> scheduledStopPointAndQuayIdCache,
     Map<String, Map<String, String>> serviceLinksAndFromToScheduledStopPointIdCache,
     Map<String, Map<String, String>> scheduledStopPointToFlexibleStopPlaceCache
+  ) {
+    this(
+      scheduledStopPointAndQuayIdCache,
+      serviceLinksAndFromToScheduledStopPointIdCache,
+      scheduledStopPointToFlexibleStopPlaceCache,
+      ReportEvictionPolicy.NONE
+    );
+  }
+
+  /**
+   * Create a common data repository that uses arbitrary data structures for storing common data,
+   * with the given eviction policy for the data of reports that are not cleaned up.
+   */
+  public DefaultCommonDataRepository(
+    Map<String, Map<String, String>> scheduledStopPointAndQuayIdCache,
+    Map<String, Map<String, String>> serviceLinksAndFromToScheduledStopPointIdCache,
+    Map<String, Map<String, String>> scheduledStopPointToFlexibleStopPlaceCache,
+    ReportEvictionPolicy reportEvictionPolicy
   ) {
     this.scheduledStopPointAndQuayIdCache = scheduledStopPointAndQuayIdCache;
     this.serviceLinksAndFromToScheduledStopPointIdCache =
       serviceLinksAndFromToScheduledStopPointIdCache;
     this.scheduledStopPointToFlexibleStopPlaceCache =
       scheduledStopPointToFlexibleStopPlaceCache;
+    this.reportStateTracker =
+      new ReportStateTracker(reportEvictionPolicy, this::removeReportData);
   }
 
   @Override
@@ -60,6 +95,7 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
     String validationReportId,
     String stopPointRef
   ) {
+    reportStateTracker.touch(validationReportId);
     Map<String, String> stopPlaceRefToFlexibleStopPlaceMap =
       scheduledStopPointToFlexibleStopPlaceCache.get(validationReportId);
     if (stopPlaceRefToFlexibleStopPlaceMap == null) {
@@ -73,6 +109,7 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
 
   @Override
   public boolean hasSharedScheduledStopPoints(String validationReportId) {
+    reportStateTracker.touch(validationReportId);
     Map<String, String> idsForReport = scheduledStopPointAndQuayIdCache.get(
       validationReportId
     );
@@ -84,6 +121,7 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
     ScheduledStopPointId scheduledStopPointId,
     String validationReportId
   ) {
+    reportStateTracker.touch(validationReportId);
     Map<String, String> idsForReport = scheduledStopPointAndQuayIdCache.get(
       validationReportId
     );
@@ -100,6 +138,7 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
     ServiceLinkId serviceLinkId,
     String validationReportId
   ) {
+    reportStateTracker.touch(validationReportId);
     Map<String, String> idsForReport = serviceLinksAndFromToScheduledStopPointIdCache.get(
       validationReportId
     );
@@ -114,11 +153,34 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
 
   @Override
   public void collect(String validationReportId, NetexEntitiesIndex netexEntitiesIndex) {
+    // the report is not evicted while its data is being merged
+    reportStateTracker.beginWrite(validationReportId);
+    long addedEntries = 0;
+    try {
+      addedEntries = mergeCommonData(validationReportId, netexEntitiesIndex);
+    } finally {
+      reportStateTracker.endWrite(validationReportId, addedEntries);
+    }
+  }
+
+  /**
+   * Merge the common data of the file into the data of the report.
+   * @return the number of entries collected from the file.
+   */
+  private long mergeCommonData(
+    String validationReportId,
+    NetexEntitiesIndex netexEntitiesIndex
+  ) {
+    Map<String, String> quayIdsPerScheduledStopPoints = getQuayIdsPerScheduledStopPoints(
+      netexEntitiesIndex
+    );
+    Map<String, String> flexibleStopPlaceIdsPerStopPointRef =
+      netexEntitiesIndex.getFlexibleStopPlaceIdByStopPointRefIndex();
     // Merging with the existing map, for handing the case where there are
     // multiple common files in the dataset.
     scheduledStopPointAndQuayIdCache.merge(
       validationReportId,
-      getQuayIdsPerScheduledStopPoints(netexEntitiesIndex),
+      quayIdsPerScheduledStopPoints,
       (existingMap, newMap) -> {
         existingMap.putAll(newMap);
         return existingMap;
@@ -127,7 +189,7 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
 
     scheduledStopPointToFlexibleStopPlaceCache.merge(
       validationReportId,
-      netexEntitiesIndex.getFlexibleStopPlaceIdByStopPointRefIndex(),
+      flexibleStopPlaceIdsPerStopPointRef,
       (existingMap, newMap) -> {
         existingMap.putAll(newMap);
         return existingMap;
@@ -154,12 +216,31 @@ public class DefaultCommonDataRepository implements CommonDataRepositoryLoader {
       scheduledStopPointAndQuayIdCache.get(validationReportId).size(),
       validationReportId
     );
+
+    return (
+      (long) quayIdsPerScheduledStopPoints.size() +
+      flexibleStopPlaceIdsPerStopPointRef.size() +
+      scheduledStopPointIdsPerServiceLinkId.size()
+    );
   }
 
   @Override
   public void cleanUp(String validationReportId) {
+    reportStateTracker.remove(validationReportId);
+    removeReportData(validationReportId);
+  }
+
+  /**
+   * Return the tracker of the reports kept in the repository, that exposes eviction metrics.
+   */
+  public ReportStateTracker getReportStateTracker() {
+    return reportStateTracker;
+  }
+
+  private void removeReportData(String validationReportId) {
     scheduledStopPointAndQuayIdCache.remove(validationReportId);
     serviceLinksAndFromToScheduledStopPointIdCache.remove(validationReportId);
+    scheduledStopPointToFlexibleStopPlaceCache.remove(validationReportId);
   }
 
   private Map<String, String> getQuayIdsPerScheduledStopPoints(
@@ -1,5 +1,6 @@
 package org.entur.netex.validation.validator.jaxb;
 
+import jakarta.xml.bind.JAXBElement;
 import java.util.*;
 import java.util.function.Function;
 import javax.annotation.Nullable;
@@ -15,6 +16,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Validation context for JAXB-based validators.
+ * The context is read-only once created: the {@link NetexEntitiesIndex} is fully populated before the
+ * JAXB validators are run and must not be modified by the validators.
+ * The context and the underlying NetexEntitiesIndex are therefore safe for concurrent reads,
+ * and the JAXB validators can be run in parallel against the same context.
+ * The common data repository and the stop place repository must support concurrent reads as well.
+ * Derived lookups that chain several index or repository lookups are memoized for the lifetime of the context,
+ * see {@link #getLookupStatistics()}.
+ * Secondary indexes that join entities by reference are built on first use, in a single pass over the entities.
  */
 public class JAXBValidationContext implements ValidationContext {
 
@@ -30,6 +39,44 @@ public class JAXBValidationContext implements ValidationContext {
   private final String fileName;
   private final Map<String, IdVersion> localIdsMap;
 
+  private final MemoizedLookup<ScheduledStopPointId, QuayId> quayIdLookup =
+    new MemoizedLookup<>();
+  private final MemoizedLookup<ScheduledStopPointId, QuayCoordinates> coordinatesLookup =
+    new MemoizedLookup<>();
+  private final MemoizedLookup<ScheduledStopPointId, String> stopPointNameLookup =
+    new MemoizedLookup<>();
+  private final MemoizedLookup<String, TransportModeAndSubMode> serviceJourneyModeLookup =
+    new MemoizedLookup<>();
+  private final MemoizedLookup<String, TransportModeAndSubMode> journeyPatternModeLookup =
+    new MemoizedLookup<>();
+
+  private final SecondaryIndex<
+    ServiceAlterationEnumeration,
+    DatedServiceJourney
+  > dsjsByServiceAlteration = new SecondaryIndex<>(
+    this::datedServiceJourneys,
+    dsj -> Collections.singletonList(dsj.getServiceAlteration())
+  );
+  private final SecondaryIndex<String, DatedServiceJourney> dsjsByServiceJourneyRef =
+    new SecondaryIndex<>(
+      this::datedServiceJourneys,
+      JAXBValidationContext::journeyRefs
+    );
+  private final SecondaryIndex<String, DatedServiceJourney> dsjsByReplacedJourneyRef =
+    new SecondaryIndex<>(
+      this::datedServiceJourneys,
+      JAXBValidationContext::replacedJourneyRefs
+    );
+  private final SecondaryIndex<String, ServiceJourney> journeysByJourneyPatternRef =
+    new SecondaryIndex<>(
+      this::serviceJourneys,
+      serviceJourney -> ref(serviceJourney.getJourneyPatternRef())
+    );
+  private final SecondaryIndex<String, Route> routesByLineRef = new SecondaryIndex<>(
+    () -> this.netexEntitiesIndex.getRouteIndex().getAll(),
+    route -> ref(route.getLineRef())
+  );
+
   public JAXBValidationContext(
     String validationReportId,
     NetexEntitiesIndex netexEntitiesIndex,
@@ -98,6 +145,15 @@ public class JAXBValidationContext implements ValidationContext {
     if (scheduledStopPointId == null) {
       return null;
     }
+    return quayIdLookup.get(
+      scheduledStopPointId,
+      this::lookupQuayIdForScheduledStopPoint
+    );
+  }
+
+  private QuayId lookupQuayIdForScheduledStopPoint(
+    ScheduledStopPointId scheduledStopPointId
+  ) {
     return commonDataRepository.hasSharedScheduledStopPoints(validationReportId)
       ? commonDataRepository.quayIdForScheduledStopPoint(
         scheduledStopPointId,
@@ -130,6 +186,18 @@ public class JAXBValidationContext implements ValidationContext {
   @Nullable
   public QuayCoordinates coordinatesForScheduledStopPoint(
     ScheduledStopPointId scheduledStopPointId
+  ) {
+    if (scheduledStopPointId == null) {
+      return null;
+    }
+    return coordinatesLookup.get(
+      scheduledStopPointId,
+      this::lookupCoordinatesForScheduledStopPoint
+    );
+  }
+
+  private QuayCoordinates lookupCoordinatesForScheduledStopPoint(
+    ScheduledStopPointId scheduledStopPointId
   ) {
     QuayId quayId = quayIdForScheduledStopPoint(scheduledStopPointId);
     return quayId == null ? null : stopPlaceRepository.getCoordinatesForQuayId(quayId);
@@ -165,15 +233,19 @@ public class JAXBValidationContext implements ValidationContext {
    */
   @Nullable
   public String stopPointName(ScheduledStopPointId scheduledStopPointId) {
+    if (scheduledStopPointId == null) {
+      return null;
+    }
+    return stopPointNameLookup.get(scheduledStopPointId, this::lookupStopPointName);
+  }
+
+  private String lookupStopPointName(ScheduledStopPointId scheduledStopPointId) {
     QuayId quayId = quayIdForScheduledStopPoint(scheduledStopPointId);
     if (quayId == null) {
       LOGGER.debug(
         "Stop place name cannot be found due to missing stop point assignment."
       );
-      return Optional
-        .ofNullable(scheduledStopPointId)
-        .map(ScheduledStopPointId::id)
-        .orElse(null);
+      return scheduledStopPointId.id();
     }
     return Optional
       .ofNullable(stopPlaceRepository.getStopPlaceNameForQuayId(quayId))
@@ -226,10 +298,26 @@ public class JAXBValidationContext implements ValidationContext {
   public Collection<DatedServiceJourney> datedServiceJourneysByServiceAlteration(
     ServiceAlterationEnumeration serviceAlteration
   ) {
-    return datedServiceJourneys()
-      .stream()
-      .filter(dsj -> dsj.getServiceAlteration() == serviceAlteration)
-      .toList();
+    return dsjsByServiceAlteration.get(serviceAlteration);
+  }
+
+  /**
+   * Return the DatedServiceJourneys that refer to the ServiceJourney identified by the given NeTEx id.
+   */
+  public Collection<DatedServiceJourney> datedServiceJourneysByServiceJourneyRef(
+    String serviceJourneyId
+  ) {
+    return dsjsByServiceJourneyRef.get(serviceJourneyId);
+  }
+
+  /**
+   * Return the DatedServiceJourneys that replace the DatedServiceJourney identified by the given NeTEx id.
+   * Following this relation recursively gives the chain of replacements of a DatedServiceJourney.
+   */
+  public Collection<DatedServiceJourney> replacingDatedServiceJourneys(
+    String datedServiceJourneyId
+  ) {
+    return dsjsByReplacedJourneyRef.get(datedServiceJourneyId);
   }
 
   /**
@@ -260,6 +348,22 @@ public class JAXBValidationContext implements ValidationContext {
     );
   }
 
+  /**
+   * Return the ServiceJourneys that refer to the JourneyPattern identified by the given NeTEx id.
+   */
+  public Collection<ServiceJourney> serviceJourneysByJourneyPatternRef(
+    String journeyPatternId
+  ) {
+    return journeysByJourneyPatternRef.get(journeyPatternId);
+  }
+
+  /**
+   * Return the Routes that refer to the Line or FlexibleLine identified by the given NeTEx id.
+   */
+  public Collection<Route> routesByLineRef(String lineId) {
+    return routesByLineRef.get(lineId);
+  }
+
   /**
    * Returns the TimetabledPassingTimes for the given ServiceJourney.
    * Missing TimetabledPassingTimes is validated with SERVICE_JOURNEY_3
@@ -332,6 +436,18 @@ public class JAXBValidationContext implements ValidationContext {
    */
   @Nullable
   public TransportModeAndSubMode transportModeAndSubMode(ServiceJourney serviceJourney) {
+    if (serviceJourney.getId() == null) {
+      return lookupTransportModeAndSubMode(serviceJourney);
+    }
+    return serviceJourneyModeLookup.get(
+      serviceJourney.getId(),
+      id -> lookupTransportModeAndSubMode(serviceJourney)
+    );
+  }
+
+  private TransportModeAndSubMode lookupTransportModeAndSubMode(
+    ServiceJourney serviceJourney
+  ) {
     AllVehicleModesOfTransportEnumeration transportMode =
       serviceJourney.getTransportMode();
 
@@ -350,6 +466,18 @@ public class JAXBValidationContext implements ValidationContext {
    */
   @Nullable
   public TransportModeAndSubMode transportModeAndSubMode(JourneyPattern journeyPattern) {
+    if (journeyPattern.getId() == null) {
+      return lookupTransportModeAndSubMode(journeyPattern);
+    }
+    return journeyPatternModeLookup.get(
+      journeyPattern.getId(),
+      id -> lookupTransportModeAndSubMode(journeyPattern)
+    );
+  }
+
+  private TransportModeAndSubMode lookupTransportModeAndSubMode(
+    JourneyPattern journeyPattern
+  ) {
     Route route = netexEntitiesIndex
       .getRouteIndex()
       .get(journeyPattern.getRouteRef().getRef());
@@ -397,4 +525,61 @@ public class JAXBValidationContext implements ValidationContext {
 
     return flexibleStopPlaceRefFromNetexEntities;
   }
+
+  /**
+   * Return the usage statistics of the memoized lookups, by lookup method name.
+   */
+  public Map<String, LookupStatistics> getLookupStatistics() {
+    Map<String, LookupStatistics> lookupStatistics = new LinkedHashMap<>();
+    lookupStatistics.put("quayIdForScheduledStopPoint", quayIdLookup.statistics());
+    lookupStatistics.put(
+      "coordinatesForScheduledStopPoint",
+      coordinatesLookup.statistics()
+    );
+    lookupStatistics.put("stopPointName", stopPointNameLookup.statistics());
+    lookupStatistics.put(
+      "transportModeAndSubMode(ServiceJourney)",
+      serviceJourneyModeLookup.statistics()
+    );
+    lookupStatistics.put(
+      "transportModeAndSubMode(JourneyPattern)",
+      journeyPatternModeLookup.statistics()
+    );
+    return lookupStatistics;
+  }
+
+  private static Collection<String> journeyRefs(DatedServiceJourney datedServiceJourney) {
+    return datedServiceJourney
+      .getJourneyRef()
+      .stream()
+      .map(JAXBElement::getValue)
+      .filter(Objects::nonNull)
+      .map(VersionOfObjectRefStructure::getRef)
+      .toList();
+  }
+
+  private static Collection<String> replacedJourneyRefs(
+    DatedServiceJourney datedServiceJourney
+  ) {
+    if (datedServiceJourney.getReplacedJourneys() == null) {
+      return List.of();
+    }
+    return datedServiceJourney
+      .getReplacedJourneys()
+      .getDatedVehicleJourneyRefOrNormalDatedVehicleJourneyRef()
+      .stream()
+      .map(JAXBElement::getValue)
+      .filter(Objects::nonNull)
+      .map(VersionOfObjectRefStructure::getRef)
+      .toList();
+  }
+
+  private static Collection<String> ref(
+    JAXBElement<? extends VersionOfObjectRefStructure> ref
+  ) {
+    if (ref == null || ref.getValue() == null) {
+      return List.of();
+    }
+    return List.of(ref.getValue().getRef());
+  }
 }
@@ -1,8 +1,19 @@
 package org.entur.netex.validation.validator.jaxb;
 
+import java.util.Set;
 import org.entur.netex.validation.validator.NetexValidator;
 
 /**
  * Validator using a JAXB representation of the NeTEx data.
  */
-public interface JAXBValidator extends NetexValidator<JAXBValidationContext> {}
+public interface JAXBValidator extends NetexValidator<JAXBValidationContext> {
+  /**
+   * Return the elements among {@link SkippableNetexElements#ALL} that this validator reads,
+   * directly or through the validation context and the stop place repository.
+   * The elements that no validator and no collector reads are not unmarshalled.
+   * By default, the validator reads all of them.
+   */
+  default Set<String> getRequiredNetexElements() {
+    return SkippableNetexElements.ALL;
+  }
+}
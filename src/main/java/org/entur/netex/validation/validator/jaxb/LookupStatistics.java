@@ -0,0 +1,17 @@
+package org.entur.netex.validation.validator.jaxb;
+
+/**
+ * Usage statistics of a memoized lookup of the {@link JAXBValidationContext}.
+ *
+ * @param hits the number of lookups answered from the cache.
+ * @param misses the number of lookups computed and added to the cache.
+ */
+public record LookupStatistics(long hits, long misses) {
+  /**
+   * Return the ratio of lookups answered from the cache, or 0 if there was no lookup.
+   */
+  public double hitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+}
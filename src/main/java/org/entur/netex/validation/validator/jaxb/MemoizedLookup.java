@@ -0,0 +1,40 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache of a derived lookup, with hit and miss counters.
+ * Null results are cached as well.
+ * The lookup is computed outside any lock: concurrent readers may compute the same value twice,
+ * the first stored value is kept.
+ * This class is thread-safe.
+ */
+final class MemoizedLookup<K, V> {
+
+  private final Map<K, Optional<V>> values = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Return the cached value for the key, or compute it with the given lookup.
+   */
+  V get(K key, Function<K, V> lookup) {
+    Optional<V> value = values.get(key);
+    if (value != null) {
+      hits.increment();
+      return value.orElse(null);
+    }
+    misses.increment();
+    Optional<V> computedValue = Optional.ofNullable(lookup.apply(key));
+    Optional<V> previousValue = values.putIfAbsent(key, computedValue);
+    return (previousValue != null ? previousValue : computedValue).orElse(null);
+  }
+
+  LookupStatistics statistics() {
+    return new LookupStatistics(hits.sum(), misses.sum());
+  }
+}
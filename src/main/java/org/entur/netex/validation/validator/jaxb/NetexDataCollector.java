@@ -1,5 +1,7 @@
 package org.entur.netex.validation.validator.jaxb;
 
+import java.util.Set;
+
 /**
  * Collect NeTEx data while validating a NeTEx file.
  * This is used for validation rules that require data across several files.
@@ -14,6 +16,15 @@ public abstract class NetexDataCollector {
     }
   }
 
+  /**
+   * Return the elements among {@link SkippableNetexElements#ALL} that this collector reads.
+   * The elements that no validator and no collector reads are not unmarshalled.
+   * By default, the collector reads all of them.
+   */
+  public Set<String> getRequiredNetexElements() {
+    return SkippableNetexElements.ALL;
+  }
+
   protected abstract void collectDataFromLineFile(
     JAXBValidationContext validationContext
   );
@@ -0,0 +1,37 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+
+/**
+ * The JAXB context of the NeTEx model, shared by all the unmarshallers that build NeTEx entities indexes.
+ * The context is expensive to create: it is created on first use.
+ */
+final class NetexJAXBContext {
+
+  private static final JAXBContext JAXB_CONTEXT = createJAXBContext();
+
+  private NetexJAXBContext() {}
+
+  /**
+   * Create a new unmarshaller. Unmarshallers are not thread-safe, but they can be reused.
+   */
+  static Unmarshaller createUnmarshaller() {
+    try {
+      return JAXB_CONTEXT.createUnmarshaller();
+    } catch (JAXBException e) {
+      throw new NetexValidationException("Could not create a JAXB unmarshaller", e);
+    }
+  }
+
+  private static JAXBContext createJAXBContext() {
+    try {
+      return JAXBContext.newInstance(PublicationDeliveryStructure.class);
+    } catch (JAXBException e) {
+      throw new NetexValidationException("Could not create the NeTEx JAXB context", e);
+    }
+  }
+}
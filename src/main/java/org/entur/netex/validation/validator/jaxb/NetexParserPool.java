@@ -0,0 +1,219 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.loader.parser.NetexDocumentParser;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+
+/**
+ * A bounded pool of reusable JAXB unmarshallers, used for building the {@link NetexEntitiesIndex}
+ * of each validated file.
+ * Creating an unmarshaller and a StAX factory for every document is a significant cost in datasets made of many
+ * small files: the pool reuses them across files.
+ * The document is loaded into the index by the NeTEx parser library, as with {@link org.entur.netex.NetexParser}.
+ * An unmarshaller is used by one thread at a time, the pool itself is thread-safe.
+ */
+public final class NetexParserPool {
+
+  public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+  private final BlockingQueue<PooledUnmarshaller> unmarshallers;
+  private final int poolSize;
+  private final AtomicLong poolHits = new AtomicLong();
+  private final AtomicLong poolMisses = new AtomicLong();
+
+  public NetexParserPool() {
+    this(DEFAULT_POOL_SIZE);
+  }
+
+  /**
+   * @param poolSize the maximum number of idle unmarshallers kept in the pool.
+   *                 A pool size of 0 disables pooling.
+   */
+  public NetexParserPool(int poolSize) {
+    if (poolSize < 0) {
+      throw new IllegalArgumentException("The parser pool size must not be negative");
+    }
+    this.poolSize = poolSize;
+    // the capacity must be positive, an empty pool is never filled
+    this.unmarshallers = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+  }
+
+  /**
+   * Parse a NeTEx document into a new NeTEx entities index, with an unmarshaller borrowed from the pool.
+   * The input stream is not closed.
+   */
+  public NetexEntitiesIndex parse(InputStream inputStream) {
+    return parse(inputStream, Set.of());
+  }
+
+  /**
+   * Parse a NeTEx document into a new NeTEx entities index, skipping the given NeTEx elements,
+   * with an unmarshaller borrowed from the pool.
+   * The input stream is not closed.
+   * @param elementsToSkip the local names of the NeTEx elements that are not unmarshalled.
+   */
+  public NetexEntitiesIndex parse(InputStream inputStream, Set<String> elementsToSkip) {
+    PooledUnmarshaller unmarshaller = unmarshallers.poll();
+    if (unmarshaller != null) {
+      poolHits.incrementAndGet();
+    } else {
+      poolMisses.incrementAndGet();
+      unmarshaller = new PooledUnmarshaller();
+    }
+    PublicationDeliveryStructure publicationDelivery = unmarshaller.unmarshal(
+      inputStream,
+      elementsToSkip
+    );
+    // unmarshallers that failed are discarded, as well as unmarshallers returned to a full pool
+    if (poolSize > 0) {
+      unmarshallers.offer(unmarshaller);
+    }
+    NetexEntitiesIndex netexEntitiesIndex = new NetexEntitiesIndexImpl();
+    NetexDocumentParser.parseAndPopulateIndex(netexEntitiesIndex, publicationDelivery);
+    return netexEntitiesIndex;
+  }
+
+  /**
+   * @return the number of unmarshallers reused from the pool.
+   */
+  public long getPoolHits() {
+    return poolHits.get();
+  }
+
+  /**
+   * @return the number of unmarshallers created because the pool was empty.
+   */
+  public long getPoolMisses() {
+    return poolMisses.get();
+  }
+
+  /**
+   * @return the number of idle unmarshallers currently in the pool.
+   */
+  public int getIdleUnmarshallers() {
+    if (poolSize == 0) {
+      return 0;
+    }
+    return unmarshallers.size();
+  }
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * A JAXB unmarshaller with its StAX factory. Neither of them is thread-safe.
+   */
+  private static final class PooledUnmarshaller {
+
+    private final Unmarshaller unmarshaller = NetexJAXBContext.createUnmarshaller();
+    private final XMLInputFactory xmlInputFactory =
+      NetexXMLParser.getSecureXmlInputFactory();
+
+    private PublicationDeliveryStructure unmarshal(
+      InputStream inputStream,
+      Set<String> elementsToSkip
+    ) {
+      try {
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(
+          inputStream
+        );
+        if (!elementsToSkip.isEmpty()) {
+          xmlStreamReader = new SkippingXMLStreamReader(xmlStreamReader, elementsToSkip);
+        }
+        try {
+          return unmarshaller
+            .unmarshal(xmlStreamReader, PublicationDeliveryStructure.class)
+            .getValue();
+        } finally {
+          xmlStreamReader.close();
+        }
+      } catch (JAXBException | XMLStreamException e) {
+        throw new NetexValidationException("Error while parsing NeTEx document", e);
+      }
+    }
+  }
+
+  /**
+   * Stream reader that leaves out the NeTEx elements to skip, together with their descendants.
+   */
+  private static final class SkippingXMLStreamReader extends StreamReaderDelegate {
+
+    private final Set<String> elementsToSkip;
+
+    private SkippingXMLStreamReader(
+      XMLStreamReader xmlStreamReader,
+      Set<String> elementsToSkip
+    ) {
+      super(xmlStreamReader);
+      this.elementsToSkip = elementsToSkip;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+      int event = super.next();
+      while (event == XMLStreamConstants.START_ELEMENT && isSkipped()) {
+        skipElement();
+        event = super.next();
+      }
+      return event;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+      int event = next();
+      while (
+        (event == XMLStreamConstants.CHARACTERS && isWhiteSpace()) ||
+        event == XMLStreamConstants.SPACE ||
+        event == XMLStreamConstants.COMMENT ||
+        event == XMLStreamConstants.PROCESSING_INSTRUCTION
+      ) {
+        event = next();
+      }
+      if (
+        event != XMLStreamConstants.START_ELEMENT &&
+        event != XMLStreamConstants.END_ELEMENT
+      ) {
+        throw new XMLStreamException("Expected a start or end tag", getLocation());
+      }
+      return event;
+    }
+
+    private boolean isSkipped() {
+      return (
+        elementsToSkip.contains(getLocalName()) &&
+        NetexXMLParser.NETEX_NAMESPACE.equals(getNamespaceURI())
+      );
+    }
+
+    /**
+     * Move to the end tag of the current element.
+     */
+    private void skipElement() throws XMLStreamException {
+      int depth = 1;
+      while (depth > 0) {
+        int event = super.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Index of a collection of NeTEx entities by a derived key, for instance the id of a referenced entity.
+ * The index is built on first use, in a single pass over the entities, and is then immutable.
+ * An entity can be indexed under several keys. The null key is allowed.
+ * Entities are returned in the iteration order of the collection.
+ * This class is thread-safe.
+ */
+final class SecondaryIndex<K, V> {
+
+  private final Supplier<Collection<V>> entities;
+  private final Function<V, Collection<K>> keys;
+  private volatile Map<K, List<V>> index;
+
+  /**
+   * @param entities the entities to index.
+   * @param keys the keys under which an entity is indexed.
+   */
+  SecondaryIndex(Supplier<Collection<V>> entities, Function<V, Collection<K>> keys) {
+    this.entities = entities;
+    this.keys = keys;
+  }
+
+  /**
+   * Return the entities indexed under the given key.
+   */
+  List<V> get(K key) {
+    return getIndex().getOrDefault(key, List.of());
+  }
+
+  private Map<K, List<V>> getIndex() {
+    Map<K, List<V>> currentIndex = index;
+    if (currentIndex == null) {
+      synchronized (this) {
+        currentIndex = index;
+        if (currentIndex == null) {
+          currentIndex = build();
+          index = currentIndex;
+        }
+      }
+    }
+    return currentIndex;
+  }
+
+  private Map<K, List<V>> build() {
+    Map<K, List<V>> entitiesByKey = new HashMap<>();
+    for (V entity : entities.get()) {
+      for (K key : keys.apply(entity)) {
+        entitiesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(entity);
+      }
+    }
+    // the map is not modified after publication, Map.copyOf would reject the null key
+    entitiesByKey.replaceAll((key, values) -> List.copyOf(values));
+    return entitiesByKey;
+  }
+}
@@ -0,0 +1,69 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * NeTEx elements that can be left out of the JAXB representation of a document
+ * when no JAXB validator and no NeTEx data collector reads them.
+ * Validators and collectors declare the elements they read, by default all of them.
+ * Skipped elements are not unmarshalled and their entities are absent from the {@link org.entur.netex.index.api.NetexEntitiesIndex}.
+ */
+public final class SkippableNetexElements {
+
+  /**
+   * Stop places, quays, flexible stop places and topographic places.
+   * The SiteFrame is read by {@link SiteFrameStopPlaceRepository}.
+   */
+  public static final String SITE_FRAME = "SiteFrame";
+
+  /**
+   * Authorities, operators and other organisations, as well as data sources and vehicle types.
+   */
+  public static final String RESOURCE_FRAME = "ResourceFrame";
+
+  /**
+   * Day types, operating periods and their assignments.
+   */
+  public static final String SERVICE_CALENDAR_FRAME = "ServiceCalendarFrame";
+
+  /**
+   * Blocks and vehicle services.
+   */
+  public static final String VEHICLE_SCHEDULE_FRAME = "VehicleScheduleFrame";
+
+  /**
+   * Notices.
+   */
+  public static final String NOTICES = "notices";
+
+  /**
+   * Notice assignments, in frames as well as in service journeys and journey patterns.
+   */
+  public static final String NOTICE_ASSIGNMENTS = "noticeAssignments";
+
+  /**
+   * All the elements that can be skipped.
+   */
+  public static final Set<String> ALL = Set.of(
+    SITE_FRAME,
+    RESOURCE_FRAME,
+    SERVICE_CALENDAR_FRAME,
+    VEHICLE_SCHEDULE_FRAME,
+    NOTICES,
+    NOTICE_ASSIGNMENTS
+  );
+
+  private SkippableNetexElements() {}
+
+  /**
+   * Return the skippable elements that are not required by any of the given requirements.
+   * @param requiredElements the elements required by each validator or collector.
+   */
+  public static Set<String> elementsToSkip(Collection<Set<String>> requiredElements) {
+    Set<String> elementsToSkip = new HashSet<>(ALL);
+    requiredElements.forEach(elementsToSkip::removeAll);
+    return Set.copyOf(elementsToSkip);
+  }
+}
@@ -0,0 +1,321 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.JAXBIntrospector;
+import jakarta.xml.bind.UnmarshallerHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+import net.sf.saxon.om.AttributeInfo;
+import net.sf.saxon.om.NamespaceBinding;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmNodeKind;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.loader.parser.NetexDocumentParser;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.rutebanken.netex.model.Common_VersionFrameStructure;
+import org.rutebanken.netex.model.CompositeFrame;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Build the {@link NetexEntitiesIndex} of a document from its XML nodes graph instead of parsing the document again.
+ * The nodes are replayed as SAX events into a JAXB unmarshaller, which avoids a second tokenization of the file.
+ * The frames of the composite frames are unmarshalled separately, optionally in parallel on a caller-supplied executor,
+ * and then attached to the composite frames of the document.
+ * Elements that were ignored when building the XML nodes graph are absent from the index.
+ * The unmarshallers share the JAXB context of {@link NetexParserPool}.
+ * This class is thread-safe.
+ */
+public final class XdmNodeUnmarshaller {
+
+  private static final String DATA_OBJECTS = "dataObjects";
+  private static final String COMPOSITE_FRAME = "CompositeFrame";
+  private static final String FRAMES = "frames";
+
+  private final Executor frameExecutor;
+
+  /**
+   * @param frameExecutor the executor unmarshalling the frames of the composite frames,
+   *                      or null to unmarshal them on the calling thread.
+   */
+  public XdmNodeUnmarshaller(Executor frameExecutor) {
+    this.frameExecutor = frameExecutor;
+  }
+
+  /**
+   * Unmarshal a NeTEx document into a new NeTEx entities index.
+   * @param document the document node.
+   * @param elementsToSkip the local names of the NeTEx elements that are not unmarshalled.
+   */
+  public NetexEntitiesIndex unmarshal(XdmNode document, Set<String> elementsToSkip) {
+    Predicate<XdmNode> skipped = node -> isNetexElement(node, elementsToSkip);
+
+    List<List<CompletableFuture<JAXBElement<?>>>> framesByCompositeFrame =
+      new ArrayList<>();
+    for (XdmNode compositeFrame : compositeFrames(document)) {
+      List<CompletableFuture<JAXBElement<?>>> frames = new ArrayList<>();
+      for (XdmNode frame : frames(compositeFrame)) {
+        if (!skipped.test(frame)) {
+          frames.add(
+            frameExecutor == null
+              ? CompletableFuture.completedFuture(unmarshalFrame(frame, skipped))
+              : CompletableFuture.supplyAsync(
+                () -> unmarshalFrame(frame, skipped),
+                frameExecutor
+              )
+          );
+        }
+      }
+      framesByCompositeFrame.add(frames);
+    }
+
+    // the frames of the composite frames are left out of the document, they are unmarshalled separately
+    PublicationDeliveryStructure publicationDelivery =
+      (PublicationDeliveryStructure) unmarshal(
+        document,
+        skipped.or(XdmNodeUnmarshaller::isFrameInCompositeFrame)
+      );
+    List<CompositeFrame> compositeFrames = compositeFrames(publicationDelivery);
+    for (int i = 0; i < compositeFrames.size(); i++) {
+      CompositeFrame compositeFrame = compositeFrames.get(i);
+      for (CompletableFuture<JAXBElement<?>> frame : framesByCompositeFrame.get(i)) {
+        addFrame(compositeFrame, join(frame));
+      }
+    }
+
+    NetexEntitiesIndex netexEntitiesIndex = new NetexEntitiesIndexImpl();
+    NetexDocumentParser.parseAndPopulateIndex(netexEntitiesIndex, publicationDelivery);
+    return netexEntitiesIndex;
+  }
+
+  private static JAXBElement<?> unmarshalFrame(
+    XdmNode frame,
+    Predicate<XdmNode> skipped
+  ) {
+    UnmarshallerHandler unmarshallerHandler = newUnmarshallerHandler();
+    replay(frame, skipped, unmarshallerHandler);
+    return (JAXBElement<?>) result(unmarshallerHandler);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void addFrame(CompositeFrame compositeFrame, JAXBElement<?> frame) {
+    compositeFrame
+      .getFrames()
+      .getCommonFrame()
+      .add((JAXBElement<? extends Common_VersionFrameStructure>) frame);
+  }
+
+  private static List<CompositeFrame> compositeFrames(
+    PublicationDeliveryStructure publicationDelivery
+  ) {
+    if (publicationDelivery.getDataObjects() == null) {
+      return List.of();
+    }
+    return publicationDelivery
+      .getDataObjects()
+      .getCompositeFrameOrCommonFrame()
+      .stream()
+      .map(JAXBElement::getValue)
+      .filter(CompositeFrame.class::isInstance)
+      .map(CompositeFrame.class::cast)
+      .toList();
+  }
+
+  private static Object unmarshal(XdmNode document, Predicate<XdmNode> skipped) {
+    UnmarshallerHandler unmarshallerHandler = newUnmarshallerHandler();
+    for (XdmNode child : document.children()) {
+      if (child.getNodeKind() == XdmNodeKind.ELEMENT) {
+        replay(child, skipped, unmarshallerHandler);
+      }
+    }
+    return JAXBIntrospector.getValue(result(unmarshallerHandler));
+  }
+
+  /**
+   * Replay an element and its descendants as a SAX document.
+   */
+  private static void replay(
+    XdmNode element,
+    Predicate<XdmNode> skipped,
+    ContentHandler contentHandler
+  ) {
+    try {
+      contentHandler.startDocument();
+      NodeInfo nodeInfo = element.getUnderlyingNode();
+      List<String> prefixes = new ArrayList<>();
+      for (NamespaceBinding namespaceBinding : nodeInfo.getAllNamespaces()) {
+        contentHandler.startPrefixMapping(
+          namespaceBinding.getPrefix(),
+          namespaceBinding.getURI()
+        );
+        prefixes.add(namespaceBinding.getPrefix());
+      }
+      replayElement(element, skipped, contentHandler, false);
+      for (String prefix : prefixes) {
+        contentHandler.endPrefixMapping(prefix);
+      }
+      contentHandler.endDocument();
+    } catch (SAXException e) {
+      throw new NetexValidationException(
+        "Error while unmarshalling element " + element.getNodeName(),
+        e
+      );
+    }
+  }
+
+  private static void replayElement(
+    XdmNode element,
+    Predicate<XdmNode> skipped,
+    ContentHandler contentHandler,
+    boolean declareNamespaces
+  ) throws SAXException {
+    NodeInfo nodeInfo = element.getUnderlyingNode();
+    List<String> prefixes = List.of();
+    if (declareNamespaces) {
+      NamespaceBinding[] declaredNamespaces = nodeInfo.getDeclaredNamespaces(null);
+      prefixes = new ArrayList<>(declaredNamespaces.length);
+      for (NamespaceBinding namespaceBinding : declaredNamespaces) {
+        if (namespaceBinding == null) {
+          break;
+        }
+        contentHandler.startPrefixMapping(
+          namespaceBinding.getPrefix(),
+          namespaceBinding.getURI()
+        );
+        prefixes.add(namespaceBinding.getPrefix());
+      }
+    }
+
+    AttributesImpl attributes = new AttributesImpl();
+    for (AttributeInfo attribute : nodeInfo.attributes()) {
+      attributes.addAttribute(
+        attribute.getNodeName().getURI(),
+        attribute.getNodeName().getLocalPart(),
+        attribute.getNodeName().getDisplayName(),
+        "CDATA",
+        attribute.getValue()
+      );
+    }
+    contentHandler.startElement(
+      nodeInfo.getURI(),
+      nodeInfo.getLocalPart(),
+      nodeInfo.getDisplayName(),
+      attributes
+    );
+    for (XdmNode child : element.children()) {
+      if (child.getNodeKind() == XdmNodeKind.ELEMENT) {
+        if (!skipped.test(child)) {
+          replayElement(child, skipped, contentHandler, true);
+        }
+      } else if (child.getNodeKind() == XdmNodeKind.TEXT) {
+        char[] text = child.getStringValue().toCharArray();
+        contentHandler.characters(text, 0, text.length);
+      }
+    }
+    contentHandler.endElement(
+      nodeInfo.getURI(),
+      nodeInfo.getLocalPart(),
+      nodeInfo.getDisplayName()
+    );
+
+    for (String prefix : prefixes) {
+      contentHandler.endPrefixMapping(prefix);
+    }
+  }
+
+  private static List<XdmNode> compositeFrames(XdmNode document) {
+    List<XdmNode> compositeFrames = new ArrayList<>();
+    for (XdmNode publicationDelivery : document.children()) {
+      for (XdmNode dataObjects : children(publicationDelivery, DATA_OBJECTS)) {
+        compositeFrames.addAll(children(dataObjects, COMPOSITE_FRAME));
+      }
+    }
+    return compositeFrames;
+  }
+
+  private static List<XdmNode> frames(XdmNode compositeFrame) {
+    List<XdmNode> frames = new ArrayList<>();
+    for (XdmNode framesElement : children(compositeFrame, FRAMES)) {
+      for (XdmNode frame : framesElement.children()) {
+        if (frame.getNodeKind() == XdmNodeKind.ELEMENT) {
+          frames.add(frame);
+        }
+      }
+    }
+    return frames;
+  }
+
+  private static List<XdmNode> children(XdmNode parent, String localName) {
+    List<XdmNode> children = new ArrayList<>();
+    for (XdmNode child : parent.children()) {
+      if (isNetexElement(child, Set.of(localName))) {
+        children.add(child);
+      }
+    }
+    return children;
+  }
+
+  /**
+   * Return true if the node is a frame in the frames of a composite frame of the document.
+   */
+  private static boolean isFrameInCompositeFrame(XdmNode node) {
+    XdmNode frames = node.getParent();
+    if (frames == null || !isNetexElement(frames, Set.of(FRAMES))) {
+      return false;
+    }
+    XdmNode compositeFrame = frames.getParent();
+    if (
+      compositeFrame == null || !isNetexElement(compositeFrame, Set.of(COMPOSITE_FRAME))
+    ) {
+      return false;
+    }
+    XdmNode dataObjects = compositeFrame.getParent();
+    return dataObjects != null && isNetexElement(dataObjects, Set.of(DATA_OBJECTS));
+  }
+
+  private static boolean isNetexElement(XdmNode node, Set<String> localNames) {
+    if (node.getNodeKind() != XdmNodeKind.ELEMENT) {
+      return false;
+    }
+    NodeInfo nodeInfo = node.getUnderlyingNode();
+    return (
+      localNames.contains(nodeInfo.getLocalPart()) &&
+      NetexXMLParser.NETEX_NAMESPACE.equals(nodeInfo.getURI())
+    );
+  }
+
+  private static UnmarshallerHandler newUnmarshallerHandler() {
+    return NetexJAXBContext.createUnmarshaller().getUnmarshallerHandler();
+  }
+
+  private static Object result(UnmarshallerHandler unmarshallerHandler) {
+    try {
+      return unmarshallerHandler.getResult();
+    } catch (JAXBException e) {
+      throw new NetexValidationException("Error while unmarshalling NeTEx document", e);
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new NetexValidationException(e.getCause());
+    }
+  }
+
+}
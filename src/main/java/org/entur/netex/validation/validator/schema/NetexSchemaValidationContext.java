@@ -1,24 +1,68 @@
 package org.entur.netex.validation.validator.schema;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+import org.entur.netex.validation.exception.NetexValidationException;
 import org.entur.netex.validation.validator.ValidationContext;
+import org.xml.sax.ContentHandler;
 
 /**
  * Validation context for NeTEx XML schema validation.
+ * The document is provided either as a byte array or as a supplier of input streams that re-opens the document
+ * each time it is called.
  */
 public class NetexSchemaValidationContext implements ValidationContext {
 
   private final String fileName;
   private final String codespace;
   private final byte[] fileContent;
+  private final Supplier<InputStream> fileContentSupplier;
+  private final ContentHandler contentHandler;
 
   public NetexSchemaValidationContext(
     String fileName,
     String codespace,
     byte[] fileContent
+  ) {
+    this(fileName, codespace, fileContent, null);
+  }
+
+  /**
+   * @param contentHandler handler that receives the parsing events of the document during schema validation,
+   *                       so that the document can be processed in the same pass as the schema validation.
+   */
+  public NetexSchemaValidationContext(
+    String fileName,
+    String codespace,
+    byte[] fileContent,
+    ContentHandler contentHandler
   ) {
     this.fileName = fileName;
     this.codespace = codespace;
     this.fileContent = fileContent;
+    this.fileContentSupplier = () -> new ByteArrayInputStream(fileContent);
+    this.contentHandler = contentHandler;
+  }
+
+  /**
+   * @param fileContentSupplier supplier of input streams on the document. Each call must return a new stream
+   *                            positioned at the beginning of the document.
+   * @param contentHandler handler that receives the parsing events of the document during schema validation,
+   *                       so that the document can be processed in the same pass as the schema validation.
+   */
+  public NetexSchemaValidationContext(
+    String fileName,
+    String codespace,
+    Supplier<InputStream> fileContentSupplier,
+    ContentHandler contentHandler
+  ) {
+    this.fileName = fileName;
+    this.codespace = codespace;
+    this.fileContent = null;
+    this.fileContentSupplier = fileContentSupplier;
+    this.contentHandler = contentHandler;
   }
 
   @Override
@@ -31,7 +75,33 @@ public class NetexSchemaValidationContext implements ValidationContext {
     return codespace;
   }
 
+  /**
+   * Return the content of the document.
+   * If the context was created from a supplier of input streams, the whole document is loaded in memory:
+   * prefer {@link #openFileContent()}.
+   */
   public byte[] getFileContent() {
-    return fileContent;
+    if (fileContent != null) {
+      return fileContent;
+    }
+    try (InputStream inputStream = openFileContent()) {
+      return inputStream.readAllBytes();
+    } catch (IOException e) {
+      throw new NetexValidationException(e);
+    }
+  }
+
+  /**
+   * Open a new stream on the document. The caller is responsible for closing the stream.
+   */
+  public InputStream openFileContent() {
+    return fileContentSupplier.get();
+  }
+
+  /**
+   * Return the handler that receives the parsing events of the document during schema validation, or null.
+   */
+  public ContentHandler getContentHandler() {
+    return contentHandler;
   }
 }
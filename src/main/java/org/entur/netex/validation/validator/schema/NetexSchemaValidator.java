@@ -1,24 +1,33 @@
 package org.entur.netex.validation.validator.schema;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Validator;
 import org.entur.netex.validation.exception.NetexValidationException;
 import org.entur.netex.validation.validator.*;
 import org.entur.netex.validation.xml.NetexSchemaRepository;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.entur.netex.validation.xml.TeeContentHandler;
+import org.entur.netex.validation.xml.XdmNodeBuildingContentHandler;
 import org.rutebanken.netex.validation.NeTExValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
 
 /**
  * Validate NeTEx files against the NeTEx XML schema.
+ * If the validation context provides a content handler, the document is parsed only once: the parsing events are
+ * forwarded both to the schema validator and to the content handler.
  */
 public class NetexSchemaValidator
   implements NetexValidator<NetexSchemaValidationContext> {
@@ -48,7 +57,18 @@ public class NetexSchemaValidator
    * @param maxValidationReportEntries the maximum number of entries reported. Additional entries are ignored.
    */
   public NetexSchemaValidator(int maxValidationReportEntries) {
-    this.netexSchemaRepository = new NetexSchemaRepository();
+    this(maxValidationReportEntries, new NetexSchemaRepository());
+  }
+
+  /**
+   * @param maxValidationReportEntries the maximum number of entries reported. Additional entries are ignored.
+   * @param netexSchemaRepository the repository providing the NeTEx schemas and the pooled schema validators.
+   */
+  public NetexSchemaValidator(
+    int maxValidationReportEntries,
+    NetexSchemaRepository netexSchemaRepository
+  ) {
+    this.netexSchemaRepository = netexSchemaRepository;
     this.maxValidationReportEntries = maxValidationReportEntries;
   }
 
@@ -68,83 +88,26 @@ public class NetexSchemaValidator
   public List<ValidationIssue> validate(NetexSchemaValidationContext validationContext) {
     LOGGER.debug("Validating file {}", validationContext.getFileName());
     List<ValidationIssue> validationIssues = new ArrayList<>();
+    ValidationIssueErrorHandler errorHandler = new ValidationIssueErrorHandler(
+      validationContext.getFileName(),
+      validationIssues
+    );
     try {
-      NeTExValidator.NetexVersion schemaVersion =
-        NetexSchemaRepository.detectNetexSchemaVersion(
-          validationContext.getFileContent()
-        );
-      if (schemaVersion == null) {
-        schemaVersion = NeTExValidator.LATEST;
-        LOGGER.warn(
-          "Could not detect schema version for file {}, defaulting to latest ({}})",
+      if (validationContext.getContentHandler() == null) {
+        NeTExValidator.NetexVersion schemaVersion = getNetexSchemaVersion(
           validationContext.getFileName(),
-          schemaVersion
+          detectNetexSchemaVersion(validationContext)
         );
-      }
-      Validator validator = netexSchemaRepository
-        .getNetexSchema(schemaVersion)
-        .newValidator();
-      validator.setErrorHandler(
-        new ErrorHandler() {
-          private int errorCount;
-
-          @Override
-          public void warning(SAXParseException exception) throws SAXParseException {
-            addValidationIssue(
-              validationContext.getFileName(),
-              exception,
-              Severity.WARNING
-            );
-            errorCount++;
-          }
-
-          @Override
-          public void error(SAXParseException exception) throws SAXParseException {
-            addValidationIssue(
-              validationContext.getFileName(),
-              exception,
-              Severity.CRITICAL
-            );
-            errorCount++;
-          }
-
-          @Override
-          public void fatalError(SAXParseException exception) throws SAXParseException {
-            error(exception);
-          }
-
-          private void addValidationIssue(
-            String fileName,
-            SAXParseException saxParseException,
-            Severity severity
-          ) throws SAXParseException {
-            if (errorCount < maxValidationReportEntries) {
-              String message = saxParseException.getMessage();
-              DataLocation dataLocation = getErrorLocation(fileName, saxParseException);
-              validationIssues.add(
-                new ValidationIssue(
-                  severity == Severity.CRITICAL || severity == Severity.ERROR
-                    ? RULE_ERROR
-                    : RULE_WARNING,
-                  dataLocation,
-                  message
-                )
-              );
-            } else {
-              LOGGER.warn(
-                "File {} has too many schema validation errors (max is {}). Additional errors will not be reported.",
-                fileName,
-                maxValidationReportEntries
-              );
-              throw saxParseException;
-            }
-          }
+        Validator validator = netexSchemaRepository.borrowValidator(schemaVersion);
+        try (InputStream fileContent = validationContext.openFileContent()) {
+          validator.setErrorHandler(errorHandler);
+          validator.validate(new StreamSource(fileContent));
+        } finally {
+          netexSchemaRepository.returnValidator(schemaVersion, validator);
         }
-      );
-
-      validator.validate(
-        new StreamSource(new ByteArrayInputStream(validationContext.getFileContent()))
-      );
+      } else {
+        validateInSinglePass(validationContext, errorHandler);
+      }
     } catch (IOException e) {
       throw new NetexValidationException(e);
     } catch (SAXException saxException) {
@@ -154,6 +117,143 @@ public class NetexSchemaValidator
     return validationIssues;
   }
 
+  /**
+   * Parse the document once and forward the parsing events both to the schema validator and to the content handler
+   * provided by the validation context.
+   * The NeTEx version is detected while parsing the root element.
+   */
+  private void validateInSinglePass(
+    NetexSchemaValidationContext validationContext,
+    ErrorHandler errorHandler
+  ) throws IOException, SAXException {
+    SchemaValidatingContentHandler schemaValidatingContentHandler =
+      new SchemaValidatingContentHandler(
+        netexSchemaRepository,
+        versionAttribute ->
+          getNetexSchemaVersion(
+            validationContext.getFileName(),
+            NetexSchemaRepository.detectNetexSchemaVersion(versionAttribute)
+          ),
+        errorHandler
+      );
+    XMLReader xmlReader;
+    try {
+      xmlReader =
+        NetexXMLParser.getSecureSAXParserFactory().newSAXParser().getXMLReader();
+      // comments are not validated, they are forwarded only to the content handler of the validation context
+      if (
+        validationContext.getContentHandler() instanceof LexicalHandler lexicalHandler
+      ) {
+        xmlReader.setProperty(
+          XdmNodeBuildingContentHandler.LEXICAL_HANDLER_PROPERTY,
+          lexicalHandler
+        );
+      }
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new NetexValidationException(e);
+    }
+    xmlReader.setContentHandler(
+      new TeeContentHandler(
+        schemaValidatingContentHandler,
+        validationContext.getContentHandler()
+      )
+    );
+    xmlReader.setErrorHandler(errorHandler);
+    try (InputStream fileContent = validationContext.openFileContent()) {
+      xmlReader.parse(new InputSource(fileContent));
+    } finally {
+      schemaValidatingContentHandler.returnValidatorHandler();
+    }
+    if (schemaValidatingContentHandler.isInterrupted()) {
+      LOGGER.info("Found schema validation errors");
+    }
+  }
+
+  private static NeTExValidator.NetexVersion detectNetexSchemaVersion(
+    NetexSchemaValidationContext validationContext
+  ) throws IOException {
+    try (InputStream fileContent = validationContext.openFileContent()) {
+      return NetexSchemaRepository.detectNetexSchemaVersion(fileContent);
+    }
+  }
+
+  private static NeTExValidator.NetexVersion getNetexSchemaVersion(
+    String fileName,
+    NeTExValidator.NetexVersion schemaVersion
+  ) {
+    if (schemaVersion == null) {
+      LOGGER.warn(
+        "Could not detect schema version for file {}, defaulting to latest ({}})",
+        fileName,
+        NeTExValidator.LATEST
+      );
+      return NeTExValidator.LATEST;
+    }
+    return schemaVersion;
+  }
+
+  /**
+   * Convert XML schema validation errors into validation issues.
+   * The validation is interrupted when the maximum number of entries is reached.
+   */
+  private class ValidationIssueErrorHandler implements ErrorHandler {
+
+    private final String fileName;
+    private final List<ValidationIssue> validationIssues;
+    private int errorCount;
+
+    private ValidationIssueErrorHandler(
+      String fileName,
+      List<ValidationIssue> validationIssues
+    ) {
+      this.fileName = fileName;
+      this.validationIssues = validationIssues;
+    }
+
+    @Override
+    public void warning(SAXParseException exception) throws SAXParseException {
+      addValidationIssue(exception, Severity.WARNING);
+      errorCount++;
+    }
+
+    @Override
+    public void error(SAXParseException exception) throws SAXParseException {
+      addValidationIssue(exception, Severity.CRITICAL);
+      errorCount++;
+    }
+
+    @Override
+    public void fatalError(SAXParseException exception) throws SAXParseException {
+      error(exception);
+    }
+
+    private void addValidationIssue(
+      SAXParseException saxParseException,
+      Severity severity
+    ) throws SAXParseException {
+      if (errorCount < maxValidationReportEntries) {
+        String message = saxParseException.getMessage();
+        DataLocation dataLocation = getErrorLocation(fileName, saxParseException);
+        validationIssues.add(
+          new ValidationIssue(
+            severity == Severity.CRITICAL || severity == Severity.ERROR
+              ? RULE_ERROR
+              : RULE_WARNING,
+            dataLocation,
+            message
+          )
+        );
+      } else {
+        LOGGER.warn(
+          "File {} has too many schema validation errors (max is {}). Additional errors will not be reported.",
+          fileName,
+          maxValidationReportEntries
+        );
+        throw saxParseException;
+      }
+    }
+  }
+
   @Override
   public Set<ValidationRule> getRules() {
     return Set.of(RULE_ERROR, RULE_WARNING);
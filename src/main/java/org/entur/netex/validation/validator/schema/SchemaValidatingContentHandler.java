@@ -0,0 +1,210 @@
+package org.entur.netex.validation.validator.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import javax.xml.validation.ValidatorHandler;
+import org.entur.netex.validation.xml.NetexSchemaRepository;
+import org.rutebanken.netex.validation.NeTExValidator;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * SAX handler that validates a NeTEx document against the XML schema while the document is parsed.
+ * The NeTEx schema is selected when the root element is read, from the version attribute of the
+ * PublicationDelivery element. This avoids reading the document a first time only to detect the NeTEx version.
+ * If the validation is interrupted by the error handler, the remaining parsing events are ignored,
+ * so that other consumers of the parsing events can still process the document.
+ * Any other failure of the schema validator is propagated to the parser.
+ * The schema validator handler is borrowed from the {@link NetexSchemaRepository} pool and must be given back with
+ * {@link #returnValidatorHandler()} once the document is parsed.
+ */
+class SchemaValidatingContentHandler implements ContentHandler {
+
+  private final NetexSchemaRepository netexSchemaRepository;
+  private final Function<String, NeTExValidator.NetexVersion> versionForVersionAttribute;
+  private final ErrorHandler errorHandler;
+  private final List<String[]> pendingPrefixMappings = new ArrayList<>();
+  private NeTExValidator.NetexVersion version;
+  private ValidatorHandler validatorHandler;
+  private Locator locator;
+  private boolean interruptedByErrorHandler;
+  private boolean interrupted;
+  private boolean failed;
+
+  /**
+   * @param netexSchemaRepository the repository providing the pooled schema validator handlers.
+   * @param versionForVersionAttribute return the NeTEx version matching the version attribute of the
+   *                                   PublicationDelivery element. The version attribute is null if it is missing.
+   * @param errorHandler handler for validation errors.
+   */
+  SchemaValidatingContentHandler(
+    NetexSchemaRepository netexSchemaRepository,
+    Function<String, NeTExValidator.NetexVersion> versionForVersionAttribute,
+    ErrorHandler errorHandler
+  ) {
+    this.netexSchemaRepository = netexSchemaRepository;
+    this.versionForVersionAttribute = versionForVersionAttribute;
+    this.errorHandler = errorHandler;
+  }
+
+  /**
+   * Return true if the validation was interrupted by the error handler.
+   */
+  boolean isInterrupted() {
+    return interrupted;
+  }
+
+  /**
+   * Give back the schema validator handler to the pool.
+   * A validator handler that failed for another reason than an interruption by the error handler is discarded.
+   */
+  void returnValidatorHandler() {
+    if (validatorHandler != null && !failed) {
+      netexSchemaRepository.returnValidatorHandler(version, validatorHandler);
+    }
+    validatorHandler = null;
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    this.locator = locator;
+  }
+
+  @Override
+  public void startDocument() {
+    // the validator is created when the root element is read
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    forward(ValidatorHandler::endDocument);
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    if (validatorHandler == null) {
+      pendingPrefixMappings.add(new String[] { prefix, uri });
+    } else {
+      forward(handler -> handler.startPrefixMapping(prefix, uri));
+    }
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+    forward(handler -> handler.endPrefixMapping(prefix));
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+    throws SAXException {
+    if (validatorHandler == null) {
+      String versionAttribute = "PublicationDelivery".equals(localName)
+        ? atts.getValue("", "version")
+        : null;
+      version = versionForVersionAttribute.apply(versionAttribute);
+      validatorHandler = netexSchemaRepository.borrowValidatorHandler(version);
+      validatorHandler.setErrorHandler(new InterruptionTrackingErrorHandler());
+      if (locator != null) {
+        validatorHandler.setDocumentLocator(locator);
+      }
+      forward(ValidatorHandler::startDocument);
+      for (String[] prefixMapping : pendingPrefixMappings) {
+        forward(handler ->
+          handler.startPrefixMapping(prefixMapping[0], prefixMapping[1])
+        );
+      }
+      pendingPrefixMappings.clear();
+    }
+    forward(handler -> handler.startElement(uri, localName, qName, atts));
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName)
+    throws SAXException {
+    forward(handler -> handler.endElement(uri, localName, qName));
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    forward(handler -> handler.characters(ch, start, length));
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length)
+    throws SAXException {
+    forward(handler -> handler.ignorableWhitespace(ch, start, length));
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    forward(handler -> handler.processingInstruction(target, data));
+  }
+
+  @Override
+  public void skippedEntity(String name) throws SAXException {
+    forward(handler -> handler.skippedEntity(name));
+  }
+
+  private void forward(ValidatorHandlerEvent event) throws SAXException {
+    if (interrupted || failed || validatorHandler == null) {
+      return;
+    }
+    try {
+      event.sendTo(validatorHandler);
+    } catch (SAXException | RuntimeException e) {
+      if (interruptedByErrorHandler) {
+        interrupted = true;
+      } else {
+        failed = true;
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Forward the validation errors to the error handler and record whether the error handler interrupted
+   * the validation, as opposed to a failure of the schema validator itself.
+   */
+  private class InterruptionTrackingErrorHandler implements ErrorHandler {
+
+    @Override
+    public void warning(SAXParseException exception) throws SAXException {
+      try {
+        errorHandler.warning(exception);
+      } catch (SAXException e) {
+        interruptedByErrorHandler = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public void error(SAXParseException exception) throws SAXException {
+      try {
+        errorHandler.error(exception);
+      } catch (SAXException e) {
+        interruptedByErrorHandler = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public void fatalError(SAXParseException exception) throws SAXException {
+      try {
+        errorHandler.fatalError(exception);
+      } catch (SAXException e) {
+        interruptedByErrorHandler = true;
+        throw e;
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ValidatorHandlerEvent {
+    void sendTo(ValidatorHandler validatorHandler) throws SAXException;
+  }
+}
@@ -4,8 +4,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -14,6 +19,10 @@ import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
 import org.apache.commons.lang3.time.StopWatch;
 import org.entur.netex.validation.validator.ValidationIssue;
+import org.entur.netex.validation.validator.xpath.rules.FusedValidateNotExist;
+import org.entur.netex.validation.validator.xpath.rules.ValidateNotExist;
+import org.entur.netex.validation.xml.CompiledXPath;
+import org.entur.netex.validation.xml.NetexXMLParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +30,10 @@ import org.slf4j.LoggerFactory;
  * A tree of XPath validation rules to be applied to a NeTEx document. See {@link XPathValidationRule}.
  * The tree can be structured in subtrees that validate a part of the XML document.
  * The tree leaves are instances {@link XPathValidationRule}.
+ * Sibling {@link ValidateNotExist} rules that select nodes on the same location path are evaluated together,
+ * see {@link FusedValidateNotExist}.
+ * Rules and subtrees that require elements absent from the document are skipped,
+ * see {@link XPathValidationRule#getRequiredElementNames()}.
  */
 public class ValidationTree {
 
@@ -29,13 +42,16 @@ public class ValidationTree {
 
   private final String name;
   private final String context;
+  private final CompiledXPath contextXPath;
   private final List<ValidationTree> subTrees;
   private final List<XPathValidationRule> xPathValidationRules;
   private final Predicate<XPathRuleValidationContext> executionCondition;
+  private volatile ExecutionPlan executionPlan;
 
   /**
    * @param name the name of the validation tree.
    * @param context the XPath context, that is the XPath path on which the rule is applied.
+   * The XPath expression is compiled when the tree is created.
    */
   public ValidationTree(String name, String context) {
     this(name, context, validationContext -> true);
@@ -53,6 +69,7 @@ public class ValidationTree {
   ) {
     this.name = name;
     this.context = context;
+    this.contextXPath = CompiledXPath.compile(context);
     this.executionCondition = executionCondition;
     this.xPathValidationRules = new ArrayList<>();
     this.subTrees = new ArrayList<>();
@@ -91,10 +108,63 @@ public class ValidationTree {
   public List<ValidationIssue> validate(
     XPathRuleValidationContext validationContext,
     Predicate<XPathValidationRule> filter
+  ) {
+    Set<String> elementNames = NetexXMLParser.getElementNames(
+      validationContext.getXmlNode()
+    );
+    List<ValidationIssue> validationIssues = validateRules(
+      validationContext,
+      filter,
+      elementNames
+    );
+    subTreeValidations(validationContext, elementNames)
+      .forEach(subTree -> validationIssues.addAll(subTree.validate(filter)));
+    return validationIssues;
+  }
+
+  /**
+   * Apply the validation rules matching the given rule filter and return validation issues.
+   * The subtrees are validated in parallel in the given fork/join pool, each matching context node in its own task.
+   * The validation issues are returned in the same order as with a sequential validation.
+   */
+  public List<ValidationIssue> validate(
+    XPathRuleValidationContext validationContext,
+    Predicate<XPathValidationRule> filter,
+    ForkJoinPool forkJoinPool
+  ) {
+    return forkJoinPool.invoke(
+      new ValidationTreeTask(new SubTreeValidation(this, validationContext), filter)
+    );
+  }
+
+  /**
+   * Apply the rules of this tree node, excluding the subtrees.
+   */
+  private List<ValidationIssue> validateRules(
+    XPathRuleValidationContext validationContext,
+    Predicate<XPathValidationRule> filter,
+    Set<String> elementNames
   ) {
     List<ValidationIssue> validationIssues = new ArrayList<>();
-    for (XPathValidationRule xPathValidationRule : xPathValidationRules) {
-      if (!filter.test(xPathValidationRule)) {
+    ExecutionPlan plan = getExecutionPlan();
+    Predicate<XPathValidationRule> applicableFilter = filter.and(validationRule ->
+      isApplicable(validationRule.getRequiredElementNames(), elementNames)
+    );
+    // issues of the fused rules, computed for the whole group when its first applicable rule is reached
+    Map<ValidateNotExist, List<ValidationIssue>> fusedRuleIssues =
+      new IdentityHashMap<>();
+    for (XPathValidationRule xPathValidationRule : plan.rules()) {
+      if (!applicableFilter.test(xPathValidationRule)) {
+        continue;
+      }
+      FusedValidateNotExist fusedRules = plan.fusedRulesByRule().get(xPathValidationRule);
+      if (fusedRules != null) {
+        if (!fusedRuleIssues.containsKey(xPathValidationRule)) {
+          fusedRuleIssues.putAll(
+            validateFusedRules(fusedRules, validationContext, applicableFilter)
+          );
+        }
+        validationIssues.addAll(fusedRuleIssues.get(xPathValidationRule));
         continue;
       }
 
@@ -114,10 +184,59 @@ public class ValidationTree {
         stopWatch.getTime()
       );
     }
+    return validationIssues;
+  }
+
+  private Map<ValidateNotExist, List<ValidationIssue>> validateFusedRules(
+    FusedValidateNotExist fusedRules,
+    XPathRuleValidationContext validationContext,
+    Predicate<XPathValidationRule> applicableFilter
+  ) {
+    LOGGER.debug(
+      "Running fused validation rules '{}'/'{}'",
+      name,
+      fusedRules.getLocationPath()
+    );
+    StopWatch stopWatch = new StopWatch();
+    stopWatch.start();
+    Map<ValidateNotExist, List<ValidationIssue>> validationIssues =
+      fusedRules.validateByRule(validationContext, applicableFilter);
+    stopWatch.stop();
+    LOGGER.debug(
+      "Validated fused rules '{}'/'{}' in {} ms",
+      name,
+      fusedRules.getLocationPath(),
+      stopWatch.getTime()
+    );
+    return validationIssues;
+  }
+
+  /**
+   * Return the subtrees to be validated, in document order for each subtree.
+   * Subtrees whose context is absent from the document or whose execution condition is not met are left out.
+   */
+  private List<SubTreeValidation> subTreeValidations(
+    XPathRuleValidationContext validationContext,
+    Set<String> elementNames
+  ) {
+    List<SubTreeValidation> subTreeValidations = new ArrayList<>();
     for (ValidationTree validationSubTree : subTrees) {
+      if (
+        !isApplicable(
+          validationSubTree.contextXPath.getRequiredElementNames(),
+          elementNames
+        )
+      ) {
+        LOGGER.debug(
+          "Skipping validation subtree '{}'/'{}': context not present in the document",
+          name,
+          validationSubTree.getName()
+        );
+        continue;
+      }
       XdmValue subContextNodes = validationContext
         .getNetexXMLParser()
-        .selectNodeSet(validationSubTree.getContext(), validationContext.getXmlNode());
+        .selectNodeSet(validationSubTree.contextXPath, validationContext.getXmlNode());
       for (XdmItem xdmItem : subContextNodes) {
         XPathRuleValidationContext validationSubContext = new XPathRuleValidationContext(
           (XdmNode) xdmItem,
@@ -131,8 +250,8 @@ public class ValidationTree {
             name,
             validationSubTree.getName()
           );
-          validationIssues.addAll(
-            validationSubTree.validate(validationSubContext, filter)
+          subTreeValidations.add(
+            new SubTreeValidation(validationSubTree, validationSubContext)
           );
         } else {
           LOGGER.debug(
@@ -143,8 +262,39 @@ public class ValidationTree {
         }
       }
     }
+    return subTreeValidations;
+  }
 
-    return validationIssues;
+  /**
+   * Return true if all the required elements are present in the document.
+   * If the elements present in the document are unknown, the rule or subtree is always applicable.
+   */
+  private static boolean isApplicable(
+    Set<String> requiredElementNames,
+    Set<String> elementNames
+  ) {
+    return elementNames == null || elementNames.containsAll(requiredElementNames);
+  }
+
+  /**
+   * Return the rules in registration order and the group of each fused rule.
+   * The plan is computed on first use and recomputed after the rules are modified.
+   */
+  private ExecutionPlan getExecutionPlan() {
+    ExecutionPlan plan = executionPlan;
+    if (plan == null) {
+      List<FusedValidateNotExist> fusedRules = FusedValidateNotExist.fuse(
+        xPathValidationRules
+      );
+      Map<XPathValidationRule, FusedValidateNotExist> fusedRulesByRule =
+        new IdentityHashMap<>();
+      fusedRules.forEach(fused ->
+        fused.getRules().forEach(rule -> fusedRulesByRule.put(rule, fused))
+      );
+      plan = new ExecutionPlan(List.copyOf(xPathValidationRules), fusedRulesByRule);
+      executionPlan = plan;
+    }
+    return plan;
   }
 
   /**
@@ -224,13 +374,16 @@ public class ValidationTree {
 
   public void addValidationRule(XPathValidationRule validationRule) {
     xPathValidationRules.add(validationRule);
+    executionPlan = null;
   }
 
   public void addValidationRules(List<XPathValidationRule> validationRules) {
     this.xPathValidationRules.addAll(validationRules);
+    executionPlan = null;
   }
 
   public boolean removeValidationRule(String ruleCode) {
+    executionPlan = null;
     return this.xPathValidationRules.removeIf(validationRule ->
         validationRule.rule().code().equals(ruleCode)
       );
@@ -247,4 +400,72 @@ public class ValidationTree {
   public String getName() {
     return name;
   }
+
+  /**
+   * A validation tree applied on one of the nodes matched by its context.
+   */
+  private record SubTreeValidation(
+    ValidationTree validationTree,
+    XPathRuleValidationContext validationContext
+  ) {
+    private List<ValidationIssue> validate(Predicate<XPathValidationRule> filter) {
+      return validationTree.validate(validationContext, filter);
+    }
+  }
+
+  /**
+   * Fork/join task validating a tree on a context node.
+   * The rules are applied in the current task and each subtree validation is forked in a new task.
+   * The results are joined in the order the subtree validations are forked.
+   */
+  private static final class ValidationTreeTask
+    extends RecursiveTask<List<ValidationIssue>> {
+
+    private final transient SubTreeValidation subTreeValidation;
+    private final transient Predicate<XPathValidationRule> filter;
+
+    private ValidationTreeTask(
+      SubTreeValidation subTreeValidation,
+      Predicate<XPathValidationRule> filter
+    ) {
+      this.subTreeValidation = subTreeValidation;
+      this.filter = filter;
+    }
+
+    @Override
+    protected List<ValidationIssue> compute() {
+      ValidationTree validationTree = subTreeValidation.validationTree();
+      XPathRuleValidationContext validationContext =
+        subTreeValidation.validationContext();
+      Set<String> elementNames = NetexXMLParser.getElementNames(
+        validationContext.getXmlNode()
+      );
+      List<ValidationTreeTask> subTasks = validationTree
+        .subTreeValidations(validationContext, elementNames)
+        .stream()
+        .map(subTree -> new ValidationTreeTask(subTree, filter))
+        .toList();
+      subTasks.forEach(ForkJoinTask::fork);
+      List<ValidationIssue> validationIssues = validationTree.validateRules(
+        validationContext,
+        filter,
+        elementNames
+      );
+      subTasks.forEach(subTask -> validationIssues.addAll(subTask.join()));
+      return validationIssues;
+    }
+  }
+
+  /**
+   * Rules evaluated one by one, and groups of {@link ValidateNotExist} rules evaluated on a common location path.
+   */
+  /**
+   * The rules in registration order, and the fused group of each fused rule.
+   * The issues of a fused rule are reported at the position of the rule, so that the issues are reported in the
+   * same order as without fusion.
+   */
+  private record ExecutionPlan(
+    List<XPathValidationRule> rules,
+    Map<XPathValidationRule, FusedValidateNotExist> fusedRulesByRule
+  ) {}
 }
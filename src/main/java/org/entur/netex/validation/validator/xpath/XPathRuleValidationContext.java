@@ -1,7 +1,9 @@
 package org.entur.netex.validation.validator.xpath;
 
+import java.util.List;
 import java.util.Objects;
 import net.sf.saxon.s9api.XdmNode;
+import org.entur.netex.validation.xml.NetexIdIndex;
 import org.entur.netex.validation.xml.NetexXMLParser;
 
 /**
@@ -49,6 +51,15 @@ public class XPathRuleValidationContext {
     return netexXMLParser;
   }
 
+  /**
+   * Return the elements of the document with the given id.
+   * The lookup uses an index built once per document, see {@link NetexIdIndex}.
+   * The same index is available in XPath expressions through the function <code>nv:elements-by-id</code>.
+   */
+  public List<XdmNode> getElementsById(String id) {
+    return NetexIdIndex.of(xmlNode).get(id);
+  }
+
   public boolean isCommonFile() {
     return fileName != null && fileName.startsWith("_");
   }
@@ -2,8 +2,10 @@ package org.entur.netex.validation.validator.xpath;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.tree.tiny.TinyTree;
 import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.XPathValidator;
@@ -13,15 +15,40 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Run XPath validation rules against the dataset.
+ * Optionally, the validation subtrees (typically the frames of the document) can be validated in parallel in
+ * a fork/join pool. Documents below a size threshold are validated sequentially on the calling thread.
  */
 public class XPathRuleValidator implements XPathValidator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(XPathRuleValidator.class);
 
+  /**
+   * Default minimum number of nodes in a document for the validation to run in parallel.
+   */
+  public static final int DEFAULT_PARALLELISM_THRESHOLD = 100_000;
+
   private final ValidationTree topLevelValidationTree;
+  private final ForkJoinPool forkJoinPool;
+  private final int parallelismThreshold;
 
   public XPathRuleValidator(ValidationTreeFactory validationTreeFactory) {
+    this(validationTreeFactory, null, DEFAULT_PARALLELISM_THRESHOLD);
+  }
+
+  /**
+   * Create a validator that validates the subtrees of large documents in parallel.
+   * @param validationTreeFactory the factory of the validation tree.
+   * @param forkJoinPool the pool in which the subtrees are validated. If null, documents are validated sequentially.
+   * @param parallelismThreshold the minimum number of nodes in a document for the validation to run in parallel.
+   */
+  public XPathRuleValidator(
+    ValidationTreeFactory validationTreeFactory,
+    ForkJoinPool forkJoinPool,
+    int parallelismThreshold
+  ) {
     this.topLevelValidationTree = validationTreeFactory.builder().build();
+    this.forkJoinPool = forkJoinPool;
+    this.parallelismThreshold = parallelismThreshold;
   }
 
   @Override
@@ -55,9 +82,27 @@ public class XPathRuleValidator implements XPathValidator {
   }
 
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
+    if (forkJoinPool != null && isLargeDocument(validationContext.getXmlNode())) {
+      return topLevelValidationTree.validate(
+        validationContext,
+        validationRule -> true,
+        forkJoinPool
+      );
+    }
     return topLevelValidationTree.validate(validationContext);
   }
 
+  /**
+   * Return true if the document has at least as many nodes as the parallelism threshold.
+   * The size of documents that are not stored as Saxon tiny trees is unknown, they are considered large.
+   */
+  private boolean isLargeDocument(XdmNode node) {
+    return !(
+      node.getUnderlyingNode().getTreeInfo() instanceof TinyTree tinyTree &&
+      tinyTree.getNumberOfNodes() < parallelismThreshold
+    );
+  }
+
   public String describe() {
     return topLevelValidationTree.describe();
   }
@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 import net.sf.saxon.s9api.XdmNode;
 import org.entur.netex.validation.validator.ValidationContext;
 import org.entur.netex.validation.validator.id.IdVersion;
+import org.entur.netex.validation.validator.id.IdVersionStore;
 import org.entur.netex.validation.xml.NetexXMLParser;
 
 /**
@@ -44,12 +45,12 @@ public class XPathValidationContext implements ValidationContext {
     List<IdVersion> localRefs,
     String validationReportId
   ) {
-    this.xmlNode = document;
-    this.netexXMLParser = netexXMLParser;
-    this.codespace = Objects.requireNonNull(codespace);
-    this.fileName = fileName;
-    this.localIds = Collections.unmodifiableSet(Objects.requireNonNull(localIds));
-    this.localIdsMap =
+    this(
+      document,
+      netexXMLParser,
+      codespace,
+      fileName,
+      Collections.unmodifiableSet(Objects.requireNonNull(localIds)),
       localIds
         .stream()
         .collect(
@@ -58,7 +59,54 @@ public class XPathValidationContext implements ValidationContext {
             Function.identity(),
             (existing, duplicate) -> existing
           )
-        );
+        ),
+      localRefs,
+      validationReportId
+    );
+  }
+
+  /**
+   * Build the validation context from the ids and references collected while parsing the document.
+   * The local ids are not copied: the set and the map of local ids are read-only views on the store.
+   * @param localIds the NeTEx ids declared in the file. The store must not be modified afterwards.
+   */
+  public XPathValidationContext(
+    XdmNode document,
+    NetexXMLParser netexXMLParser,
+    String codespace,
+    String fileName,
+    IdVersionStore localIds,
+    List<IdVersion> localRefs,
+    String validationReportId
+  ) {
+    this(
+      document,
+      netexXMLParser,
+      codespace,
+      fileName,
+      localIds.asSet(),
+      localIds.asMap(),
+      localRefs,
+      validationReportId
+    );
+  }
+
+  private XPathValidationContext(
+    XdmNode document,
+    NetexXMLParser netexXMLParser,
+    String codespace,
+    String fileName,
+    Set<IdVersion> localIds,
+    Map<String, IdVersion> localIdsMap,
+    List<IdVersion> localRefs,
+    String validationReportId
+  ) {
+    this.xmlNode = document;
+    this.netexXMLParser = netexXMLParser;
+    this.codespace = Objects.requireNonNull(codespace);
+    this.fileName = fileName;
+    this.localIds = localIds;
+    this.localIdsMap = localIdsMap;
     this.localRefs = Objects.requireNonNull(localRefs);
     this.validationReportId = validationReportId;
   }
@@ -1,6 +1,7 @@
 package org.entur.netex.validation.validator.xpath;
 
 import java.util.List;
+import java.util.Set;
 import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 
@@ -17,4 +18,13 @@ public interface XPathValidationRule {
   List<ValidationIssue> validate(XPathRuleValidationContext validationContext);
 
   ValidationRule rule();
+
+  /**
+   * Return the local names of the elements that must be present in the document for this rule to report an issue.
+   * The rule is skipped on documents where one of these elements is absent.
+   * By default the rule is never skipped.
+   */
+  default Set<String> getRequiredElementNames() {
+    return Set.of();
+  }
 }
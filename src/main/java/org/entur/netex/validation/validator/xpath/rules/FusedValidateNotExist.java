@@ -0,0 +1,186 @@
+package org.entur.netex.validation.validator.xpath.rules;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmItem;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmValue;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.entur.netex.validation.validator.ValidationIssue;
+import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.validator.xpath.XPathValidationRule;
+import org.entur.netex.validation.xml.CompiledXPath;
+
+/**
+ * A group of {@link ValidateNotExist} rules that select nodes on the same location path.
+ * Rules in the form <code>path/to/Element[predicate]</code> are evaluated by walking the common location path once,
+ * then testing the predicate of each rule on every node.
+ * This reports the same issues as evaluating the rules one by one.
+ * Only rules whose predicate is statically boolean and does not depend on the context position are fused.
+ */
+public final class FusedValidateNotExist {
+
+  private final CompiledXPath locationPath;
+  private final List<ValidateNotExist> rules;
+  private final List<CompiledXPath> predicates;
+
+  private FusedValidateNotExist(
+    CompiledXPath locationPath,
+    List<ValidateNotExist> rules,
+    List<CompiledXPath> predicates
+  ) {
+    this.locationPath = locationPath;
+    this.rules = rules;
+    this.predicates = predicates;
+  }
+
+  /**
+   * Group the rules that can be evaluated on a common location path.
+   * Only groups of at least two rules are returned. Rules that cannot be fused are left out.
+   */
+  public static List<FusedValidateNotExist> fuse(List<XPathValidationRule> rules) {
+    Map<String, List<ValidateNotExist>> rulesByLocationPath = new LinkedHashMap<>();
+    Map<ValidateNotExist, CompiledXPath> predicateByRule = new LinkedHashMap<>();
+    for (XPathValidationRule rule : rules) {
+      if (
+        !(rule instanceof ValidateNotExist validateNotExist) ||
+        validateNotExist.overridesValidate()
+      ) {
+        continue;
+      }
+      String[] locationPathAndPredicate = CompiledXPath.splitLocationPath(
+        validateNotExist.xpath()
+      );
+      if (locationPathAndPredicate == null) {
+        continue;
+      }
+      CompiledXPath predicate = null;
+      if (locationPathAndPredicate[1] != null) {
+        if (dependsOnPosition(locationPathAndPredicate[1])) {
+          continue;
+        }
+        predicate = CompiledXPath.compile(locationPathAndPredicate[1]);
+        if (!predicate.isBooleanExpression()) {
+          // a numeric predicate is a positional filter
+          continue;
+        }
+      }
+      rulesByLocationPath
+        .computeIfAbsent(locationPathAndPredicate[0], path -> new ArrayList<>())
+        .add(validateNotExist);
+      predicateByRule.put(validateNotExist, predicate);
+    }
+
+    List<FusedValidateNotExist> fusedRules = new ArrayList<>();
+    rulesByLocationPath.forEach((path, rulesOnPath) -> {
+      if (rulesOnPath.size() > 1) {
+        fusedRules.add(
+          new FusedValidateNotExist(
+            CompiledXPath.compile(path),
+            List.copyOf(rulesOnPath),
+            rulesOnPath.stream().map(predicateByRule::get).toList()
+          )
+        );
+      }
+    });
+    return fusedRules;
+  }
+
+  /**
+   * Return true if the predicate depends on the position of the node in the location path.
+   */
+  private static boolean dependsOnPosition(String predicate) {
+    return predicate.contains("position()") || predicate.contains("last()");
+  }
+
+  /**
+   * Return the rules in this group.
+   */
+  public List<ValidateNotExist> getRules() {
+    return rules;
+  }
+
+  /**
+   * Apply the rules in the group that match the filter.
+   * Issues are reported rule by rule, in document order for each rule.
+   */
+  public List<ValidationIssue> validate(
+    XPathRuleValidationContext validationContext,
+    Predicate<XPathValidationRule> filter
+  ) {
+    Map<ValidateNotExist, List<ValidationIssue>> validationIssuesByRule = validateByRule(
+      validationContext,
+      filter
+    );
+    return rules
+      .stream()
+      .filter(validationIssuesByRule::containsKey)
+      .flatMap(rule -> validationIssuesByRule.get(rule).stream())
+      .toList();
+  }
+
+  /**
+   * Apply the rules in the group that match the filter and return the issues of each applied rule,
+   * in document order.
+   * This lets the caller report the issues of each rule at the position where the rule is registered.
+   */
+  public Map<ValidateNotExist, List<ValidationIssue>> validateByRule(
+    XPathRuleValidationContext validationContext,
+    Predicate<XPathValidationRule> filter
+  ) {
+    List<Integer> selectedRules = new ArrayList<>();
+    for (int i = 0; i < rules.size(); i++) {
+      if (filter.test(rules.get(i))) {
+        selectedRules.add(i);
+      }
+    }
+    if (selectedRules.isEmpty()) {
+      return Map.of();
+    }
+
+    List<List<ValidationIssue>> validationIssuesByRule = new ArrayList<>();
+    selectedRules.forEach(i -> validationIssuesByRule.add(new ArrayList<>()));
+    try {
+      XdmValue nodes = locationPath.evaluate(validationContext.getXmlNode());
+      for (XdmItem item : nodes) {
+        XdmNode xdmNode = (XdmNode) item;
+        for (int i = 0; i < selectedRules.size(); i++) {
+          int ruleIndex = selectedRules.get(i);
+          CompiledXPath predicate = predicates.get(ruleIndex);
+          if (predicate == null || predicate.effectiveBooleanValue(xdmNode)) {
+            validationIssuesByRule
+              .get(i)
+              .add(
+                rules
+                  .get(ruleIndex)
+                  .createValidationIssue(validationContext.getFileName(), xdmNode)
+              );
+          }
+        }
+      }
+    } catch (SaxonApiException e) {
+      throw new NetexValidationException(
+        "Error while validating rules on location path " + locationPath,
+        e
+      );
+    }
+    Map<ValidateNotExist, List<ValidationIssue>> validationIssues =
+      new IdentityHashMap<>();
+    for (int i = 0; i < selectedRules.size(); i++) {
+      validationIssues.put(
+        rules.get(selectedRules.get(i)),
+        validationIssuesByRule.get(i)
+      );
+    }
+    return validationIssues;
+  }
+
+  public String getLocationPath() {
+    return locationPath.getExpression();
+  }
+}
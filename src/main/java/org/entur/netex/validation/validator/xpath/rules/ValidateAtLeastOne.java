@@ -3,7 +3,6 @@ package org.entur.netex.validation.validator.xpath.rules;
 import java.util.Collections;
 import java.util.List;
 import net.sf.saxon.s9api.SaxonApiException;
-import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmValue;
 import org.entur.netex.validation.exception.NetexValidationException;
 import org.entur.netex.validation.validator.DataLocation;
@@ -12,13 +11,14 @@ import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
 import org.entur.netex.validation.validator.xpath.XPathValidationRule;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Validate that at least one node is returned by the XPath query.
  */
 public class ValidateAtLeastOne implements XPathValidationRule {
 
-  private final String xpath;
+  private final CompiledXPath xpath;
   private final ValidationRule rule;
 
   public ValidateAtLeastOne(
@@ -32,20 +32,14 @@ public class ValidateAtLeastOne implements XPathValidationRule {
   }
 
   public ValidateAtLeastOne(String xpath, ValidationRule validationRule) {
-    this.xpath = xpath;
+    this.xpath = CompiledXPath.compile(xpath);
     this.rule = validationRule;
   }
 
   @Override
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
     try {
-      XPathSelector selector = validationContext
-        .getNetexXMLParser()
-        .getXPathCompiler()
-        .compile(xpath)
-        .load();
-      selector.setContextItem(validationContext.getXmlNode());
-      XdmValue nodes = selector.evaluate();
+      XdmValue nodes = xpath.evaluate(validationContext.getXmlNode());
       if (nodes.isEmpty()) {
         return List.of(
           new ValidationIssue(
@@ -13,6 +13,7 @@ import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.AbstractXPathValidationRule;
 import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Validate that there is no duplicated TimetabledPassingTimes NeTEx id within a Line file.
@@ -28,16 +29,14 @@ public class ValidateDuplicatedTimetabledPassingTimeId
     ERROR
   );
 
+  private static final CompiledXPath TIMETABLED_PASSING_TIMES = CompiledXPath.compile(
+    "vehicleJourneys/ServiceJourney/passingTimes/TimetabledPassingTime[@id]"
+  );
+
   @Override
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
     try {
-      XPathSelector selector = validationContext
-        .getNetexXMLParser()
-        .getXPathCompiler()
-        .compile("vehicleJourneys/ServiceJourney/passingTimes/TimetabledPassingTime[@id]")
-        .load();
-      selector.setContextItem(validationContext.getXmlNode());
-      XdmValue nodes = selector.evaluate();
+      XdmValue nodes = TIMETABLED_PASSING_TIMES.evaluate(validationContext.getXmlNode());
       Set<String> foundIds = new HashSet<>();
       List<ValidationIssue> validationIssues = new ArrayList<>();
       for (XdmItem item : nodes) {
@@ -2,7 +2,6 @@ package org.entur.netex.validation.validator.xpath.rules;
 
 import java.util.List;
 import net.sf.saxon.s9api.SaxonApiException;
-import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmValue;
 import org.entur.netex.validation.exception.NetexValidationException;
 import org.entur.netex.validation.validator.DataLocation;
@@ -11,13 +10,14 @@ import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.AbstractXPathValidationRule;
 import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Validate that exactly one node is returned by the XPath query.
  */
 public class ValidateExactlyOne extends AbstractXPathValidationRule {
 
-  private final String xpath;
+  private final CompiledXPath xpath;
   private final ValidationRule rule;
 
   public ValidateExactlyOne(
@@ -31,20 +31,14 @@ public class ValidateExactlyOne extends AbstractXPathValidationRule {
   }
 
   public ValidateExactlyOne(String xpath, ValidationRule validationRule) {
-    this.xpath = xpath;
+    this.xpath = CompiledXPath.compile(xpath);
     this.rule = validationRule;
   }
 
   @Override
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
     try {
-      XPathSelector selector = validationContext
-        .getNetexXMLParser()
-        .getXPathCompiler()
-        .compile(xpath)
-        .load();
-      selector.setContextItem(validationContext.getXmlNode());
-      XdmValue nodes = selector.evaluate();
+      XdmValue nodes = xpath.evaluate(validationContext.getXmlNode());
       if (nodes.size() != 1) {
         DataLocation dataLocation = new DataLocation(
           null,
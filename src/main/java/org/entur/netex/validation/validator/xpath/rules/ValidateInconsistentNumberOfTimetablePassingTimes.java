@@ -4,6 +4,8 @@ import org.entur.netex.validation.validator.Severity;
 
 /**
  * Validate that the number of passing times in a ServiceJourney matches the number of StopPoints in the JourneyPattern.
+ * The JourneyPattern is looked up in the id index of the document instead of scanning the document
+ * for each ServiceJourney.
  */
 public class ValidateInconsistentNumberOfTimetablePassingTimes extends ValidateNotExist {
 
@@ -11,7 +13,7 @@ public class ValidateInconsistentNumberOfTimetablePassingTimes extends ValidateN
 
   public ValidateInconsistentNumberOfTimetablePassingTimes() {
     super(
-      "for $a in vehicleJourneys/ServiceJourney return if(count(//ServiceFrame/journeyPatterns/*[@id = $a/JourneyPatternRef/@ref]/pointsInSequence/StopPointInJourneyPattern) != count($a/passingTimes/TimetabledPassingTime)) then $a else ()",
+      "for $a in vehicleJourneys/ServiceJourney return if(count(nv:elements-by-id($a, $a/JourneyPatternRef/@ref)[parent::journeyPatterns/parent::ServiceFrame]/pointsInSequence/StopPointInJourneyPattern) != count($a/passingTimes/TimetabledPassingTime)) then $a else ()",
       CODE_SERVICE_JOURNEY_15,
       "ServiceJourney missing some passing times",
       "ServiceJourney does not specify passing time for all StopPointInJourneyPattern",
@@ -8,6 +8,7 @@ import java.util.Objects;
 import net.sf.saxon.s9api.QName;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XPathSelector;
+import net.sf.saxon.s9api.XdmAtomicValue;
 import net.sf.saxon.s9api.XdmItem;
 import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
@@ -17,18 +18,47 @@ import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.AbstractXPathValidationRule;
 import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Validate the booking properties against the Nordic NeTEx profile.
  */
 public class ValidateMandatoryBookingProperty extends AbstractXPathValidationRule {
 
+  private static final QName JOURNEY_PATTERN_REF = new QName("journeyPatternRef");
+  private static final QName JOURNEY_PATTERN_VERSION = new QName(
+    "journeyPatternVersion"
+  );
+
   private final ValidationRule rule;
 
-  private final String bookingProperty;
+  private final CompiledXPath flexibleLinesMissingField;
+  private final CompiledXPath journeyPatternsMissingField;
+  private final CompiledXPath serviceJourneysMissingField;
 
   public ValidateMandatoryBookingProperty(String bookingProperty) {
-    this.bookingProperty = Objects.requireNonNull(bookingProperty);
+    Objects.requireNonNull(bookingProperty);
+    flexibleLinesMissingField =
+      CompiledXPath.compile(
+        "ServiceFrame/lines/FlexibleLine and " +
+        "ServiceFrame/lines/FlexibleLine[not(" +
+        bookingProperty +
+        ")]"
+      );
+    journeyPatternsMissingField =
+      CompiledXPath.compile(
+        "ServiceFrame/journeyPatterns/*[self::JourneyPattern][pointsInSequence/StopPointInJourneyPattern[not(BookingArrangements/" +
+        bookingProperty +
+        ")]]"
+      );
+    serviceJourneysMissingField =
+      CompiledXPath.compile(
+        "TimetableFrame/vehicleJourneys/ServiceJourney[(not(FlexibleServiceProperties) or not(FlexibleServiceProperties/" +
+        bookingProperty +
+        ")) and JourneyPatternRef/@ref=$journeyPatternRef and JourneyPatternRef/@version=$journeyPatternVersion]",
+        JOURNEY_PATTERN_REF,
+        JOURNEY_PATTERN_VERSION
+      );
     rule =
       new ValidationRule(
         "BOOKING_4",
@@ -44,50 +74,30 @@ public class ValidateMandatoryBookingProperty extends AbstractXPathValidationRul
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
     try {
       List<XdmValue> errorNodes = new ArrayList<>();
-      XPathSelector missingFieldSelector = validationContext
-        .getNetexXMLParser()
-        .getXPathCompiler()
-        .compile(
-          "ServiceFrame/lines/FlexibleLine and " +
-          "ServiceFrame/lines/FlexibleLine[not(" +
-          bookingProperty +
-          ")]"
-        )
-        .load();
-      missingFieldSelector.setContextItem(validationContext.getXmlNode());
-      boolean missingField = missingFieldSelector.effectiveBooleanValue();
+      boolean missingField = flexibleLinesMissingField.effectiveBooleanValue(
+        validationContext.getXmlNode()
+      );
       if (missingField) {
-        XPathSelector selector = validationContext
-          .getNetexXMLParser()
-          .getXPathCompiler()
-          .compile(
-            "ServiceFrame/journeyPatterns/*[self::JourneyPattern][pointsInSequence/StopPointInJourneyPattern[not(BookingArrangements/" +
-            bookingProperty +
-            ")]]"
-          )
-          .load();
-        selector.setContextItem(validationContext.getXmlNode());
-        XdmValue nodes = selector.evaluate();
+        XdmValue nodes = journeyPatternsMissingField.evaluate(
+          validationContext.getXmlNode()
+        );
 
         for (XdmItem item : nodes) {
           if (item instanceof XdmNode node) {
             String id = node.getAttributeValue(QName.fromEQName("id"));
             String version = node.getAttributeValue(QName.fromEQName("version"));
 
-            XPathSelector sjSelector = validationContext
-              .getNetexXMLParser()
-              .getXPathCompiler()
-              .compile(
-                "TimetableFrame/vehicleJourneys/ServiceJourney[(not(FlexibleServiceProperties) or not(FlexibleServiceProperties/" +
-                bookingProperty +
-                ")) and JourneyPatternRef/@ref='" +
-                id +
-                "' and JourneyPatternRef/@version='" +
-                version +
-                "']"
-              )
-              .load();
-            sjSelector.setContextItem(validationContext.getXmlNode());
+            XPathSelector sjSelector = serviceJourneysMissingField.load(
+              validationContext.getXmlNode()
+            );
+            sjSelector.setVariable(
+              JOURNEY_PATTERN_REF,
+              new XdmAtomicValue(String.valueOf(id))
+            );
+            sjSelector.setVariable(
+              JOURNEY_PATTERN_VERSION,
+              new XdmAtomicValue(String.valueOf(version))
+            );
             XdmValue errorsForJP = sjSelector.evaluate();
             if (!errorsForJP.isEmpty()) {
               errorNodes.add(errorsForJP);
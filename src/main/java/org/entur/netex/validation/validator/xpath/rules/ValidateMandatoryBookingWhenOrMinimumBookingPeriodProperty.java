@@ -5,6 +5,7 @@ import java.util.List;
 import net.sf.saxon.s9api.QName;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XPathSelector;
+import net.sf.saxon.s9api.XdmAtomicValue;
 import net.sf.saxon.s9api.XdmItem;
 import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
@@ -15,6 +16,7 @@ import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.AbstractXPathValidationRule;
 import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Validate that either BookWhen or MinimumBookingPeriod is present for Flexible lines, either at the line level, the stop point level or the service journey level
@@ -29,48 +31,57 @@ public class ValidateMandatoryBookingWhenOrMinimumBookingPeriodProperty
     Severity.WARNING
   );
 
+  private static final QName JOURNEY_PATTERN_REF = new QName("journeyPatternRef");
+  private static final QName JOURNEY_PATTERN_VERSION = new QName(
+    "journeyPatternVersion"
+  );
+
+  private static final CompiledXPath FLEXIBLE_LINES_MISSING_FIELD =
+    CompiledXPath.compile(
+      "ServiceFrame/lines/FlexibleLine and " +
+      "ServiceFrame/lines/FlexibleLine[not(BookWhen) and not(MinimumBookingPeriod)]"
+    );
+
+  private static final CompiledXPath JOURNEY_PATTERNS_MISSING_FIELD =
+    CompiledXPath.compile(
+      "ServiceFrame/journeyPatterns/*[self::JourneyPattern][pointsInSequence/StopPointInJourneyPattern[not(BookingArrangements/BookWhen) and not(BookingArrangements/MinimumBookingPeriod)  ]]"
+    );
+
+  private static final CompiledXPath SERVICE_JOURNEYS_MISSING_FIELD =
+    CompiledXPath.compile(
+      "TimetableFrame/vehicleJourneys/ServiceJourney[(not(FlexibleServiceProperties) or (not(FlexibleServiceProperties/BookWhen) and not(FlexibleServiceProperties/MinimumBookingPeriod) )) and JourneyPatternRef/@ref=$journeyPatternRef and JourneyPatternRef/@version=$journeyPatternVersion]",
+      JOURNEY_PATTERN_REF,
+      JOURNEY_PATTERN_VERSION
+    );
+
   @Override
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
     try {
       List<XdmValue> errorNodes = new ArrayList<>();
-      XPathSelector missingFieldSelector = validationContext
-        .getNetexXMLParser()
-        .getXPathCompiler()
-        .compile(
-          "ServiceFrame/lines/FlexibleLine and " +
-          "ServiceFrame/lines/FlexibleLine[not(BookWhen) and not(MinimumBookingPeriod)]"
-        )
-        .load();
-      missingFieldSelector.setContextItem(validationContext.getXmlNode());
-      boolean missingField = missingFieldSelector.effectiveBooleanValue();
+      boolean missingField = FLEXIBLE_LINES_MISSING_FIELD.effectiveBooleanValue(
+        validationContext.getXmlNode()
+      );
       if (missingField) {
-        XPathSelector selector = validationContext
-          .getNetexXMLParser()
-          .getXPathCompiler()
-          .compile(
-            "ServiceFrame/journeyPatterns/*[self::JourneyPattern][pointsInSequence/StopPointInJourneyPattern[not(BookingArrangements/BookWhen) and not(BookingArrangements/MinimumBookingPeriod)  ]]"
-          )
-          .load();
-        selector.setContextItem(validationContext.getXmlNode());
-        XdmValue nodes = selector.evaluate();
+        XdmValue nodes = JOURNEY_PATTERNS_MISSING_FIELD.evaluate(
+          validationContext.getXmlNode()
+        );
 
         for (XdmItem item : nodes) {
           if (item instanceof XdmNode node) {
             String id = node.getAttributeValue(QName.fromEQName("id"));
             String version = node.getAttributeValue(QName.fromEQName("version"));
 
-            XPathSelector sjSelector = validationContext
-              .getNetexXMLParser()
-              .getXPathCompiler()
-              .compile(
-                "TimetableFrame/vehicleJourneys/ServiceJourney[(not(FlexibleServiceProperties) or (not(FlexibleServiceProperties/BookWhen) and not(FlexibleServiceProperties/MinimumBookingPeriod) )) and JourneyPatternRef/@ref='" +
-                id +
-                "' and JourneyPatternRef/@version='" +
-                version +
-                "']"
-              )
-              .load();
-            sjSelector.setContextItem(validationContext.getXmlNode());
+            XPathSelector sjSelector = SERVICE_JOURNEYS_MISSING_FIELD.load(
+              validationContext.getXmlNode()
+            );
+            sjSelector.setVariable(
+              JOURNEY_PATTERN_REF,
+              new XdmAtomicValue(String.valueOf(id))
+            );
+            sjSelector.setVariable(
+              JOURNEY_PATTERN_VERSION,
+              new XdmAtomicValue(String.valueOf(version))
+            );
             XdmValue errorsForJP = sjSelector.evaluate();
             if (!errorsForJP.isEmpty()) {
               errorNodes.add(errorsForJP);
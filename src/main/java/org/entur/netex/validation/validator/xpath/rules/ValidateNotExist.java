@@ -2,8 +2,8 @@ package org.entur.netex.validation.validator.xpath.rules;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import net.sf.saxon.s9api.SaxonApiException;
-import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmItem;
 import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
@@ -14,14 +14,16 @@ import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.AbstractXPathValidationRule;
 import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Validate that the XPath query does not return any node.
  */
 public class ValidateNotExist extends AbstractXPathValidationRule {
 
-  private final String xpath;
+  private final CompiledXPath xpath;
   private final ValidationRule rule;
+  private final boolean validateOverridden = declaresValidate(getClass());
 
   public ValidateNotExist(
     String xpath,
@@ -34,36 +36,19 @@ public class ValidateNotExist extends AbstractXPathValidationRule {
   }
 
   public ValidateNotExist(String xpath, ValidationRule validationRule) {
-    this.xpath = xpath;
+    this.xpath = CompiledXPath.compile(xpath);
     this.rule = validationRule;
   }
 
   @Override
   public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
     try {
-      XPathSelector selector = validationContext
-        .getNetexXMLParser()
-        .getXPathCompiler()
-        .compile(xpath)
-        .load();
-      selector.setContextItem(validationContext.getXmlNode());
-      XdmValue nodes = selector.evaluate();
+      XdmValue nodes = xpath.evaluate(validationContext.getXmlNode());
       List<ValidationIssue> validationIssues = new ArrayList<>();
       for (XdmItem item : nodes) {
-        XdmNode xdmNode = (XdmNode) item;
-        DataLocation dataLocation = getXdmNodeLocation(
-          validationContext.getFileName(),
-          xdmNode
+        validationIssues.add(
+          createValidationIssue(validationContext.getFileName(), (XdmNode) item)
         );
-        String formattedItem = formatMatchedItem(xdmNode);
-        ValidationIssue validationIssue;
-        if (formattedItem != null) {
-          validationIssue = new ValidationIssue(rule, dataLocation, formattedItem);
-        } else {
-          validationIssue = new ValidationIssue(rule, dataLocation);
-        }
-
-        validationIssues.add(validationIssue);
       }
       return validationIssues;
     } catch (SaxonApiException e) {
@@ -71,6 +56,58 @@ public class ValidateNotExist extends AbstractXPathValidationRule {
     }
   }
 
+  /**
+   * Create the validation issue reported for a node matched by the XPath query.
+   */
+  ValidationIssue createValidationIssue(String fileName, XdmNode xdmNode) {
+    DataLocation dataLocation = getXdmNodeLocation(fileName, xdmNode);
+    String formattedItem = formatMatchedItem(xdmNode);
+    if (formattedItem != null) {
+      return new ValidationIssue(rule, dataLocation, formattedItem);
+    }
+    return new ValidationIssue(rule, dataLocation);
+  }
+
+  /**
+   * Return the elements on the location path of the XPath query.
+   * Subclasses that override {@link #validate(XPathRuleValidationContext)} may evaluate another query:
+   * they declare no required element, unless they override this method as well.
+   */
+  @Override
+  public Set<String> getRequiredElementNames() {
+    if (overridesValidate()) {
+      return Set.of();
+    }
+    return xpath.getRequiredElementNames();
+  }
+
+  /**
+   * Return the XPath query.
+   */
+  String xpath() {
+    return xpath.getExpression();
+  }
+
+  /**
+   * Return true if the class of the rule overrides {@link #validate(XPathRuleValidationContext)}.
+   */
+  boolean overridesValidate() {
+    return validateOverridden;
+  }
+
+  private static boolean declaresValidate(Class<?> ruleClass) {
+    try {
+      return (
+        ruleClass
+          .getMethod("validate", XPathRuleValidationContext.class)
+          .getDeclaringClass() !=
+        ValidateNotExist.class
+      );
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+
   /**
    * Optionally provide a text format for the captured item, for use in the validation issue message format.
    * By default, no format is applied.
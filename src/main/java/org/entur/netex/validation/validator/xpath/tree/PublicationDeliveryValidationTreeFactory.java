@@ -2,6 +2,7 @@ package org.entur.netex.validation.validator.xpath.tree;
 
 import java.util.stream.Stream;
 import org.entur.netex.validation.validator.xpath.ValidationTreeFactory;
+import org.entur.netex.validation.xml.CompiledXPath;
 
 /**
  * Build the top-level XPath validation tree.
@@ -12,6 +13,10 @@ import org.entur.netex.validation.validator.xpath.ValidationTreeFactory;
  */
 public class PublicationDeliveryValidationTreeFactory implements ValidationTreeFactory {
 
+  private static final CompiledXPath COMPOSITE_FRAME = CompiledXPath.compile(
+    "CompositeFrame"
+  );
+
   private ValidationTreeBuilder rootValidationTreeBuilder =
     new DefaultRootValidationTreeFactory().builder();
   private ValidationTreeBuilder singleFramesValidationTreeBuilder =
@@ -50,7 +55,7 @@ public class PublicationDeliveryValidationTreeFactory implements ValidationTreeF
       validationContext ->
         validationContext
           .getNetexXMLParser()
-          .selectNodeSet("CompositeFrame", validationContext.getXmlNode())
+          .selectNodeSet(COMPOSITE_FRAME, validationContext.getXmlNode())
           .isEmpty()
     );
     dataObjectsValidationTree.withSubTreeBuilder(singleFramesValidationTreeBuilder);
@@ -0,0 +1,235 @@
+package org.entur.netex.validation.xml;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import net.sf.saxon.Configuration;
+import net.sf.saxon.s9api.ItemType;
+import net.sf.saxon.s9api.OccurrenceIndicator;
+import net.sf.saxon.s9api.QName;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
+import net.sf.saxon.s9api.XPathSelector;
+import net.sf.saxon.s9api.XdmItem;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmValue;
+import org.entur.netex.validation.exception.NetexValidationException;
+
+/**
+ * An XPath expression compiled once, typically when the validation rules are created.
+ * Invalid expressions are reported at compilation time instead of validation time.
+ * The compiled expression is immutable and thread-safe: each evaluation loads its own selector.
+ * The NeTEx namespace is the default namespace, as for {@link NetexXMLParser#getXPathCompiler()}.
+ * The expression is compiled against the Saxon configuration shared by the documents built by {@link NetexXMLParser}.
+ * When it is evaluated on a document built with another Saxon processor, it is compiled again against the
+ * configuration of this document. Only the last of these compilations is cached.
+ */
+public final class CompiledXPath {
+
+  private static final Pattern LOCATION_PATH = Pattern.compile(
+    "([\\w.\\-]+:)?([\\w.\\-]+|\\*)(/([\\w.\\-]+:)?([\\w.\\-]+|\\*))*"
+  );
+
+  private final String expression;
+  private final QName[] variables;
+  private final XPathExecutable xPathExecutable;
+  private final Set<String> requiredElementNames;
+  private volatile ForeignExecutable foreignExecutable;
+
+  private CompiledXPath(
+    String expression,
+    QName[] variables,
+    XPathExecutable xPathExecutable
+  ) {
+    this.expression = expression;
+    this.variables = variables;
+    this.xPathExecutable = xPathExecutable;
+    this.requiredElementNames = findRequiredElementNames(expression);
+  }
+
+  /**
+   * Compile an XPath expression.
+   *
+   * @param expression the XPath expression.
+   * @param variables the external variables referenced in the expression.
+   * Their values are set on the selector returned by {@link #load(XdmItem)}.
+   * @return the compiled expression.
+   * @throws NetexValidationException if the expression is invalid.
+   */
+  public static CompiledXPath compile(String expression, QName... variables) {
+    QName[] declaredVariables = variables.clone();
+    return new CompiledXPath(
+      expression,
+      declaredVariables,
+      compile(NetexXMLParser.newXPathCompiler(), expression, declaredVariables)
+    );
+  }
+
+  private static XPathExecutable compile(
+    XPathCompiler xPathCompiler,
+    String expression,
+    QName[] variables
+  ) {
+    for (QName variable : variables) {
+      xPathCompiler.declareVariable(variable);
+    }
+    try {
+      return xPathCompiler.compile(expression);
+    } catch (SaxonApiException e) {
+      throw new NetexValidationException("Invalid XPath expression " + expression, e);
+    }
+  }
+
+  /**
+   * Return a new selector for this expression, positioned on the given context item.
+   */
+  public XPathSelector load(XdmItem contextItem) throws SaxonApiException {
+    XPathSelector selector = getExecutable(contextItem).load();
+    selector.setContextItem(contextItem);
+    return selector;
+  }
+
+  /**
+   * Return the expression compiled against the Saxon configuration of the context item.
+   */
+  private XPathExecutable getExecutable(XdmItem contextItem) {
+    if (!(contextItem instanceof XdmNode node)) {
+      return xPathExecutable;
+    }
+    Configuration configuration = node.getUnderlyingNode().getConfiguration();
+    if (NetexXMLParser.isSharedConfiguration(configuration)) {
+      return xPathExecutable;
+    }
+    ForeignExecutable executable = foreignExecutable;
+    if (executable == null || executable.configuration() != configuration) {
+      executable =
+        new ForeignExecutable(
+          configuration,
+          compile(NetexXMLParser.newXPathCompiler(configuration), expression, variables)
+        );
+      foreignExecutable = executable;
+    }
+    return executable.xPathExecutable();
+  }
+
+  /**
+   * Evaluate the expression on the given context item.
+   */
+  public XdmValue evaluate(XdmItem contextItem) throws SaxonApiException {
+    return load(contextItem).evaluate();
+  }
+
+  /**
+   * Evaluate the effective boolean value of the expression on the given context item.
+   */
+  public boolean effectiveBooleanValue(XdmItem contextItem) throws SaxonApiException {
+    return load(contextItem).effectiveBooleanValue();
+  }
+
+  /**
+   * Return true if the static type of the expression is a single boolean value.
+   */
+  public boolean isBooleanExpression() {
+    return (
+      ItemType.BOOLEAN.subsumes(xPathExecutable.getResultItemType()) &&
+      xPathExecutable.getResultCardinality() == OccurrenceIndicator.ONE
+    );
+  }
+
+  /**
+   * Return the local names of the elements that must be present in a document for this expression to select
+   * a node.
+   * The names are derived from the steps of expressions in the form <code>path/to/Element[predicate]</code>
+   * or <code>path/to/Element</code>. The set is empty for expressions of any other form.
+   */
+  public Set<String> getRequiredElementNames() {
+    return requiredElementNames;
+  }
+
+  /**
+   * Split an XPath query in the form <code>path/to/Element[predicate]</code> or <code>path/to/Element</code>
+   * into its location path and its predicate.
+   * @return the location path and the predicate (null if there is no predicate),
+   * or null if the query does not have this form.
+   */
+  public static String[] splitLocationPath(String xpath) {
+    String expression = xpath.strip();
+    int predicateStart = expression.indexOf('[');
+    if (predicateStart < 0) {
+      return LOCATION_PATH.matcher(expression).matches()
+        ? new String[] { expression, null }
+        : null;
+    }
+    String locationPath = expression.substring(0, predicateStart);
+    if (
+      !LOCATION_PATH.matcher(locationPath).matches() ||
+      findClosingBracket(expression, predicateStart) != expression.length() - 1
+    ) {
+      return null;
+    }
+    return new String[] {
+      locationPath,
+      expression.substring(predicateStart + 1, expression.length() - 1),
+    };
+  }
+
+  private static Set<String> findRequiredElementNames(String expression) {
+    String[] locationPathAndPredicate = splitLocationPath(expression);
+    if (locationPathAndPredicate == null) {
+      return Set.of();
+    }
+    Set<String> elementNames = new HashSet<>();
+    for (String step : locationPathAndPredicate[0].split("/")) {
+      String localName = step.substring(step.indexOf(':') + 1);
+      // wildcards and abbreviated steps (. and ..) do not name an element
+      if (!localName.equals("*") && !localName.startsWith(".")) {
+        elementNames.add(localName);
+      }
+    }
+    return Set.copyOf(elementNames);
+  }
+
+  /**
+   * Return the index of the bracket closing the bracket at the given index, ignoring brackets in string literals.
+   */
+  private static int findClosingBracket(String expression, int openingBracket) {
+    int depth = 0;
+    char quote = 0;
+    for (int i = openingBracket; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '[') {
+        depth++;
+      } else if (c == ']') {
+        depth--;
+        if (depth == 0) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  /**
+   * The expression compiled against the configuration of a document built with another Saxon processor.
+   */
+  private record ForeignExecutable(
+    Configuration configuration,
+    XPathExecutable xPathExecutable
+  ) {}
+}
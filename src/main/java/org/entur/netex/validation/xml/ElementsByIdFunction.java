@@ -0,0 +1,57 @@
+package org.entur.netex.validation.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.sf.saxon.s9api.ExtensionFunction;
+import net.sf.saxon.s9api.ItemType;
+import net.sf.saxon.s9api.OccurrenceIndicator;
+import net.sf.saxon.s9api.QName;
+import net.sf.saxon.s9api.SequenceType;
+import net.sf.saxon.s9api.XdmItem;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmValue;
+
+/**
+ * XPath extension function returning the elements with the given ids, looked up in the {@link NetexIdIndex}
+ * of the document.
+ * Usage: <code>nv:elements-by-id(., JourneyPatternRef/@ref)</code>, where the first argument is any node
+ * of the document.
+ */
+final class ElementsByIdFunction implements ExtensionFunction {
+
+  static final QName NAME = new QName(
+    NetexXMLParser.VALIDATION_FUNCTIONS_NAMESPACE,
+    "elements-by-id"
+  );
+
+  @Override
+  public QName getName() {
+    return NAME;
+  }
+
+  @Override
+  public SequenceType getResultType() {
+    return SequenceType.makeSequenceType(
+      ItemType.ANY_NODE,
+      OccurrenceIndicator.ZERO_OR_MORE
+    );
+  }
+
+  @Override
+  public SequenceType[] getArgumentTypes() {
+    return new SequenceType[] {
+      SequenceType.makeSequenceType(ItemType.ANY_NODE, OccurrenceIndicator.ONE),
+      SequenceType.makeSequenceType(ItemType.STRING, OccurrenceIndicator.ZERO_OR_MORE),
+    };
+  }
+
+  @Override
+  public XdmValue call(XdmValue[] arguments) {
+    NetexIdIndex netexIdIndex = NetexIdIndex.of((XdmNode) arguments[0].itemAt(0));
+    List<XdmNode> elements = new ArrayList<>();
+    for (XdmItem id : arguments[1]) {
+      elements.addAll(netexIdIndex.get(id.getStringValue()));
+    }
+    return new XdmValue(elements);
+  }
+}
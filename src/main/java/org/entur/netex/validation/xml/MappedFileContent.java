@@ -0,0 +1,139 @@
+package org.entur.netex.validation.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.entur.netex.validation.exception.NetexValidationException;
+
+/**
+ * Content of a file mapped in memory.
+ * The file is read through the operating system page cache instead of being copied onto the Java heap,
+ * which avoids allocating very large byte arrays for large NeTEx documents.
+ * Each call to {@link #get()} returns a new independent stream positioned at the beginning of the file.
+ * Streams can be read concurrently.
+ */
+public final class MappedFileContent implements Supplier<InputStream> {
+
+  private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  private final List<MappedByteBuffer> segments;
+  private final long size;
+
+  private MappedFileContent(List<MappedByteBuffer> segments, long size) {
+    this.segments = segments;
+    this.size = size;
+  }
+
+  /**
+   * Map a file in memory.
+   * Files larger than 2GB are mapped in several segments.
+   */
+  public static MappedFileContent of(Path file) {
+    try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = fileChannel.size();
+      List<MappedByteBuffer> segments = new ArrayList<>();
+      for (long position = 0; position < size; position += MAX_SEGMENT_SIZE) {
+        segments.add(
+          fileChannel.map(
+            FileChannel.MapMode.READ_ONLY,
+            position,
+            Math.min(MAX_SEGMENT_SIZE, size - position)
+          )
+        );
+      }
+      return new MappedFileContent(segments, size);
+    } catch (IOException e) {
+      throw new NetexValidationException("Could not map file " + file, e);
+    }
+  }
+
+  /**
+   * Return the size of the file in bytes.
+   */
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public InputStream get() {
+    return new MappedFileInputStream(
+      segments.stream().map(ByteBuffer::duplicate).toList()
+    );
+  }
+
+  /**
+   * Input stream reading sequentially a list of buffers.
+   * The buffers are private copies of the mapped segments, with their own position.
+   */
+  private static final class MappedFileInputStream extends InputStream {
+
+    private final List<ByteBuffer> buffers;
+    private int currentBuffer;
+
+    private MappedFileInputStream(List<ByteBuffer> buffers) {
+      this.buffers = buffers;
+    }
+
+    @Override
+    public int read() {
+      ByteBuffer buffer = nextBufferWithRemaining();
+      if (buffer == null) {
+        return -1;
+      }
+      return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      ByteBuffer buffer = nextBufferWithRemaining();
+      if (buffer == null) {
+        return -1;
+      }
+      int length = Math.min(len, buffer.remaining());
+      buffer.get(b, off, length);
+      return length;
+    }
+
+    @Override
+    public long skip(long n) {
+      long skipped = 0;
+      while (skipped < n) {
+        ByteBuffer buffer = nextBufferWithRemaining();
+        if (buffer == null) {
+          break;
+        }
+        int length = (int) Math.min(n - skipped, buffer.remaining());
+        buffer.position(buffer.position() + length);
+        skipped += length;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      ByteBuffer buffer = nextBufferWithRemaining();
+      return buffer == null ? 0 : buffer.remaining();
+    }
+
+    private ByteBuffer nextBufferWithRemaining() {
+      while (currentBuffer < buffers.size()) {
+        ByteBuffer buffer = buffers.get(currentBuffer);
+        if (buffer.hasRemaining()) {
+          return buffer;
+        }
+        currentBuffer++;
+      }
+      return null;
+    }
+  }
+}
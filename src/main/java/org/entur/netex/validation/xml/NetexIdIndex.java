@@ -0,0 +1,62 @@
+package org.entur.netex.validation.xml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.sf.saxon.om.TreeInfo;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.streams.Predicates;
+import net.sf.saxon.s9api.streams.Steps;
+
+/**
+ * Index of the elements of a NeTEx document by their id attribute.
+ * The index is built on first use and attached to the document, so that it is built only once per document.
+ * It replaces XPath joins in the form <code>//*[@id = $ref]</code> that scan the whole document for every lookup.
+ * The index is immutable and thread-safe.
+ */
+public final class NetexIdIndex {
+
+  private static final String ID_INDEX_KEY = NetexIdIndex.class.getName();
+
+  private final Map<String, List<XdmNode>> elementsById;
+
+  private NetexIdIndex(Map<String, List<XdmNode>> elementsById) {
+    this.elementsById = elementsById;
+  }
+
+  /**
+   * Return the index of the document the node belongs to.
+   */
+  public static NetexIdIndex of(XdmNode node) {
+    TreeInfo treeInfo = node.getUnderlyingNode().getTreeInfo();
+    synchronized (treeInfo) {
+      if (treeInfo.getUserData(ID_INDEX_KEY) instanceof NetexIdIndex netexIdIndex) {
+        return netexIdIndex;
+      }
+      NetexIdIndex netexIdIndex = build(new XdmNode(treeInfo.getRootNode()));
+      treeInfo.setUserData(ID_INDEX_KEY, netexIdIndex);
+      return netexIdIndex;
+    }
+  }
+
+  private static NetexIdIndex build(XdmNode document) {
+    Map<String, List<XdmNode>> elementsById = new HashMap<>();
+    document
+      .select(Steps.descendant().where(Predicates.hasAttribute("id")))
+      .forEach(element ->
+        elementsById
+          .computeIfAbsent(element.attribute("id"), id -> new ArrayList<>(1))
+          .add(element)
+      );
+    return new NetexIdIndex(elementsById);
+  }
+
+  /**
+   * Return the elements with the given id, in document order.
+   * Several elements can share the same id, for instance different versions of the same entity.
+   */
+  public List<XdmNode> get(String id) {
+    return elementsById.getOrDefault(id, List.of());
+  }
+}
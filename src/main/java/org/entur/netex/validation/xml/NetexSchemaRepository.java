@@ -1,9 +1,19 @@
 package org.entur.netex.validation.xml;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
 import org.entur.netex.validation.exception.NetexValidationException;
 import org.rutebanken.netex.validation.NeTExValidator;
 import org.slf4j.Logger;
@@ -13,6 +23,8 @@ import org.xml.sax.SAXException;
 /**
  * Manage the different versions of the NeTEX XML schema.
  * Parsed instances of the NeTEx schemas are cached.
+ * Schema validators are expensive to create: a bounded pool of reusable validators is maintained for each NeTEx version,
+ * as well as a bounded pool of reusable validator handlers for validating the SAX parsing events of a document.
  */
 public final class NetexSchemaRepository {
 
@@ -20,10 +32,48 @@ public final class NetexSchemaRepository {
     NetexSchemaRepository.class
   );
 
+  public static final int DEFAULT_VALIDATOR_POOL_SIZE = Runtime
+    .getRuntime()
+    .availableProcessors();
+
+  private final Function<NeTExValidator.NetexVersion, Schema> schemaFactory;
   private final Map<NeTExValidator.NetexVersion, Schema> netexSchema;
+  private final Map<NeTExValidator.NetexVersion, BlockingQueue<Validator>> validatorPools;
+  private final Map<
+    NeTExValidator.NetexVersion,
+    BlockingQueue<ValidatorHandler>
+  > validatorHandlerPools;
+  private final int validatorPoolSize;
+  private final AtomicLong validatorPoolHits = new AtomicLong();
+  private final AtomicLong validatorPoolMisses = new AtomicLong();
 
   public NetexSchemaRepository() {
+    this(DEFAULT_VALIDATOR_POOL_SIZE);
+  }
+
+  /**
+   * @param validatorPoolSize the maximum number of idle validators kept for each NeTEx version.
+   *                          A pool size of 0 disables pooling.
+   */
+  public NetexSchemaRepository(int validatorPoolSize) {
+    this(validatorPoolSize, NetexSchemaRepository::createNetexSchema);
+  }
+
+  /**
+   * @param schemaFactory compiles the XML schema of a NeTEx version.
+   */
+  NetexSchemaRepository(
+    int validatorPoolSize,
+    Function<NeTExValidator.NetexVersion, Schema> schemaFactory
+  ) {
+    if (validatorPoolSize < 0) {
+      throw new IllegalArgumentException("The validator pool size must not be negative");
+    }
+    this.schemaFactory = schemaFactory;
     this.netexSchema = new ConcurrentHashMap<>();
+    this.validatorPools = new ConcurrentHashMap<>();
+    this.validatorHandlerPools = new ConcurrentHashMap<>();
+    this.validatorPoolSize = validatorPoolSize;
   }
 
   /**
@@ -32,9 +82,142 @@ public final class NetexSchemaRepository {
    * @return an XML schema for a particular NeTEx version.
    */
   public Schema getNetexSchema(NeTExValidator.NetexVersion version) {
-    return netexSchema.computeIfAbsent(
+    return netexSchema.computeIfAbsent(version, schemaFactory);
+  }
+
+  /**
+   * Initialize in the background the XML schemas for the NeTEx versions that are expected to be validated.
+   * Compiling a NeTEx schema takes several seconds: pre-warming the repository at startup avoids paying this cost
+   * when validating the first file.
+   * A validation that requests a schema while it is being initialized waits for the initialization to complete
+   * instead of compiling the schema a second time.
+   * @param versions the NeTEx versions to initialize.
+   * @param executor the executor running the initialization.
+   * @return a future that completes when all the schemas are initialized.
+   */
+  public CompletableFuture<Void> prewarm(
+    Collection<NeTExValidator.NetexVersion> versions,
+    Executor executor
+  ) {
+    return CompletableFuture.allOf(
+      versions
+        .stream()
+        .map(version ->
+          CompletableFuture.runAsync(() -> getNetexSchema(version), executor)
+        )
+        .toArray(CompletableFuture[]::new)
+    );
+  }
+
+  /**
+   * Return true if the XML schema for the given NeTEx version is already initialized.
+   */
+  boolean isInitialized(NeTExValidator.NetexVersion version) {
+    return netexSchema.containsKey(version);
+  }
+
+  /**
+   * Borrow a schema validator for a particular NeTEx version.
+   * The validator is taken from the pool if available, otherwise a new validator is created.
+   * The validator must be given back with {@link #returnValidator(NeTExValidator.NetexVersion, Validator)}
+   * once the validation is complete, and must not be used afterward.
+   * @param version the NeTEx version
+   * @return a schema validator for a particular NeTEx version.
+   */
+  public Validator borrowValidator(NeTExValidator.NetexVersion version) {
+    Validator validator = getPool(validatorPools, version).poll();
+    if (validator != null) {
+      validatorPoolHits.incrementAndGet();
+      return validator;
+    }
+    validatorPoolMisses.incrementAndGet();
+    return getNetexSchema(version).newValidator();
+  }
+
+  /**
+   * Give back a schema validator to the pool.
+   * The validator is reset to its original configuration. It is discarded if the pool is full.
+   * @param version the NeTEx version of the validator
+   * @param validator the validator obtained from {@link #borrowValidator(NeTExValidator.NetexVersion)}.
+   */
+  public void returnValidator(NeTExValidator.NetexVersion version, Validator validator) {
+    if (validatorPoolSize == 0) {
+      return;
+    }
+    try {
+      validator.reset();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not reset the schema validator, discarding it", e);
+      return;
+    }
+    getPool(validatorPools, version).offer(validator);
+  }
+
+  /**
+   * Borrow a schema validator handler for a particular NeTEx version.
+   * The validator handler is taken from the pool if available, otherwise a new validator handler is created.
+   * The validator handler must be given back with
+   * {@link #returnValidatorHandler(NeTExValidator.NetexVersion, ValidatorHandler)} once the validation is complete,
+   * and must not be used afterward.
+   * @param version the NeTEx version
+   * @return a schema validator handler for a particular NeTEx version.
+   */
+  public ValidatorHandler borrowValidatorHandler(NeTExValidator.NetexVersion version) {
+    ValidatorHandler validatorHandler = getPool(validatorHandlerPools, version).poll();
+    if (validatorHandler != null) {
+      validatorPoolHits.incrementAndGet();
+      return validatorHandler;
+    }
+    validatorPoolMisses.incrementAndGet();
+    return getNetexSchema(version).newValidatorHandler();
+  }
+
+  /**
+   * Give back a schema validator handler to the pool.
+   * The error handler and the content handler are removed, the validation state is reset when the next document
+   * starts. The validator handler is discarded if the pool is full.
+   * @param version the NeTEx version of the validator handler
+   * @param validatorHandler the validator handler obtained from
+   *                         {@link #borrowValidatorHandler(NeTExValidator.NetexVersion)}.
+   */
+  public void returnValidatorHandler(
+    NeTExValidator.NetexVersion version,
+    ValidatorHandler validatorHandler
+  ) {
+    if (validatorPoolSize == 0) {
+      return;
+    }
+    validatorHandler.setErrorHandler(null);
+    validatorHandler.setContentHandler(null);
+    getPool(validatorHandlerPools, version).offer(validatorHandler);
+  }
+
+  /**
+   * @return the number of validators and validator handlers reused from the pools.
+   */
+  public long getValidatorPoolHits() {
+    return validatorPoolHits.get();
+  }
+
+  /**
+   * @return the number of validators and validator handlers created because the pool was empty.
+   */
+  public long getValidatorPoolMisses() {
+    return validatorPoolMisses.get();
+  }
+
+  public int getValidatorPoolSize() {
+    return validatorPoolSize;
+  }
+
+  private <T> BlockingQueue<T> getPool(
+    Map<NeTExValidator.NetexVersion, BlockingQueue<T>> pools,
+    NeTExValidator.NetexVersion version
+  ) {
+    return pools.computeIfAbsent(
       version,
-      netexVersion -> createNetexSchema(version)
+      // the capacity must be positive, an empty pool is never filled
+      netexVersion -> new ArrayBlockingQueue<>(Math.max(1, validatorPoolSize))
     );
   }
 
@@ -58,6 +241,31 @@ public final class NetexSchemaRepository {
   public static NeTExValidator.NetexVersion detectNetexSchemaVersion(byte[] content) {
     String profileVersion =
       PublicationDeliveryVersionAttributeReader.findPublicationDeliveryVersion(content);
+    return detectNetexSchemaVersion(profileVersion);
+  }
+
+  /**
+   * Identify the version of NeTEx used in a document read from a stream.
+   * Only the beginning of the document is read. The stream is not closed.
+   * @param content a stream containing the NeTEx document
+   * @return the NeTEx version.
+   */
+  public static NeTExValidator.NetexVersion detectNetexSchemaVersion(
+    InputStream content
+  ) {
+    String profileVersion =
+      PublicationDeliveryVersionAttributeReader.findPublicationDeliveryVersion(content);
+    return detectNetexSchemaVersion(profileVersion);
+  }
+
+  /**
+   * Identify the version of NeTEx from the version attribute of the PublicationDelivery element.
+   * @param profileVersion the value of the version attribute of the PublicationDelivery element.
+   * @return the NeTEx version.
+   */
+  public static NeTExValidator.NetexVersion detectNetexSchemaVersion(
+    String profileVersion
+  ) {
     String netexSchemaVersion = getSchemaVersion(profileVersion);
 
     if (netexSchemaVersion != null) {
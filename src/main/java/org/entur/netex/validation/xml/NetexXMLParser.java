@@ -2,15 +2,24 @@ package org.entur.netex.validation.xml;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stax.StAXSource;
+import net.sf.saxon.Configuration;
+import net.sf.saxon.lib.Feature;
+import net.sf.saxon.om.TreeInfo;
 import net.sf.saxon.s9api.DocumentBuilder;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
@@ -20,6 +29,10 @@ import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
 import org.entur.netex.validation.exception.NetexValidationException;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 /**
  * NeTEx parsing utility class.
@@ -30,6 +43,23 @@ public class NetexXMLParser {
   public static final String SIRI_NAMESPACE = "http://www.siri.org.uk/siri";
   public static final String OPENGIS_NAMESPACE = "http://www.opengis.net/gml/3.2";
 
+  /**
+   * Namespace of the XPath extension functions provided by the validator, bound to the prefix "nv".
+   */
+  public static final String VALIDATION_FUNCTIONS_NAMESPACE =
+    "http://www.entur.org/netex-validator/functions";
+
+  /**
+   * Saxon processor shared by all parsers.
+   * Precompiled XPath expressions (see {@link CompiledXPath}) are compiled against its configuration.
+   * They can still be evaluated on documents built with another Saxon processor: they are then compiled again
+   * against the configuration of the document (see {@link #newXPathCompiler(Configuration)}).
+   */
+  private static final Processor PROCESSOR = createProcessor();
+
+  private static final String ELEMENT_NAMES_KEY =
+    NetexXMLParser.class.getName() + ".elementNames";
+
   private final XPathCompiler xpathCompiler;
   private final Processor processor;
   private final Set<QName> ignorableNeTexElements;
@@ -39,7 +69,7 @@ public class NetexXMLParser {
   }
 
   public NetexXMLParser(Set<String> ignorableNetexElements) {
-    this.processor = new Processor(false);
+    this.processor = PROCESSOR;
     this.xpathCompiler = buildXPathCompiler();
     this.ignorableNeTexElements =
       ignorableNetexElements
@@ -61,18 +91,98 @@ public class NetexXMLParser {
     return factory;
   }
 
+  /**
+   * Return a secure, namespace-aware, SAX parser factory.
+   * Security-sensitive features are disabled.
+   *
+   * @return a secure SAX parser factory
+   */
+  public static SAXParserFactory getSecureSAXParserFactory() {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    try {
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature(
+        "http://xml.org/sax/features/external-general-entities",
+        false
+      );
+      factory.setFeature(
+        "http://xml.org/sax/features/external-parameter-entities",
+        false
+      );
+      factory.setFeature(
+        "http://apache.org/xml/features/nonvalidating/load-external-dtd",
+        false
+      );
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new NetexValidationException("Could not configure the SAX parser", e);
+    }
+    return factory;
+  }
+
+  private static Processor createProcessor() {
+    Processor processor = new Processor(false);
+    processor.setConfigurationProperty(Feature.LINE_NUMBERING, true);
+    processor.registerExtensionFunction(new ElementsByIdFunction());
+    return processor;
+  }
+
   /**
    * Return a shared, thread-safe, instance of XPathCompiler.
    *
    * @return a shared XPathCompiler.
    */
   private XPathCompiler buildXPathCompiler() {
-    XPathCompiler compiler = processor.newXPathCompiler();
+    XPathCompiler compiler = newXPathCompiler();
     compiler.setCaching(true);
+    return compiler;
+  }
+
+  /**
+   * Return a new XPathCompiler bound to the shared Saxon processor, with the NeTEx namespaces declared.
+   * The compiler is not shared: variables can be declared on it.
+   *
+   * @return a new XPathCompiler.
+   */
+  static XPathCompiler newXPathCompiler() {
+    return newXPathCompiler(PROCESSOR);
+  }
+
+  /**
+   * Return true if documents built with the given configuration can be queried with the XPath expressions
+   * compiled by {@link #newXPathCompiler()}.
+   */
+  static boolean isSharedConfiguration(Configuration configuration) {
+    return configuration.isCompatible(PROCESSOR.getUnderlyingConfiguration());
+  }
+
+  /**
+   * Return a new XPathCompiler for querying documents built with the given configuration,
+   * with the NeTEx namespaces declared.
+   * If the configuration is not the shared one, the XPath extension functions of the validator are registered
+   * on it.
+   *
+   * @return a new XPathCompiler.
+   */
+  static XPathCompiler newXPathCompiler(Configuration configuration) {
+    if (isSharedConfiguration(configuration)) {
+      return newXPathCompiler();
+    }
+    Processor processor = new Processor(configuration);
+    synchronized (configuration) {
+      // registering the function again replaces the previous registration
+      processor.registerExtensionFunction(new ElementsByIdFunction());
+    }
+    return newXPathCompiler(processor);
+  }
+
+  private static XPathCompiler newXPathCompiler(Processor processor) {
+    XPathCompiler compiler = processor.newXPathCompiler();
     compiler.declareNamespace("", NETEX_NAMESPACE);
     compiler.declareNamespace("n", NETEX_NAMESPACE);
     compiler.declareNamespace("s", SIRI_NAMESPACE);
     compiler.declareNamespace("g", OPENGIS_NAMESPACE);
+    compiler.declareNamespace("nv", VALIDATION_FUNCTIONS_NAMESPACE);
     return compiler;
   }
 
@@ -98,19 +208,106 @@ public class NetexXMLParser {
     builder.setLineNumbering(true);
     builder.setWhitespaceStrippingPolicy(WhitespaceStrippingPolicy.ALL);
     try {
-      return builder.build(
+      XMLStreamReader xmlStreamReader = SkippingXMLStreamReaderFactory.newXMLStreamReader(
+        new BufferedInputStream(inputStream),
+        ignorableNeTexElements
+      );
+      Set<String> elementNames = new HashSet<>();
+      XdmNode document = builder.build(
         new StAXSource(
-          SkippingXMLStreamReaderFactory.newXMLStreamReader(
-            new BufferedInputStream(inputStream),
-            ignorableNeTexElements
-          )
+          getSecureXmlInputFactory()
+            .createFilteredReader(
+              xmlStreamReader,
+              reader -> {
+                if (reader.isStartElement()) {
+                  elementNames.add(reader.getLocalName());
+                }
+                return true;
+              }
+            )
         )
       );
+      setElementNames(document, elementNames);
+      return document;
     } catch (SaxonApiException | XMLStreamException e) {
       throw new NetexValidationException("Exception while parsing the NeTex document", e);
     }
   }
 
+  /**
+   * Parse an input stream containing an XML document and return an XML nodes graph.
+   * The parsing events that are kept in the graph are forwarded to the listener in the same parsing pass,
+   * so that the listener can extract data from the document without querying the graph afterward.
+   *
+   * @param listener handler that receives the parsing events that are kept in the graph.
+   */
+  public XdmNode parseInputStreamToXdmNode(
+    InputStream inputStream,
+    ContentHandler listener
+  ) {
+    XdmNodeBuildingContentHandler xdmNodeBuilder = newXdmNodeBuildingContentHandler(
+      listener
+    );
+    try {
+      XMLReader xmlReader = getSecureSAXParserFactory().newSAXParser().getXMLReader();
+      xmlReader.setContentHandler(xdmNodeBuilder);
+      xmlReader.setProperty(
+        XdmNodeBuildingContentHandler.LEXICAL_HANDLER_PROPERTY,
+        xdmNodeBuilder
+      );
+      xmlReader.parse(new InputSource(new BufferedInputStream(inputStream)));
+    } catch (ParserConfigurationException | SAXException | IOException e) {
+      throw new NetexValidationException("Exception while parsing the NeTex document", e);
+    }
+    return xdmNodeBuilder.getDocumentNode();
+  }
+
+  /**
+   * Return the local names of the elements present in the document the node belongs to.
+   * The names are recorded while the document is built by this class.
+   *
+   * @return the local names of the elements present in the document, or null if they were not recorded.
+   */
+  public static Set<String> getElementNames(XdmNode node) {
+    TreeInfo treeInfo = node.getUnderlyingNode().getTreeInfo();
+    synchronized (treeInfo) {
+      return treeInfo.getUserData(ELEMENT_NAMES_KEY) instanceof ElementNames names
+        ? names.localNames()
+        : null;
+    }
+  }
+
+  static void setElementNames(XdmNode document, Set<String> elementNames) {
+    TreeInfo treeInfo = document.getUnderlyingNode().getTreeInfo();
+    synchronized (treeInfo) {
+      treeInfo.setUserData(ELEMENT_NAMES_KEY, new ElementNames(Set.copyOf(elementNames)));
+    }
+  }
+
+  /**
+   * Return a SAX handler that builds an XML nodes graph from the parsing events produced by another component.
+   * The handler applies the same settings as {@link #parseInputStreamToXdmNode(InputStream)}.
+   * A new handler must be created for each document.
+   *
+   * @param listener optional handler that receives the parsing events that are kept in the graph.
+   */
+  public XdmNodeBuildingContentHandler newXdmNodeBuildingContentHandler(
+    ContentHandler listener
+  ) {
+    DocumentBuilder builder = processor.newDocumentBuilder();
+    builder.setLineNumbering(true);
+    builder.setWhitespaceStrippingPolicy(WhitespaceStrippingPolicy.ALL);
+    try {
+      return new XdmNodeBuildingContentHandler(
+        builder.newBuildingContentHandler(),
+        ignorableNeTexElements,
+        listener
+      );
+    } catch (SaxonApiException e) {
+      throw new NetexValidationException("Exception while parsing the NeTex document", e);
+    }
+  }
+
   /**
    * Select a set of nodes according to an XPath expression.
    *
@@ -131,7 +328,30 @@ public class NetexXMLParser {
     }
   }
 
+  /**
+   * Select a set of nodes according to a precompiled XPath expression.
+   *
+   * @param expression the XPath expression to evaluate.
+   * @param document   the XML document on which the XPath is evaluated.
+   * @return the nodes that match the XPath expression.
+   */
+  public XdmValue selectNodeSet(CompiledXPath expression, XdmNode document) {
+    try {
+      return expression.evaluate(document);
+    } catch (SaxonApiException e) {
+      throw new NetexValidationException(
+        "Exception while selecting node with xPath " + expression.getExpression(),
+        e
+      );
+    }
+  }
+
   public XPathCompiler getXPathCompiler() {
     return xpathCompiler;
   }
+
+  /**
+   * Local names of the elements present in a document, attached to the document tree.
+   */
+  private record ElementNames(Set<String> localNames) {}
 }
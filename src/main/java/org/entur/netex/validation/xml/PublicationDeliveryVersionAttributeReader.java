@@ -26,10 +26,23 @@ public final class PublicationDeliveryVersionAttributeReader {
   private PublicationDeliveryVersionAttributeReader() {}
 
   public static String findPublicationDeliveryVersion(byte[] content) {
+    try (InputStream in = new ByteArrayInputStream(content)) {
+      return findPublicationDeliveryVersion(in);
+    } catch (IOException e) {
+      LOGGER.error("Error closing file", e);
+      return null;
+    }
+  }
+
+  /**
+   * Read the version attribute from a stream containing a NeTEx document.
+   * Only the beginning of the document is read, up to the PublicationDelivery element.
+   * The stream is not closed.
+   */
+  public static String findPublicationDeliveryVersion(InputStream in) {
     String versionAttribute = null;
     try {
       XMLInputFactory inputFactory = NetexXMLParser.getSecureXmlInputFactory();
-      InputStream in = new ByteArrayInputStream(content);
       XMLEventReader eventReader = inputFactory.createXMLEventReader(
         new BufferedInputStream(in)
       );
@@ -51,11 +64,8 @@ public final class PublicationDeliveryVersionAttributeReader {
         }
       }
       eventReader.close();
-      in.close();
     } catch (XMLStreamException e) {
       LOGGER.error("Malformed xml", e);
-    } catch (IOException e) {
-      LOGGER.error("Error closing file", e);
     }
 
     return versionAttribute;
@@ -0,0 +1,100 @@
+package org.entur.netex.validation.xml;
+
+import java.util.List;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * SAX handler that forwards the parsing events to several handlers, in the given order.
+ * This makes it possible to process a document with several consumers while parsing it only once.
+ */
+public class TeeContentHandler implements ContentHandler {
+
+  private final List<ContentHandler> contentHandlers;
+
+  public TeeContentHandler(ContentHandler... contentHandlers) {
+    this.contentHandlers = List.of(contentHandlers);
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.setDocumentLocator(locator);
+    }
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.startDocument();
+    }
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.endDocument();
+    }
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.startPrefixMapping(prefix, uri);
+    }
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.endPrefixMapping(prefix);
+    }
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+    throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.startElement(uri, localName, qName, atts);
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName)
+    throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.endElement(uri, localName, qName);
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.characters(ch, start, length);
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length)
+    throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.ignorableWhitespace(ch, start, length);
+    }
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.processingInstruction(target, data);
+    }
+  }
+
+  @Override
+  public void skippedEntity(String name) throws SAXException {
+    for (ContentHandler contentHandler : contentHandlers) {
+      contentHandler.skippedEntity(name);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package org.entur.netex.validation.xml;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import net.sf.saxon.s9api.BuildingContentHandler;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmNode;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * SAX handler that builds an XML nodes graph from the parsing events produced by another component.
+ * This makes it possible to build the graph while the document is parsed for another purpose (for example
+ * XML schema validation), instead of parsing the document a second time.
+ * The graph is built with the same settings as {@link NetexXMLParser#parseInputStreamToXdmNode}:
+ * the given XML elements are skipped, whitespace-only text nodes are stripped and the names of the elements present
+ * in the document are recorded (see {@link NetexXMLParser#getElementNames}).
+ * The parsing events that are kept in the graph can also be forwarded to an additional listener.
+ * The handler is also a {@link LexicalHandler}: it must be registered as such on the parser so that comments are
+ * kept in the graph, as they are by {@link NetexXMLParser#parseInputStreamToXdmNode(java.io.InputStream)}.
+ */
+public class XdmNodeBuildingContentHandler implements ContentHandler, LexicalHandler {
+
+  /**
+   * SAX property for registering a {@link LexicalHandler} on a parser.
+   */
+  public static final String LEXICAL_HANDLER_PROPERTY =
+    "http://xml.org/sax/properties/lexical-handler";
+
+  private final BuildingContentHandler buildingContentHandler;
+  private final LexicalHandler lexicalHandler;
+  private final Set<QName> elementsToSkip;
+  private final ContentHandler listener;
+
+  private final List<String[]> pendingPrefixMappings = new ArrayList<>();
+  private final List<String> suppressedPrefixMappings = new ArrayList<>();
+  private final StringBuilder pendingCharacters = new StringBuilder();
+  private final Set<String> elementNames = new HashSet<>();
+  private int skippedDepth;
+  private boolean complete;
+
+  XdmNodeBuildingContentHandler(
+    BuildingContentHandler buildingContentHandler,
+    Set<QName> elementsToSkip,
+    ContentHandler listener
+  ) {
+    this.buildingContentHandler = buildingContentHandler;
+    this.lexicalHandler = buildingContentHandler instanceof LexicalHandler
+      ? (LexicalHandler) buildingContentHandler
+      : null;
+    this.elementsToSkip = elementsToSkip;
+    this.listener = listener;
+  }
+
+  /**
+   * Return the XML nodes graph, or null if the parsing did not complete.
+   */
+  public XdmNode getDocumentNode() {
+    if (!complete) {
+      return null;
+    }
+    try {
+      XdmNode document = buildingContentHandler.getDocumentNode();
+      NetexXMLParser.setElementNames(document, elementNames);
+      return document;
+    } catch (SaxonApiException e) {
+      throw new NetexValidationException("Exception while parsing the NeTex document", e);
+    }
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    buildingContentHandler.setDocumentLocator(locator);
+    if (listener != null) {
+      listener.setDocumentLocator(locator);
+    }
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    buildingContentHandler.startDocument();
+    if (listener != null) {
+      listener.startDocument();
+    }
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    flushCharacters();
+    buildingContentHandler.endDocument();
+    if (listener != null) {
+      listener.endDocument();
+    }
+    complete = true;
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) {
+    // the prefix mappings are forwarded with the element they are declared on, unless this element is skipped
+    if (skippedDepth == 0) {
+      pendingPrefixMappings.add(new String[] { prefix, uri });
+    }
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+    // the end of the prefix mappings declared on a skipped element is received after the element is closed
+    if (skippedDepth == 0 && !suppressedPrefixMappings.remove(prefix)) {
+      buildingContentHandler.endPrefixMapping(prefix);
+      if (listener != null) {
+        listener.endPrefixMapping(prefix);
+      }
+    }
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+    throws SAXException {
+    if (skippedDepth > 0) {
+      skippedDepth++;
+      return;
+    }
+    if (elementsToSkip.contains(new QName(uri, localName))) {
+      for (String[] prefixMapping : pendingPrefixMappings) {
+        suppressedPrefixMappings.add(prefixMapping[0]);
+      }
+      pendingPrefixMappings.clear();
+      skippedDepth = 1;
+      return;
+    }
+    flushCharacters();
+    for (String[] prefixMapping : pendingPrefixMappings) {
+      buildingContentHandler.startPrefixMapping(prefixMapping[0], prefixMapping[1]);
+      if (listener != null) {
+        listener.startPrefixMapping(prefixMapping[0], prefixMapping[1]);
+      }
+    }
+    pendingPrefixMappings.clear();
+    elementNames.add(localName);
+    buildingContentHandler.startElement(uri, localName, qName, atts);
+    if (listener != null) {
+      listener.startElement(uri, localName, qName, atts);
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName)
+    throws SAXException {
+    if (skippedDepth > 0) {
+      skippedDepth--;
+      return;
+    }
+    flushCharacters();
+    buildingContentHandler.endElement(uri, localName, qName);
+    if (listener != null) {
+      listener.endElement(uri, localName, qName);
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    // a text node may be split across several events: the text is buffered until the next tag
+    // so that whitespace-only text nodes can be stripped.
+    if (skippedDepth == 0) {
+      pendingCharacters.append(ch, start, length);
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) {
+    // whitespace-only text nodes are stripped
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    if (skippedDepth == 0) {
+      flushCharacters();
+      buildingContentHandler.processingInstruction(target, data);
+    }
+  }
+
+  @Override
+  public void skippedEntity(String name) {
+    // external entities are not resolved
+  }
+
+  @Override
+  public void comment(char[] ch, int start, int length) throws SAXException {
+    if (skippedDepth == 0 && lexicalHandler != null) {
+      flushCharacters();
+      lexicalHandler.comment(ch, start, length);
+    }
+  }
+
+  @Override
+  public void startDTD(String name, String publicId, String systemId) {
+    // DTDs are not supported
+  }
+
+  @Override
+  public void endDTD() {
+    // DTDs are not supported
+  }
+
+  @Override
+  public void startEntity(String name) {
+    // external entities are not resolved
+  }
+
+  @Override
+  public void endEntity(String name) {
+    // external entities are not resolved
+  }
+
+  @Override
+  public void startCDATA() {
+    // CDATA sections are built as text nodes
+  }
+
+  @Override
+  public void endCDATA() {
+    // CDATA sections are built as text nodes
+  }
+
+  private void flushCharacters() throws SAXException {
+    if (pendingCharacters.isEmpty()) {
+      return;
+    }
+    if (!pendingCharacters.toString().isBlank()) {
+      char[] text = pendingCharacters.toString().toCharArray();
+      buildingContentHandler.characters(text, 0, text.length);
+      if (listener != null) {
+        listener.characters(text, 0, text.length);
+      }
+    }
+    pendingCharacters.setLength(0);
+  }
+}
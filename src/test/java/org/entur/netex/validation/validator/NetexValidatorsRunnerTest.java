@@ -1,18 +1,39 @@
 package org.entur.netex.validation.validator;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.validation.cli.FileEntry;
 import org.entur.netex.validation.validator.id.VersionOnLocalNetexIdValidator;
+import org.entur.netex.validation.validator.jaxb.CommonDataRepositoryLoader;
+import org.entur.netex.validation.validator.jaxb.JAXBValidationContext;
+import org.entur.netex.validation.validator.jaxb.JAXBValidator;
+import org.entur.netex.validation.validator.jaxb.NetexDataCollector;
+import org.entur.netex.validation.validator.jaxb.SkippableNetexElements;
 import org.entur.netex.validation.validator.schema.NetexSchemaValidationContext;
 import org.entur.netex.validation.validator.schema.NetexSchemaValidator;
 import org.entur.netex.validation.validator.xpath.XPathValidationContext;
 import org.entur.netex.validation.xml.NetexXMLParser;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 
 class NetexValidatorsRunnerTest {
 
@@ -34,6 +55,27 @@ class NetexValidatorsRunnerTest {
                 </PublicationDelivery>
                 """;
 
+  private static final String NETEX_FRAGMENT_WITH_SITE_FRAME =
+    """
+                <PublicationDelivery xmlns="http://www.netex.org.uk/netex" xmlns:ns2="http://www.opengis.net/gml/3.2" xmlns:ns3="http://www.siri.org.uk/siri" version="1.15:NO-NeTEx-networktimetable:1.5">
+                    <dataObjects>
+                      <SiteFrame id="ENT:SiteFrame:1" version="1">
+                        <stopPlaces>
+                          <StopPlace id="NSR:StopPlace:1" version="1">
+                          </StopPlace>
+                        </stopPlaces>
+                      </SiteFrame>
+                      <ServiceFrame id="ENT:ServiceFrame:1" version="2223">
+                        <lines>
+                          <Line id="ENT:Line:2_1" version="2223">
+                          </Line>
+                        </lines>
+                      </ServiceFrame>
+                    </dataObjects>
+                </PublicationDelivery>
+                """;
+  private static final String TEST_STOP_PLACE_ID = "NSR:StopPlace:1";
+
   @Test
   void testNoValidator() {
     NetexValidatorsRunner runner = NetexValidatorsRunner.of().build();
@@ -170,6 +212,412 @@ class NetexValidatorsRunnerTest {
     assertTrue(callback.event.hasError());
   }
 
+  @Test
+  void testConcurrentXPathValidationKeepsRegistrationOrder() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      CountDownLatch secondValidatorDone = new CountDownLatch(1);
+      ValidationRule firstRule = new ValidationRule("FIRST", "first", Severity.ERROR);
+      ValidationRule secondRule = new ValidationRule("SECOND", "second", Severity.ERROR);
+      NetexValidatorsRunner runner = NetexValidatorsRunner
+        .of()
+        .withNetexXMLParser(new NetexXMLParser())
+        .withXPathValidators(
+          List.of(
+            new SingleIssueXPathValidator(firstRule) {
+              @Override
+              public List<ValidationIssue> validate(
+                XPathValidationContext validationContext
+              ) {
+                try {
+                  // the first validator completes after the second one
+                  assertTrue(secondValidatorDone.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  fail(e);
+                }
+                return super.validate(validationContext);
+              }
+            },
+            new SingleIssueXPathValidator(secondRule) {
+              @Override
+              public List<ValidationIssue> validate(
+                XPathValidationContext validationContext
+              ) {
+                List<ValidationIssue> issues = super.validate(validationContext);
+                secondValidatorDone.countDown();
+                return issues;
+              }
+            }
+          )
+        )
+        .withXPathValidatorExecutor(executor)
+        .build();
+      ValidationReport report = validationReport(runner);
+
+      List<String> ruleNames = report
+        .getValidationReportEntries()
+        .stream()
+        .map(ValidationReportEntry::getName)
+        .toList();
+      assertEquals(List.of("first", "second"), ruleNames);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testSequentialJAXBValidatorRunsOnCallingThread() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Thread callingThread = Thread.currentThread();
+      AtomicBoolean sequentialValidatorOnCallingThread = new AtomicBoolean();
+      ValidationRule concurrentRule = new ValidationRule(
+        "CONCURRENT",
+        "concurrent",
+        Severity.WARNING
+      );
+      ValidationRule sequentialRule = new ValidationRule(
+        "SEQUENTIAL",
+        "sequential",
+        Severity.WARNING
+      );
+      NetexValidatorsRunner runner = NetexValidatorsRunner
+        .of()
+        .withNetexXMLParser(new NetexXMLParser())
+        .withJaxbValidators(
+          List.of(
+            new SequentialJAXBValidator(sequentialRule) {
+              @Override
+              public List<ValidationIssue> validate(
+                JAXBValidationContext validationContext
+              ) {
+                sequentialValidatorOnCallingThread.set(
+                  Thread.currentThread() == callingThread
+                );
+                return super.validate(validationContext);
+              }
+            },
+            new SingleIssueJAXBValidator(concurrentRule)
+          )
+        )
+        .withJaxbValidatorExecutor(executor)
+        .build();
+      ValidationReport report = validationReport(runner);
+
+      assertTrue(sequentialValidatorOnCallingThread.get());
+      List<String> ruleNames = report
+        .getValidationReportEntries()
+        .stream()
+        .map(ValidationReportEntry::getName)
+        .toList();
+      assertEquals(List.of("sequential", "concurrent"), ruleNames);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testSpeculativePreparationDiscardedOnSchemaError() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      NetexValidatorsRunner runner = NetexValidatorsRunner
+        .of()
+        .withNetexSchemaValidator(
+          new TestNetexSchemaValidator(
+            List.of(
+              new ValidationIssue(
+                NetexSchemaValidator.RULE_ERROR,
+                DataLocation.EMPTY_LOCATION,
+                "an error"
+              )
+            )
+          )
+        )
+        .withNetexXMLParser(new NetexXMLParser())
+        .withXPathValidators(List.of(new FailingXPathValidator()))
+        .withSpeculativeExecutor(executor)
+        .build();
+      ValidationReport report = validationReport(runner);
+
+      // the failing XPath validator is not run
+      assertEquals(1, report.getValidationReportEntries().size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testSpeculativePreparationUsedWhenNoSchemaError() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ValidationRule xPathRule = new ValidationRule("XPATH", "xpath", Severity.WARNING);
+      ValidationRule jaxbRule = new ValidationRule("JAXB", "jaxb", Severity.WARNING);
+      NetexValidatorsRunner runner = NetexValidatorsRunner
+        .of()
+        .withNetexSchemaValidator(new TestNetexSchemaValidator(List.of()))
+        .withNetexXMLParser(new NetexXMLParser())
+        .withXPathValidators(List.of(new SingleIssueXPathValidator(xPathRule)))
+        .withJaxbValidators(List.of(new SingleIssueJAXBValidator(jaxbRule)))
+        .withSpeculativeExecutor(executor)
+        .build();
+      ValidationReport report = validationReport(runner);
+
+      List<String> ruleNames = report
+        .getValidationReportEntries()
+        .stream()
+        .map(ValidationReportEntry::getName)
+        .toList();
+      assertEquals(List.of("xpath", "jaxb"), ruleNames);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testJAXBValidationContextBuiltFromXdmNode() {
+    ValidationRule jaxbRule = new ValidationRule("JAXB", "jaxb", Severity.WARNING);
+    List<String> lineIds = new ArrayList<>();
+    NetexValidatorsRunner runner = NetexValidatorsRunner
+      .of()
+      .withNetexXMLParser(new NetexXMLParser())
+      .withJaxbValidators(
+        List.of(
+          new SingleIssueJAXBValidator(jaxbRule) {
+            @Override
+            public List<ValidationIssue> validate(
+              JAXBValidationContext validationContext
+            ) {
+              validationContext.lines().forEach(line -> lineIds.add(line.getId()));
+              return super.validate(validationContext);
+            }
+          }
+        )
+      )
+      .withXdmNodeUnmarshalling(true)
+      .build();
+    ValidationReport report = validationReport(runner);
+
+    assertEquals(1, report.getValidationReportEntries().size());
+    assertEquals(List.of("ENT:Line:2_1"), lineIds);
+  }
+
+  @Test
+  void testCommonFileFullyIndexedWhenUnmarshallingFromXdmNode() {
+    ValidationRule jaxbRule = new ValidationRule("JAXB", "jaxb", Severity.WARNING);
+    List<NetexEntitiesIndex> validatedIndexes = new ArrayList<>();
+    CommonDataRepositoryLoader commonDataRepository = mock(
+      CommonDataRepositoryLoader.class
+    );
+    NetexValidatorsRunner runner = NetexValidatorsRunner
+      .of()
+      .withNetexXMLParser(new NetexXMLParser(Set.of("SiteFrame")))
+      .withJaxbValidators(
+        List.of(
+          new SingleIssueJAXBValidator(jaxbRule) {
+            @Override
+            public List<ValidationIssue> validate(
+              JAXBValidationContext validationContext
+            ) {
+              validatedIndexes.add(validationContext.getNetexEntitiesIndex());
+              return super.validate(validationContext);
+            }
+          }
+        )
+      )
+      .withCommonDataRepository(commonDataRepository)
+      .withXdmNodeUnmarshalling(true)
+      .build();
+    byte[] content = NETEX_FRAGMENT_WITH_SITE_FRAME.getBytes(StandardCharsets.UTF_8);
+    runner.validate(TEST_CODESPACE, TEST_VALIDATION_REPORT_ID, "_common.xml", content);
+    runner.validate(TEST_CODESPACE, TEST_VALIDATION_REPORT_ID, "line.xml", content);
+
+    ArgumentCaptor<NetexEntitiesIndex> collectedIndex = ArgumentCaptor.forClass(
+      NetexEntitiesIndex.class
+    );
+    verify(commonDataRepository)
+      .collect(eq(TEST_VALIDATION_REPORT_ID), collectedIndex.capture());
+    assertNotNull(
+      collectedIndex.getValue().getStopPlaceIndex().getLatestVersion(TEST_STOP_PLACE_ID)
+    );
+    // line files are unmarshalled from the XML nodes graph, without the ignored SiteFrame
+    assertEquals(2, validatedIndexes.size());
+    assertNull(
+      validatedIndexes.get(1).getStopPlaceIndex().getLatestVersion(TEST_STOP_PLACE_ID)
+    );
+    assertNotNull(validatedIndexes.get(1).getLineIndex().get("ENT:Line:2_1"));
+  }
+
+  @Test
+  void testSkipElementsThatNoValidatorReads() {
+    IndexCapturingJAXBValidator jaxbValidator = new IndexCapturingJAXBValidator();
+    NetexValidatorsRunner runner = NetexValidatorsRunner
+      .of()
+      .withNetexXMLParser(new NetexXMLParser())
+      .withJaxbValidators(List.of(jaxbValidator))
+      .build();
+    validateWithSiteFrame(runner, "line.xml");
+
+    NetexEntitiesIndex index = jaxbValidator.validatedIndexes.get(0);
+    assertNull(index.getStopPlaceIndex().getLatestVersion(TEST_STOP_PLACE_ID));
+    assertNotNull(index.getLineIndex().get("ENT:Line:2_1"));
+  }
+
+  @Test
+  void testKeepElementsReadByACollector() {
+    IndexCapturingJAXBValidator jaxbValidator = new IndexCapturingJAXBValidator();
+    NetexValidatorsRunner runner = NetexValidatorsRunner
+      .of()
+      .withNetexXMLParser(new NetexXMLParser())
+      .withJaxbValidators(List.of(jaxbValidator))
+      .withNetexDataCollectors(
+        List.of(
+          new NetexDataCollector() {
+            @Override
+            public Set<String> getRequiredNetexElements() {
+              return Set.of(SkippableNetexElements.SITE_FRAME);
+            }
+
+            @Override
+            protected void collectDataFromLineFile(
+              JAXBValidationContext validationContext
+            ) {}
+
+            @Override
+            protected void collectDataFromCommonFile(
+              JAXBValidationContext validationContext
+            ) {}
+          }
+        )
+      )
+      .build();
+    validateWithSiteFrame(runner, "line.xml");
+
+    assertNotNull(
+      jaxbValidator.validatedIndexes
+        .get(0)
+        .getStopPlaceIndex()
+        .getLatestVersion(TEST_STOP_PLACE_ID)
+    );
+  }
+
+  @Test
+  void testCommonFileFullyIndexedWithCommonDataRepository() {
+    IndexCapturingJAXBValidator jaxbValidator = new IndexCapturingJAXBValidator();
+    NetexValidatorsRunner runner = NetexValidatorsRunner
+      .of()
+      .withNetexXMLParser(new NetexXMLParser())
+      .withJaxbValidators(List.of(jaxbValidator))
+      .withCommonDataRepository(mock(CommonDataRepositoryLoader.class))
+      .build();
+    validateWithSiteFrame(runner, "_common.xml");
+    validateWithSiteFrame(runner, "line.xml");
+
+    assertNotNull(
+      jaxbValidator.validatedIndexes
+        .get(0)
+        .getStopPlaceIndex()
+        .getLatestVersion(TEST_STOP_PLACE_ID)
+    );
+    assertNull(
+      jaxbValidator.validatedIndexes
+        .get(1)
+        .getStopPlaceIndex()
+        .getLatestVersion(TEST_STOP_PLACE_ID)
+    );
+  }
+
+  @Test
+  void testValidateFromPath(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve(TEST_FILENAME);
+    Files.writeString(file, NETEX_FRAGMENT);
+    ValidationRule xPathRule = new ValidationRule("XPATH", "xpath", Severity.WARNING);
+    ValidationRule jaxbRule = new ValidationRule("JAXB", "jaxb", Severity.WARNING);
+    NetexValidatorsRunner runner = NetexValidatorsRunner
+      .of()
+      .withNetexXMLParser(new NetexXMLParser())
+      .withXPathValidators(List.of(new SingleIssueXPathValidator(xPathRule)))
+      .withJaxbValidators(List.of(new SingleIssueJAXBValidator(jaxbRule)))
+      .build();
+    ValidationReport report = runner.validate(
+      TEST_CODESPACE,
+      TEST_VALIDATION_REPORT_ID,
+      file
+    );
+
+    List<String> ruleNames = report
+      .getValidationReportEntries()
+      .stream()
+      .map(ValidationReportEntry::getName)
+      .toList();
+    assertEquals(List.of("xpath", "jaxb"), ruleNames);
+  }
+
+  @Test
+  void testValidateDatasetValidatesCommonFilesFirst() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<String> validatedFiles = Collections.synchronizedList(new ArrayList<>());
+      AtomicBoolean datasetValidation = new AtomicBoolean();
+      NetexValidatorsRunner runner = NetexValidatorsRunner
+        .of()
+        .withNetexXMLParser(new NetexXMLParser())
+        .withXPathValidators(
+          List.of(
+            new XPathValidator() {
+              @Override
+              public List<ValidationIssue> validate(
+                XPathValidationContext validationContext
+              ) {
+                validatedFiles.add(validationContext.getFileName());
+                return List.of(
+                  new ValidationIssue(
+                    new ValidationRule("code", "name", Severity.WARNING),
+                    DataLocation.EMPTY_LOCATION
+                  )
+                );
+              }
+
+              @Override
+              public Set<ValidationRule> getRules() {
+                return Set.of();
+              }
+            }
+          )
+        )
+        .withDatasetValidators(
+          List.of(validationReport -> {
+            datasetValidation.set(true);
+            assertEquals(3, validationReport.getValidationReportEntries().size());
+            return validationReport;
+          })
+        )
+        .build();
+      byte[] content = NETEX_FRAGMENT.getBytes(StandardCharsets.UTF_8);
+      ValidationReport report = runner.validateDataset(
+        TEST_CODESPACE,
+        TEST_VALIDATION_REPORT_ID,
+        List.of(
+          new FileEntry("line1.xml", content),
+          new FileEntry("_common.xml", content),
+          new FileEntry("line2.xml", content)
+        ),
+        executor
+      );
+
+      assertTrue(datasetValidation.get());
+      assertEquals(3, report.getValidationReportEntries().size());
+      assertEquals(TEST_VALIDATION_REPORT_ID, report.getValidationReportId());
+      assertEquals("_common.xml", validatedFiles.get(0));
+      assertEquals(
+        Set.of("line1.xml", "line2.xml"),
+        Set.copyOf(validatedFiles.subList(1, 3))
+      );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   void testDescriptions() {
     XPathValidator xPathValidator = new VersionOnLocalNetexIdValidator();
@@ -203,6 +651,18 @@ class NetexValidatorsRunnerTest {
     );
   }
 
+  private static void validateWithSiteFrame(
+    NetexValidatorsRunner runner,
+    String filename
+  ) {
+    runner.validate(
+      TEST_CODESPACE,
+      TEST_VALIDATION_REPORT_ID,
+      filename,
+      NETEX_FRAGMENT_WITH_SITE_FRAME.getBytes(StandardCharsets.UTF_8)
+    );
+  }
+
   private static class TestNetexSchemaValidator extends NetexSchemaValidator {
 
     private final List<ValidationIssue> issues;
@@ -238,6 +698,77 @@ class NetexValidatorsRunnerTest {
     }
   }
 
+  private static class SingleIssueXPathValidator implements XPathValidator {
+
+    private final ValidationRule rule;
+
+    SingleIssueXPathValidator(ValidationRule rule) {
+      this.rule = rule;
+    }
+
+    @Override
+    public List<ValidationIssue> validate(XPathValidationContext validationContext) {
+      return List.of(new ValidationIssue(rule, DataLocation.EMPTY_LOCATION));
+    }
+
+    @Override
+    public Set<ValidationRule> getRules() {
+      return Set.of(rule);
+    }
+  }
+
+  private static class SingleIssueJAXBValidator implements JAXBValidator {
+
+    private final ValidationRule rule;
+
+    SingleIssueJAXBValidator(ValidationRule rule) {
+      this.rule = rule;
+    }
+
+    @Override
+    public List<ValidationIssue> validate(JAXBValidationContext validationContext) {
+      return List.of(new ValidationIssue(rule, DataLocation.EMPTY_LOCATION));
+    }
+
+    @Override
+    public Set<ValidationRule> getRules() {
+      return Set.of(rule);
+    }
+  }
+
+  /**
+   * JAXB validator that reads none of the skippable elements and records the index of each validated file.
+   */
+  private static class IndexCapturingJAXBValidator implements JAXBValidator {
+
+    private final List<NetexEntitiesIndex> validatedIndexes = new ArrayList<>();
+
+    @Override
+    public List<ValidationIssue> validate(JAXBValidationContext validationContext) {
+      validatedIndexes.add(validationContext.getNetexEntitiesIndex());
+      return List.of();
+    }
+
+    @Override
+    public Set<ValidationRule> getRules() {
+      return Set.of();
+    }
+
+    @Override
+    public Set<String> getRequiredNetexElements() {
+      return Set.of();
+    }
+  }
+
+  private static class SequentialJAXBValidator
+    extends SingleIssueJAXBValidator
+    implements SequentialValidator {
+
+    SequentialJAXBValidator(ValidationRule rule) {
+      super(rule);
+    }
+  }
+
   private static class TestValidationProgressCallBack
     implements NetexValidationProgressCallBack {
 
@@ -0,0 +1,198 @@
+package org.entur.netex.validation.validator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.junit.jupiter.api.Test;
+
+class ReportStateTrackerTest {
+
+  private static final long ONE_MINUTE = Duration.ofMinutes(1).toNanos();
+
+  private final AtomicLong clock = new AtomicLong();
+  private final List<String> evictedReports = new ArrayList<>();
+
+  @Test
+  void testEvictIdleReports() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofMinutes(10), Long.MAX_VALUE),
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 10);
+    clock.addAndGet(5 * ONE_MINUTE);
+    write(tracker, "report2", 20);
+    clock.addAndGet(6 * ONE_MINUTE);
+    tracker.touch("report2");
+    tracker.evictExpiredReports();
+
+    assertEquals(List.of("report1"), evictedReports);
+    assertEquals(1, tracker.getEvictionCount());
+    assertEquals(1, tracker.getResidentReportCount());
+    assertEquals(20, tracker.getResidentWeight());
+  }
+
+  @Test
+  void testEvictLeastRecentlyAccessedReportsOverBudget() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofHours(1), 100),
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 40);
+    clock.incrementAndGet();
+    write(tracker, "report2", 40);
+    clock.incrementAndGet();
+    tracker.touch("report1");
+    clock.incrementAndGet();
+    write(tracker, "report3", 40);
+
+    assertEquals(List.of("report2"), evictedReports);
+    assertEquals(2, tracker.getResidentReportCount());
+    assertEquals(80, tracker.getResidentWeight());
+  }
+
+  @Test
+  void testReportBeingAccessedIsNotEvictedOverBudget() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofHours(1), 100),
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 150);
+
+    assertTrue(evictedReports.isEmpty());
+    assertEquals(150, tracker.getResidentWeight());
+  }
+
+  @Test
+  void testReportWithWriteInProgressIsNotEvicted() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofMinutes(10), Long.MAX_VALUE),
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 60);
+    tracker.beginWrite("report1");
+    clock.addAndGet(20 * ONE_MINUTE);
+    write(tracker, "report2", 60);
+    tracker.evictExpiredReports();
+
+    assertTrue(evictedReports.isEmpty());
+
+    tracker.endWrite("report1", 0);
+    clock.addAndGet(20 * ONE_MINUTE);
+    tracker.evictExpiredReports();
+
+    assertEquals(2, evictedReports.size());
+  }
+
+  @Test
+  void testWriteToEvictedReportFails() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofMinutes(10), Long.MAX_VALUE),
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 10);
+    clock.addAndGet(20 * ONE_MINUTE);
+    tracker.evictExpiredReports();
+
+    assertEquals(List.of("report1"), evictedReports);
+    assertThrows(NetexValidationException.class, () -> tracker.beginWrite("report1"));
+
+    tracker.remove("report1");
+    write(tracker, "report1", 10);
+    assertEquals(1, tracker.getResidentReportCount());
+  }
+
+  @Test
+  void testReadsDoNotTrackReports() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofMinutes(10), Long.MAX_VALUE),
+      evictedReports::add,
+      clock::get
+    );
+    tracker.touch("report1");
+    write(tracker, "report2", 10);
+    tracker.remove("report2");
+    tracker.touch("report2");
+
+    assertEquals(0, tracker.getResidentReportCount());
+  }
+
+  @Test
+  void testRemovedReportsAreNotEvicted() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.of(Duration.ofMinutes(10), Long.MAX_VALUE),
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 10);
+    tracker.remove("report1");
+    clock.addAndGet(20 * ONE_MINUTE);
+    tracker.evictExpiredReports();
+
+    assertTrue(evictedReports.isEmpty());
+    assertEquals(0, tracker.getResidentReportCount());
+    assertEquals(0, tracker.getResidentWeight());
+  }
+
+  @Test
+  void testEvictionListenerIsCalledAfterRemoval() {
+    List<Integer> residentReportCounts = new ArrayList<>();
+    ReportStateTracker[] tracker = new ReportStateTracker[1];
+    tracker[0] =
+      new ReportStateTracker(
+        ReportEvictionPolicy.of(Duration.ofMinutes(10), Long.MAX_VALUE),
+        reportId -> residentReportCounts.add(tracker[0].getResidentReportCount()),
+        clock::get
+      );
+    write(tracker[0], "report1", 10);
+    clock.addAndGet(11 * ONE_MINUTE);
+    write(tracker[0], "report2", 10);
+    tracker[0].evictExpiredReports();
+
+    // the evicted report is no longer held by the tracker when the listener releases its state
+    assertEquals(List.of(1), residentReportCounts);
+  }
+
+  @Test
+  void testNoTrackingWithPolicyNone() {
+    ReportStateTracker tracker = new ReportStateTracker(
+      ReportEvictionPolicy.NONE,
+      evictedReports::add,
+      clock::get
+    );
+    write(tracker, "report1", 10);
+    clock.addAndGet(Duration.ofDays(365).toNanos());
+    write(tracker, "report2", 10);
+    tracker.touch("report1");
+    tracker.evictExpiredReports();
+
+    assertTrue(evictedReports.isEmpty());
+    assertEquals(0, tracker.getResidentReportCount());
+    assertEquals(0, tracker.getResidentWeight());
+  }
+
+  @Test
+  void testInvalidPolicy() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> ReportEvictionPolicy.of(Duration.ZERO, 100)
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> ReportEvictionPolicy.of(Duration.ofMinutes(1), 0)
+    );
+  }
+
+  private static void write(ReportStateTracker tracker, String reportId, long weight) {
+    tracker.beginWrite(reportId);
+    tracker.endWrite(reportId, weight);
+  }
+}
@@ -0,0 +1,119 @@
+package org.entur.netex.validation.validator.id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class DefaultNetexIdRepositoryTest {
+
+  private static final String REPORT_ID = "reportId";
+
+  @Test
+  void testGetDuplicateNetexIds() {
+    NetexIdRepository netexIdRepository = new DefaultNetexIdRepository();
+
+    assertTrue(
+      netexIdRepository
+        .getDuplicateNetexIds(REPORT_ID, "file1.xml", Set.of("ENT:Line:1", "ENT:Line:2"))
+        .isEmpty()
+    );
+    assertEquals(
+      Set.of("ENT:Line:2"),
+      netexIdRepository.getDuplicateNetexIds(
+        REPORT_ID,
+        "file2.xml",
+        Set.of("ENT:Line:2", "ENT:Line:3")
+      )
+    );
+    assertTrue(
+      netexIdRepository
+        .getDuplicateNetexIds("anotherReportId", "file1.xml", Set.of("ENT:Line:1"))
+        .isEmpty()
+    );
+  }
+
+  @Test
+  void testConcurrentFilesReportDuplicatesExceptFirstInsertion() {
+    NetexIdRepository netexIdRepository = new DefaultNetexIdRepository();
+    // every file declares its own ids and the same shared id
+    List<Set<String>> files = IntStream
+      .range(0, 32)
+      .mapToObj(file ->
+        IntStream
+          .range(0, 1000)
+          .mapToObj(id -> "ENT:ServiceJourney:" + file + "_" + id)
+          .collect(Collectors.toCollection(HashSet::new))
+      )
+      .peek(ids -> ids.add("ENT:Line:1"))
+      .<Set<String>>map(ids -> ids)
+      .toList();
+
+    Map<String, Integer> duplicateCounts = new ConcurrentHashMap<>();
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    try {
+      CompletableFuture
+        .allOf(
+          files
+            .stream()
+            .map(ids ->
+              CompletableFuture.runAsync(
+                () ->
+                  netexIdRepository
+                    .getDuplicateNetexIds(REPORT_ID, "file.xml", ids)
+                    .forEach(id -> duplicateCounts.merge(id, 1, Integer::sum)),
+                executorService
+              )
+            )
+            .toArray(CompletableFuture[]::new)
+        )
+        .join();
+    } finally {
+      executorService.shutdown();
+    }
+
+    assertEquals(Map.of("ENT:Line:1", files.size() - 1), duplicateCounts);
+  }
+
+  @Test
+  void testDefaultRepositoryNeverEvicts() {
+    DefaultNetexIdRepository netexIdRepository = new DefaultNetexIdRepository();
+    netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", Set.of("ENT:Line:1"));
+    netexIdRepository.getReportStateTracker().evictExpiredReports();
+
+    assertEquals(0, netexIdRepository.getReportStateTracker().getResidentReportCount());
+    assertEquals(0, netexIdRepository.getReportStateTracker().getEvictionCount());
+    assertEquals(
+      Set.of("ENT:Line:1"),
+      netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file2.xml", Set.of("ENT:Line:1"))
+    );
+  }
+
+  @Test
+  void testSharedNetexIds() {
+    NetexIdRepository netexIdRepository = new DefaultNetexIdRepository();
+    netexIdRepository.addSharedNetexIds(REPORT_ID, Set.of(idVersion("ENT:Network:1")));
+    netexIdRepository.addSharedNetexIds(REPORT_ID, Set.of(idVersion("ENT:Network:2")));
+
+    assertEquals(
+      Set.of("ENT:Network:1", "ENT:Network:2"),
+      netexIdRepository.getSharedNetexIds(REPORT_ID)
+    );
+
+    netexIdRepository.cleanUp(REPORT_ID);
+    assertTrue(netexIdRepository.getSharedNetexIds(REPORT_ID).isEmpty());
+  }
+
+  private static IdVersion idVersion(String id) {
+    return new IdVersion(id, "1", "Network", List.of(), "_common.xml", 1, 1);
+  }
+}
@@ -0,0 +1,159 @@
+package org.entur.netex.validation.validator.id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class IdVersionStoreTest {
+
+  @Test
+  void testViewsShareParentElementNames() {
+    ElementPathTable elementPathTable = new ElementPathTable();
+    int blockPath = elementPathTable.childPath(
+      elementPathTable.childPath(ElementPathTable.DOCUMENT_PATH, "blocks"),
+      "Block"
+    );
+    int journeysPath = elementPathTable.childPath(blockPath, "journeys");
+    IdVersionStore store = new IdVersionStore("netex.xml", elementPathTable);
+    for (int i = 0; i < 100; i++) {
+      store.add("ENT:ServiceJourney:" + i, "1", "ServiceJourneyRef", journeysPath, i, 5);
+    }
+    elementPathTable.freeze();
+
+    assertEquals(100, store.size());
+    IdVersion first = store.get(0);
+    IdVersion last = store.get(99);
+    assertEquals("ENT:ServiceJourney:99", last.getId());
+    assertEquals("1", last.getVersion());
+    assertEquals("ServiceJourneyRef", last.getElementName());
+    assertEquals("netex.xml", last.getFilename());
+    assertEquals(99, last.getLineNumber());
+    assertEquals(5, last.getColumnNumber());
+    assertEquals(List.of("journeys", "Block", "blocks"), last.getParentElementNames());
+    assertSame(first.getParentElementNames(), last.getParentElementNames());
+    assertSame(first.getElementName(), last.getElementName());
+    assertEquals(4, elementPathTable.size());
+  }
+
+  @Test
+  void testFrozenTableRejectsNewPaths() {
+    ElementPathTable elementPathTable = new ElementPathTable();
+    int linesPath = elementPathTable.childPath(ElementPathTable.DOCUMENT_PATH, "lines");
+    assertEquals(List.of("lines"), elementPathTable.elementNames(linesPath));
+    elementPathTable.freeze();
+
+    assertEquals(
+      linesPath,
+      elementPathTable.childPath(ElementPathTable.DOCUMENT_PATH, "lines")
+    );
+    assertThrows(
+      IllegalStateException.class,
+      () -> elementPathTable.childPath(linesPath, "Line")
+    );
+  }
+
+  @Test
+  void testConcurrentReads() throws Exception {
+    ElementPathTable elementPathTable = new ElementPathTable();
+    IdVersionStore store = new IdVersionStore("netex.xml", elementPathTable);
+    List<List<String>> expectedParentElementNames = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      int framePath = elementPathTable.childPath(
+        ElementPathTable.DOCUMENT_PATH,
+        "frame" + i
+      );
+      int linesPath = elementPathTable.childPath(framePath, "lines");
+      store.add("ENT:Line:" + i, "1", "Line", linesPath, i, 1);
+      expectedParentElementNames.add(List.of("lines", "frame" + i));
+    }
+    elementPathTable.freeze();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        results.add(
+          executorService.submit(() -> {
+            boolean consistent = true;
+            for (int i = 0; i < store.size(); i++) {
+              List<String> parentElementNames = store.get(i).getParentElementNames();
+              IdVersion idVersion = store.get(i);
+              consistent &=
+                expectedParentElementNames.get(i).equals(parentElementNames) &&
+                idVersion.getParentElementNames() == parentElementNames &&
+                idVersion.hasParentElement("frame" + i) &&
+                !idVersion.hasParentElement("Block");
+            }
+            return consistent;
+          })
+        );
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  void testHasParentElement() {
+    ElementPathTable elementPathTable = new ElementPathTable();
+    int blockPath = elementPathTable.childPath(ElementPathTable.DOCUMENT_PATH, "Block");
+    IdVersionStore store = new IdVersionStore("netex.xml", elementPathTable);
+    store.add("ENT:DeadRun:1", null, "DeadRunRef", blockPath, 1, 1);
+    store.add("ENT:Line:1", null, "LineRef", ElementPathTable.DOCUMENT_PATH, 2, 1);
+
+    assertTrue(store.get(0).hasParentElement("Block"));
+    assertFalse(store.get(0).hasParentElement("InterchangeRule"));
+    assertFalse(store.get(1).hasParentElement("Block"));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.get(2));
+    assertTrue(
+      new IdVersion("ENT:DeadRun:1", null, "DeadRunRef", List.of("Block"), null, 1, 1)
+        .hasParentElement("Block")
+    );
+    assertFalse(
+      new IdVersion("ENT:DeadRun:1", null, "DeadRunRef", null, null, 1, 1)
+        .hasParentElement("Block")
+    );
+  }
+
+  @Test
+  void testSetAndMapViews() {
+    ElementPathTable elementPathTable = new ElementPathTable();
+    IdVersionStore store = new IdVersionStore("netex.xml", elementPathTable);
+    for (int i = 0; i < 100; i++) {
+      store.add("ENT:Line:" + i, "1", "Line", ElementPathTable.DOCUMENT_PATH, i, 1);
+    }
+    store.add("ENT:Line:0", "1", "Line", ElementPathTable.DOCUMENT_PATH, 100, 1);
+    store.add("ENT:Line:0", "2", "Line", ElementPathTable.DOCUMENT_PATH, 101, 1);
+
+    Set<IdVersion> localIds = store.asSet();
+    assertEquals(new HashSet<>(store), localIds);
+    assertEquals(101, localIds.size());
+    assertTrue(
+      localIds.contains(new IdVersion("ENT:Line:0", "2", "Line", null, null, 0, 0))
+    );
+    assertFalse(
+      localIds.contains(new IdVersion("ENT:Line:0", null, "Line", null, null, 0, 0))
+    );
+    assertFalse(localIds.contains(new IdVersion()));
+    assertThrows(UnsupportedOperationException.class, () -> localIds.add(store.get(0)));
+
+    Map<String, IdVersion> localIdsMap = store.asMap();
+    assertEquals(100, localIdsMap.size());
+    assertEquals(0, localIdsMap.get("ENT:Line:0").getLineNumber());
+    assertEquals(99, localIdsMap.get("ENT:Line:99").getLineNumber());
+    assertNull(localIdsMap.get("ENT:Line:100"));
+    assertFalse(localIdsMap.containsKey(1));
+    assertEquals(100, Set.copyOf(localIdsMap.keySet()).size());
+  }
+}
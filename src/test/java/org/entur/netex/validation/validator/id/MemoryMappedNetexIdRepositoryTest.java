@@ -0,0 +1,219 @@
+package org.entur.netex.validation.validator.id;
+
+import static org.entur.netex.validation.validator.id.MemoryMappedNetexIdRepository.DEFAULT_FALSE_POSITIVE_PROBABILITY;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.entur.netex.validation.exception.NetexValidationException;
+import org.entur.netex.validation.validator.ReportEvictionPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MemoryMappedNetexIdRepositoryTest {
+
+  private static final String REPORT_ID = "reportId";
+
+  @Test
+  void testGetDuplicateNetexIdsAcrossTableResize(@TempDir Path workDirectory) {
+    NetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      4
+    );
+    Set<String> file1 = ids(0, 1000);
+    Set<String> file2 = ids(900, 1100);
+
+    assertTrue(
+      netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", file1).isEmpty()
+    );
+    assertEquals(
+      ids(900, 1000),
+      netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file2.xml", file2)
+    );
+    assertTrue(
+      netexIdRepository
+        .getDuplicateNetexIds("anotherReportId", "file1.xml", file1)
+        .isEmpty()
+    );
+  }
+
+  @ParameterizedTest
+  @ValueSource(doubles = { 0, 0.01, 0.5 })
+  void testGetDuplicateNetexIdsWithBloomFilter(
+    double falsePositiveProbability,
+    @TempDir Path workDirectory
+  ) {
+    NetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      64,
+      falsePositiveProbability
+    );
+
+    for (int file = 0; file < 10; file++) {
+      // each file overlaps the previous one by 10 ids
+      Set<String> localIds = ids(file * 990, file * 990 + 1000);
+      Set<String> expected = file == 0 ? Set.of() : ids(file * 990, file * 990 + 10);
+      assertEquals(
+        expected,
+        netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file.xml", localIds)
+      );
+    }
+  }
+
+  @Test
+  void testHashCollisionsAreVerified(@TempDir Path workDirectory) {
+    // all ids have the same hash
+    NetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      16,
+      MemoryMappedNetexIdRepository.DEFAULT_FALSE_POSITIVE_PROBABILITY,
+      id -> 42
+    );
+
+    assertTrue(
+      netexIdRepository
+        .getDuplicateNetexIds(REPORT_ID, "file1.xml", Set.of("ENT:Line:1", "ENT:Line:2"))
+        .isEmpty()
+    );
+    assertEquals(
+      Set.of("ENT:Line:2"),
+      netexIdRepository.getDuplicateNetexIds(
+        REPORT_ID,
+        "file2.xml",
+        Set.of("ENT:Line:2", "ENT:Line:3")
+      )
+    );
+  }
+
+  @Test
+  void testLongIds(@TempDir Path workDirectory) {
+    NetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory
+    );
+    String longId = "ENT:Line:" + "1".repeat(100_000);
+
+    assertTrue(
+      netexIdRepository
+        .getDuplicateNetexIds(REPORT_ID, "file1.xml", Set.of(longId, "ENT:Line:2"))
+        .isEmpty()
+    );
+    assertEquals(
+      Set.of(longId),
+      netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file2.xml", Set.of(longId))
+    );
+  }
+
+  @Test
+  void testCleanUpDeletesReportFiles(@TempDir Path workDirectory) throws IOException {
+    NetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      4
+    );
+    netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", ids(0, 100));
+    assertFalse(isEmpty(workDirectory));
+
+    netexIdRepository.cleanUp(REPORT_ID);
+
+    assertTrue(isEmpty(workDirectory));
+    assertTrue(
+      netexIdRepository
+        .getDuplicateNetexIds(REPORT_ID, "file1.xml", ids(0, 100))
+        .isEmpty()
+    );
+  }
+
+  @Test
+  void testTableResizeDeletesOldTable(@TempDir Path workDirectory) throws IOException {
+    NetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      4
+    );
+    netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", ids(0, 1000));
+
+    assertEquals(2, fileCount(workDirectory));
+  }
+
+  @Test
+  void testEvictionDeletesReportFiles(@TempDir Path workDirectory) throws IOException {
+    MemoryMappedNetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      4,
+      DEFAULT_FALSE_POSITIVE_PROBABILITY,
+      ReportEvictionPolicy.of(Duration.ofHours(1), 150)
+    );
+    netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", ids(0, 100));
+    netexIdRepository.getDuplicateNetexIds("anotherReportId", "file1.xml", ids(0, 100));
+
+    assertEquals(1, netexIdRepository.getReportStateTracker().getEvictionCount());
+    // only the table and the data file of the other report remain
+    assertEquals(2, fileCount(workDirectory));
+  }
+
+  @Test
+  void testWriteToEvictedReportFails(@TempDir Path workDirectory) {
+    MemoryMappedNetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      4,
+      DEFAULT_FALSE_POSITIVE_PROBABILITY,
+      ReportEvictionPolicy.of(Duration.ofHours(1), 150)
+    );
+    netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", ids(0, 100));
+    netexIdRepository.getDuplicateNetexIds("anotherReportId", "file1.xml", ids(0, 100));
+
+    assertEquals(1, netexIdRepository.getReportStateTracker().getEvictionCount());
+    // the ids of the first file are lost: duplicates would be missed
+    assertThrows(
+      NetexValidationException.class,
+      () -> netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file2.xml", ids(0, 100))
+    );
+    assertEquals(
+      ids(50, 100),
+      netexIdRepository.getDuplicateNetexIds("anotherReportId", "file2.xml", ids(50, 150))
+    );
+  }
+
+  @Test
+  void testDefaultRepositoryNeverEvicts(@TempDir Path workDirectory) {
+    MemoryMappedNetexIdRepository netexIdRepository = new MemoryMappedNetexIdRepository(
+      workDirectory,
+      4
+    );
+    netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file1.xml", ids(0, 100));
+    netexIdRepository.getDuplicateNetexIds("anotherReportId", "file1.xml", ids(0, 100));
+    netexIdRepository.getReportStateTracker().evictExpiredReports();
+
+    assertEquals(0, netexIdRepository.getReportStateTracker().getResidentReportCount());
+    assertEquals(0, netexIdRepository.getReportStateTracker().getEvictionCount());
+    assertEquals(
+      ids(50, 100),
+      netexIdRepository.getDuplicateNetexIds(REPORT_ID, "file2.xml", ids(50, 150))
+    );
+  }
+
+  private static Set<String> ids(int from, int to) {
+    return IntStream
+      .range(from, to)
+      .mapToObj(i -> "ENT:ServiceJourney:" + i)
+      .collect(Collectors.toSet());
+  }
+
+  private static boolean isEmpty(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.findAny().isEmpty();
+    }
+  }
+
+  private static long fileCount(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
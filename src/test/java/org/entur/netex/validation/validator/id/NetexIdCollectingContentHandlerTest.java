@@ -0,0 +1,93 @@
+package org.entur.netex.validation.validator.id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import net.sf.saxon.s9api.XdmNode;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.junit.jupiter.api.Test;
+
+class NetexIdCollectingContentHandlerTest {
+
+  private static final String NETEX_DOCUMENT =
+    """
+<PublicationDelivery xmlns="http://www.netex.org.uk/netex" version="1.15:NO-NeTEx-networktimetable:1.5">
+  <dataObjects>
+    <CompositeFrame id="ENT:CompositeFrame:1" version="1">
+      <codespaces>
+        <Codespace id="ent">
+          <Xmlns>ENT</Xmlns>
+        </Codespace>
+      </codespaces>
+      <frames>
+        <ServiceFrame id="ENT:ServiceFrame:1" version="1">
+          <routes>
+            <Route id="ENT:Route:1" version="1">
+              <LineRef
+                ref="ENT:Line:1"
+                version="2"/>
+            </Route>
+          </routes>
+        </ServiceFrame>
+      </frames>
+    </CompositeFrame>
+  </dataObjects>
+</PublicationDelivery>
+""";
+
+  @Test
+  void testSinglePassCollectionMatchesXPathExtraction() {
+    NetexXMLParser netexXMLParser = new NetexXMLParser();
+    NetexIdCollectingContentHandler netexIdCollector =
+      new NetexIdCollectingContentHandler("netex.xml", Set.of("Codespace"));
+    netexXMLParser.parseInputStreamToXdmNode(
+      new ByteArrayInputStream(NETEX_DOCUMENT.getBytes(StandardCharsets.UTF_8)),
+      netexIdCollector
+    );
+
+    // the expected ids are extracted with XPath from the document built by the StAX parser
+    XdmNode document = netexXMLParser.parseInputStreamToXdmNode(
+      new ByteArrayInputStream(NETEX_DOCUMENT.getBytes(StandardCharsets.UTF_8))
+    );
+    List<IdVersion> expectedIds = NetexIdExtractorHelper.collectEntityIdentifiers(
+      document,
+      netexXMLParser.getXPathCompiler(),
+      "netex.xml",
+      Set.of("Codespace")
+    );
+    List<IdVersion> expectedRefs = NetexIdExtractorHelper.collectEntityReferences(
+      document,
+      netexXMLParser.getXPathCompiler(),
+      "netex.xml",
+      null
+    );
+    assertEquals(3, expectedIds.size());
+    assertEquals(1, expectedRefs.size());
+    assertEquals(describe(expectedIds), describe(netexIdCollector.getIds()));
+    assertEquals(describe(expectedRefs), describe(netexIdCollector.getRefs()));
+  }
+
+  private static List<String> describe(List<IdVersion> idVersions) {
+    return idVersions
+      .stream()
+      .map(idVersion ->
+        idVersion.getId() +
+        " " +
+        idVersion.getVersion() +
+        " " +
+        idVersion.getElementName() +
+        " " +
+        idVersion.getParentElementNames() +
+        " " +
+        idVersion.getFilename() +
+        " " +
+        idVersion.getLineNumber() +
+        ":" +
+        idVersion.getColumnNumber()
+      )
+      .toList();
+  }
+}
@@ -0,0 +1,40 @@
+package org.entur.netex.validation.validator.id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ScalableBloomFilterTest {
+
+  @Test
+  void testNoFalseNegativeAndBoundedFalsePositives() {
+    ScalableBloomFilter bloomFilter = new ScalableBloomFilter(1000, 0.01);
+    // the filter grows well beyond its initial capacity
+    IntStream
+      .range(0, 100_000)
+      .forEach(i -> bloomFilter.put(MemoryMappedNetexIdRepository.hash("ENT:Id:" + i)));
+
+    assertTrue(
+      IntStream
+        .range(0, 100_000)
+        .allMatch(i ->
+          bloomFilter.mightContain(MemoryMappedNetexIdRepository.hash("ENT:Id:" + i))
+        )
+    );
+    long falsePositives = IntStream
+      .range(0, 100_000)
+      .filter(i ->
+        bloomFilter.mightContain(MemoryMappedNetexIdRepository.hash("ENT:Other:" + i))
+      )
+      .count();
+    assertTrue(falsePositives < 1500, "False positives: " + falsePositives);
+    assertTrue(bloomFilter.sizeInBytes() < 100_000 * 4);
+  }
+
+  @Test
+  void testInvalidFalsePositiveProbability() {
+    assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 1));
+  }
+}
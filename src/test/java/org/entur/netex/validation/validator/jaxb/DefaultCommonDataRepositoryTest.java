@@ -54,6 +54,27 @@ class DefaultCommonDataRepositoryTest {
     );
   }
 
+  @Test
+  void testDefaultRepositoryNeverEvicts() {
+    DefaultCommonDataRepository repository = new DefaultCommonDataRepository();
+    NetexEntitiesIndex netexEntitiesIndex = new NetexEntitiesIndexImpl();
+    netexEntitiesIndex
+      .getFlexibleStopPlaceIdByStopPointRefIndex()
+      .put(TEST_SCHEDULED_STOP_POINT_REF_ID, TEST_FLEXIBLE_STOP_POINT_REF_ID);
+    repository.collect(TEST_REPORT_ID, netexEntitiesIndex);
+    repository.getReportStateTracker().evictExpiredReports();
+
+    assertEquals(0, repository.getReportStateTracker().getResidentReportCount());
+    assertEquals(0, repository.getReportStateTracker().getEvictionCount());
+    assertEquals(
+      TEST_FLEXIBLE_STOP_POINT_REF_ID,
+      repository.getFlexibleStopPlaceRefByStopPointRef(
+        TEST_REPORT_ID,
+        TEST_SCHEDULED_STOP_POINT_REF_ID
+      )
+    );
+  }
+
   @Test
   void testStopPlaceToFlexibleStopPlaceRefMappingThrowsWhenNoValidationReport() {
     DefaultCommonDataRepository repository = new DefaultCommonDataRepository();
@@ -1,16 +1,21 @@
 package org.entur.netex.validation.validator.jaxb;
 
 import static org.entur.netex.validation.test.jaxb.support.JAXBUtils.createJaxbElement;
+import static org.entur.netex.validation.test.jaxb.support.JAXBUtils.createWrappedRef;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
 import org.entur.netex.validation.validator.DataLocation;
 import org.entur.netex.validation.validator.id.IdVersion;
+import org.entur.netex.validation.validator.model.QuayId;
+import org.entur.netex.validation.validator.model.ScheduledStopPointId;
 import org.entur.netex.validation.validator.model.TransportModeAndSubMode;
 import org.entur.netex.validation.validator.model.TransportSubMode;
 import org.junit.jupiter.api.Assertions;
@@ -18,14 +23,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.rutebanken.netex.model.AllVehicleModesOfTransportEnumeration;
 import org.rutebanken.netex.model.BusSubmodeEnumeration;
+import org.rutebanken.netex.model.DatedServiceJourney;
+import org.rutebanken.netex.model.DatedServiceJourneyRefStructure;
 import org.rutebanken.netex.model.JourneyPattern;
 import org.rutebanken.netex.model.JourneyPatternRefStructure;
 import org.rutebanken.netex.model.Line;
 import org.rutebanken.netex.model.LineRefStructure;
 import org.rutebanken.netex.model.RailSubmodeEnumeration;
+import org.rutebanken.netex.model.ReplacedJourneys_RelStructure;
 import org.rutebanken.netex.model.Route;
 import org.rutebanken.netex.model.RouteRefStructure;
+import org.rutebanken.netex.model.ServiceAlterationEnumeration;
 import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyRefStructure;
 import org.rutebanken.netex.model.TransportSubmodeStructure;
 
 class JAXBValidationContextTest {
@@ -283,4 +293,174 @@ class JAXBValidationContextTest {
     );
     Assertions.assertEquals(flexibleStopPointRef2, result);
   }
+
+  @Test
+  void transportModeAndSubModeIsMemoized() {
+    JAXBValidationContext context = new JAXBValidationContext(
+      null,
+      netexEntitiesIndex,
+      null,
+      null,
+      null,
+      FILE_NAME,
+      Map.of()
+    );
+
+    TransportModeAndSubMode first = context.transportModeAndSubMode(serviceJourney);
+    TransportModeAndSubMode second = context.transportModeAndSubMode(serviceJourney);
+
+    assertEquals(first, second);
+    assertEquals(
+      new LookupStatistics(1, 1),
+      context.getLookupStatistics().get("transportModeAndSubMode(ServiceJourney)")
+    );
+    assertEquals(
+      new LookupStatistics(0, 1),
+      context.getLookupStatistics().get("transportModeAndSubMode(JourneyPattern)")
+    );
+  }
+
+  @Test
+  void quayIdForScheduledStopPointIsMemoized() {
+    String validationReportId = "testValidationReportId";
+    ScheduledStopPointId assignedStopPoint = new ScheduledStopPointId(
+      "TST:ScheduledStopPoint:1"
+    );
+    ScheduledStopPointId unassignedStopPoint = new ScheduledStopPointId(
+      "TST:ScheduledStopPoint:2"
+    );
+    QuayId quayId = new QuayId("TST:Quay:1");
+    CommonDataRepository commonDataRepository = mock(CommonDataRepository.class);
+    when(commonDataRepository.hasSharedScheduledStopPoints(validationReportId))
+      .thenReturn(true);
+    when(
+      commonDataRepository.quayIdForScheduledStopPoint(
+        assignedStopPoint,
+        validationReportId
+      )
+    )
+      .thenReturn(quayId);
+
+    JAXBValidationContext context = new JAXBValidationContext(
+      validationReportId,
+      netexEntitiesIndex,
+      commonDataRepository,
+      null,
+      null,
+      FILE_NAME,
+      Map.of()
+    );
+    for (int i = 0; i < 3; i++) {
+      assertEquals(quayId, context.quayIdForScheduledStopPoint(assignedStopPoint));
+      assertNull(context.quayIdForScheduledStopPoint(unassignedStopPoint));
+    }
+
+    verify(commonDataRepository, times(1))
+      .quayIdForScheduledStopPoint(assignedStopPoint, validationReportId);
+    verify(commonDataRepository, times(1))
+      .quayIdForScheduledStopPoint(unassignedStopPoint, validationReportId);
+    LookupStatistics lookupStatistics = context
+      .getLookupStatistics()
+      .get("quayIdForScheduledStopPoint");
+    assertEquals(new LookupStatistics(4, 2), lookupStatistics);
+    assertEquals(2.0 / 3, lookupStatistics.hitRate(), 1e-9);
+  }
+
+  @Test
+  void serviceJourneysAndRoutesByReference() {
+    JAXBValidationContext context = new JAXBValidationContext(
+      null,
+      netexEntitiesIndex,
+      null,
+      null,
+      null,
+      FILE_NAME,
+      Map.of()
+    );
+
+    assertEquals(
+      List.of(serviceJourney),
+      context.serviceJourneysByJourneyPatternRef(journeyPattern.getId())
+    );
+    assertEquals(
+      List.of(),
+      context.serviceJourneysByJourneyPatternRef("TST:JourneyPattern:2")
+    );
+    assertEquals(
+      List.of(netexEntitiesIndex.getRouteIndex().get("TST:Route:1")),
+      context.routesByLineRef("TST:Line:1")
+    );
+  }
+
+  @Test
+  void datedServiceJourneysByReference() {
+    DatedServiceJourney replacedDsj = createDatedServiceJourney(
+      "TST:DatedServiceJourney:1",
+      ServiceAlterationEnumeration.REPLACED
+    );
+    DatedServiceJourney replacingDsj = createDatedServiceJourney(
+      "TST:DatedServiceJourney:2",
+      null
+    )
+      .withReplacedJourneys(
+        new ReplacedJourneys_RelStructure()
+          .withDatedVehicleJourneyRefOrNormalDatedVehicleJourneyRef(
+            createWrappedRef(replacedDsj.getId(), DatedServiceJourneyRefStructure.class)
+          )
+      );
+    netexEntitiesIndex
+      .getDatedServiceJourneyIndex()
+      .put(replacedDsj.getId(), replacedDsj);
+    netexEntitiesIndex
+      .getDatedServiceJourneyIndex()
+      .put(replacingDsj.getId(), replacingDsj);
+
+    JAXBValidationContext context = new JAXBValidationContext(
+      null,
+      netexEntitiesIndex,
+      null,
+      null,
+      null,
+      FILE_NAME,
+      Map.of()
+    );
+
+    assertEquals(
+      List.of(replacedDsj),
+      context.datedServiceJourneysByServiceAlteration(
+        ServiceAlterationEnumeration.REPLACED
+      )
+    );
+    assertEquals(
+      List.of(replacingDsj),
+      context.datedServiceJourneysByServiceAlteration(null)
+    );
+    assertEquals(
+      List.of(),
+      context.datedServiceJourneysByServiceAlteration(
+        ServiceAlterationEnumeration.CANCELLATION
+      )
+    );
+    assertEquals(
+      2,
+      context.datedServiceJourneysByServiceJourneyRef(serviceJourney.getId()).size()
+    );
+    assertEquals(
+      List.of(replacingDsj),
+      context.replacingDatedServiceJourneys(replacedDsj.getId())
+    );
+    assertEquals(List.of(), context.replacingDatedServiceJourneys(replacingDsj.getId()));
+  }
+
+  private DatedServiceJourney createDatedServiceJourney(
+    String id,
+    ServiceAlterationEnumeration serviceAlteration
+  ) {
+    return new DatedServiceJourney()
+      .withId(id)
+      .withServiceAlteration(serviceAlteration)
+      .withJourneyRef(
+        createWrappedRef(serviceJourney.getId(), ServiceJourneyRefStructure.class)
+      );
+  }
 }
@@ -0,0 +1,184 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.xml.namespace.QName;
+import org.entur.netex.NetexParser;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.EntityStructure;
+
+class NetexParserPoolTest {
+
+  static final String TEST_DATASET = "/rb_bra-flexible-lines-valid-passing-times.zip";
+
+  @Test
+  void testSameIndexAsNetexParser() throws IOException {
+    NetexParserPool netexParserPool = new NetexParserPool(1);
+    for (byte[] file : readTestDataset()) {
+      assertSameIndex(
+        new NetexParser().parse(new ByteArrayInputStream(file)),
+        netexParserPool.parse(new ByteArrayInputStream(file))
+      );
+    }
+  }
+
+  @Test
+  void testUnmarshallersAreReused() throws IOException {
+    NetexParserPool netexParserPool = new NetexParserPool(1);
+    List<byte[]> files = readTestDataset();
+    for (byte[] file : files) {
+      NetexEntitiesIndex netexEntitiesIndex = netexParserPool.parse(
+        new ByteArrayInputStream(file)
+      );
+      assertNotNull(netexEntitiesIndex);
+    }
+    assertEquals(1, netexParserPool.getPoolMisses());
+    assertEquals(files.size() - 1, netexParserPool.getPoolHits());
+    assertEquals(1, netexParserPool.getIdleUnmarshallers());
+  }
+
+  @Test
+  void testReusedParserBuildsIndependentIndexes() throws IOException {
+    NetexParserPool netexParserPool = new NetexParserPool(1);
+    byte[] sharedData = readSharedData();
+
+    NetexEntitiesIndex first = netexParserPool.parse(
+      new ByteArrayInputStream(sharedData)
+    );
+    NetexEntitiesIndex second = netexParserPool.parse(
+      new ByteArrayInputStream(sharedData)
+    );
+
+    assertNotSame(first, second);
+    assertEquals(
+      first.getFlexibleStopPlaceIndex().getAll().size(),
+      second.getFlexibleStopPlaceIndex().getAll().size()
+    );
+    assertFalse(second.getFlexibleStopPlaceIndex().getAll().isEmpty());
+  }
+
+  @Test
+  void testSkippedElementsAreNotUnmarshalled() throws IOException {
+    NetexParserPool netexParserPool = new NetexParserPool(1);
+    byte[] sharedData = readSharedData();
+
+    NetexEntitiesIndex complete = netexParserPool.parse(
+      new ByteArrayInputStream(sharedData)
+    );
+    NetexEntitiesIndex withoutSiteFrame = netexParserPool.parse(
+      new ByteArrayInputStream(sharedData),
+      Set.of(SkippableNetexElements.SITE_FRAME)
+    );
+
+    assertFalse(complete.getFlexibleStopPlaceIndex().getAll().isEmpty());
+    assertTrue(withoutSiteFrame.getFlexibleStopPlaceIndex().getAll().isEmpty());
+    assertEquals(
+      complete.getAuthorityIndex().getAll().size(),
+      withoutSiteFrame.getAuthorityIndex().getAll().size()
+    );
+    QName siteFrame = new QName(
+      NetexXMLParser.NETEX_NAMESPACE,
+      SkippableNetexElements.SITE_FRAME
+    );
+    assertSameIndex(
+      new NetexParser(Set.of(siteFrame)).parse(new ByteArrayInputStream(sharedData)),
+      withoutSiteFrame
+    );
+    // the same unmarshaller is used whatever the skipped elements
+    assertEquals(1, netexParserPool.getPoolMisses());
+    assertEquals(1, netexParserPool.getPoolHits());
+    assertEquals(1, netexParserPool.getIdleUnmarshallers());
+  }
+
+  @Test
+  void testPoolingDisabled() throws IOException {
+    NetexParserPool netexParserPool = new NetexParserPool(0);
+    List<byte[]> files = readTestDataset();
+    files.forEach(file -> netexParserPool.parse(new ByteArrayInputStream(file)));
+
+    assertEquals(files.size(), netexParserPool.getPoolMisses());
+    assertEquals(0, netexParserPool.getPoolHits());
+    assertEquals(0, netexParserPool.getIdleUnmarshallers());
+  }
+
+  @Test
+  void testNegativePoolSize() {
+    assertThrows(IllegalArgumentException.class, () -> new NetexParserPool(-1));
+  }
+
+  /**
+   * Assert that two indexes hold the same entities.
+   */
+  static void assertSameIndex(NetexEntitiesIndex expected, NetexEntitiesIndex actual) {
+    assertSameIds(expected, actual, index -> index.getFlexibleLineIndex().getAll());
+    assertSameIds(expected, actual, index -> index.getJourneyPatternIndex().getAll());
+    assertSameIds(expected, actual, index -> index.getServiceJourneyIndex().getAll());
+    assertSameIds(expected, actual, index -> index.getFlexibleStopPlaceIndex().getAll());
+    assertSameIds(expected, actual, index -> index.getAuthorityIndex().getAll());
+    assertEquals(
+      expected.getFlexibleStopPlaceIdByStopPointRefIndex(),
+      actual.getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+    assertEquals(
+      expected.getCompositeFrames().size(),
+      actual.getCompositeFrames().size()
+    );
+    assertEquals(
+      expected.getServiceCalendarFrames().size(),
+      actual.getServiceCalendarFrames().size()
+    );
+  }
+
+  private static void assertSameIds(
+    NetexEntitiesIndex expected,
+    NetexEntitiesIndex actual,
+    Function<NetexEntitiesIndex, Collection<? extends EntityStructure>> entities
+  ) {
+    assertEquals(ids(entities.apply(expected)), ids(entities.apply(actual)));
+  }
+
+  private static Set<String> ids(Collection<? extends EntityStructure> entities) {
+    return entities.stream().map(EntityStructure::getId).collect(Collectors.toSet());
+  }
+
+  private static byte[] readSharedData() throws IOException {
+    return readTestDataset()
+      .stream()
+      .filter(file ->
+        new String(file, StandardCharsets.UTF_8).contains("<FlexibleStopPlace ")
+      )
+      .findFirst()
+      .orElseThrow();
+  }
+
+  static List<byte[]> readTestDataset() throws IOException {
+    List<byte[]> files = new ArrayList<>();
+    try (
+      InputStream testDataset = NetexParserPoolTest.class.getResourceAsStream(
+        TEST_DATASET
+      );
+      ZipInputStream zipInputStream = new ZipInputStream(testDataset)
+    ) {
+      ZipEntry zipEntry = zipInputStream.getNextEntry();
+      while (zipEntry != null) {
+        files.add(zipInputStream.readAllBytes());
+        zipEntry = zipInputStream.getNextEntry();
+      }
+    }
+    return files;
+  }
+}
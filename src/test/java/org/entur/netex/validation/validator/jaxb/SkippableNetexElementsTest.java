@@ -0,0 +1,45 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SkippableNetexElementsTest {
+
+  @Test
+  void testSkipElementsNotRequired() {
+    Set<String> elementsToSkip = SkippableNetexElements.elementsToSkip(
+      List.of(
+        Set.of(SkippableNetexElements.SITE_FRAME),
+        Set.of(SkippableNetexElements.NOTICES, SkippableNetexElements.NOTICE_ASSIGNMENTS)
+      )
+    );
+    assertEquals(
+      Set.of(
+        SkippableNetexElements.RESOURCE_FRAME,
+        SkippableNetexElements.SERVICE_CALENDAR_FRAME,
+        SkippableNetexElements.VEHICLE_SCHEDULE_FRAME
+      ),
+      elementsToSkip
+    );
+  }
+
+  @Test
+  void testSkipNothingWhenAllElementsAreRequired() {
+    assertTrue(
+      SkippableNetexElements
+        .elementsToSkip(List.of(Set.of(), SkippableNetexElements.ALL))
+        .isEmpty()
+    );
+  }
+
+  @Test
+  void testSkipAllElementsWhenNothingIsRequired() {
+    assertEquals(
+      SkippableNetexElements.ALL,
+      SkippableNetexElements.elementsToSkip(List.of())
+    );
+  }
+}
@@ -0,0 +1,59 @@
+package org.entur.netex.validation.validator.jaxb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.sf.saxon.s9api.XdmNode;
+import org.entur.netex.NetexParser;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.junit.jupiter.api.Test;
+
+class XdmNodeUnmarshallerTest {
+
+  @Test
+  void testSameIndexAsParsingTheDocument() throws IOException {
+    assertSameIndexAsParsingTheDocument(new XdmNodeUnmarshaller(null));
+  }
+
+  @Test
+  void testSameIndexAsParsingTheDocumentWithParallelFrames() throws IOException {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      assertSameIndexAsParsingTheDocument(new XdmNodeUnmarshaller(executorService));
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  void testSkippedFramesAreNotUnmarshalled() throws IOException {
+    XdmNodeUnmarshaller xdmNodeUnmarshaller = new XdmNodeUnmarshaller(null);
+    for (byte[] file : NetexParserPoolTest.readTestDataset()) {
+      NetexEntitiesIndex netexEntitiesIndex = xdmNodeUnmarshaller.unmarshal(
+        new NetexXMLParser().parseByteArrayToXdmNode(file),
+        Set.of(SkippableNetexElements.SITE_FRAME, SkippableNetexElements.RESOURCE_FRAME)
+      );
+      assertTrue(netexEntitiesIndex.getFlexibleStopPlaceIndex().getAll().isEmpty());
+      assertTrue(netexEntitiesIndex.getAuthorityIndex().getAll().isEmpty());
+    }
+  }
+
+  private static void assertSameIndexAsParsingTheDocument(
+    XdmNodeUnmarshaller xdmNodeUnmarshaller
+  ) throws IOException {
+    NetexXMLParser netexXMLParser = new NetexXMLParser();
+    for (byte[] file : NetexParserPoolTest.readTestDataset()) {
+      NetexEntitiesIndex expected = new NetexParser()
+        .parse(new ByteArrayInputStream(file));
+      XdmNode document = netexXMLParser.parseByteArrayToXdmNode(file);
+      NetexEntitiesIndex actual = xdmNodeUnmarshaller.unmarshal(document, Set.of());
+
+      NetexParserPoolTest.assertSameIndex(expected, actual);
+    }
+  }
+}
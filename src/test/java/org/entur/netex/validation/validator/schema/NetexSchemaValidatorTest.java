@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.entur.netex.validation.validator.ValidationIssue;
+import org.entur.netex.validation.xml.NetexSchemaRepository;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.entur.netex.validation.xml.XdmNodeBuildingContentHandler;
 import org.junit.jupiter.api.Test;
 
 class NetexSchemaValidatorTest {
@@ -65,14 +68,122 @@ class NetexSchemaValidatorTest {
     assertEquals(1, validationIssues.size());
   }
 
+  @Test
+  void validateValidDocumentInSinglePass() {
+    XdmNodeBuildingContentHandler xdmNodeBuilder = new NetexXMLParser()
+      .newXdmNodeBuildingContentHandler(null);
+    List<ValidationIssue> validationIssues = validate(
+      NETEX_FRAGMENT_VALID,
+      xdmNodeBuilder
+    );
+    assertTrue(validationIssues.isEmpty());
+    assertNotNull(xdmNodeBuilder.getDocumentNode());
+  }
+
+  @Test
+  void validateInvalidDocumentTooManyErrorsInSinglePass() {
+    XdmNodeBuildingContentHandler xdmNodeBuilder = new NetexXMLParser()
+      .newXdmNodeBuildingContentHandler(null);
+    List<ValidationIssue> validationIssues = validate(
+      NETEX_FRAGMENT_INVALID_TOO_MANY_ERRORS,
+      xdmNodeBuilder
+    );
+    assertEquals(MAX_VALIDATION_REPORT_ENTRIES, validationIssues.size());
+    // the document is still fully parsed after the schema validation is interrupted
+    assertNotNull(xdmNodeBuilder.getDocumentNode());
+  }
+
+  @Test
+  void validateMalformedDocumentInSinglePass() {
+    XdmNodeBuildingContentHandler xdmNodeBuilder = new NetexXMLParser()
+      .newXdmNodeBuildingContentHandler(null);
+    List<ValidationIssue> validationIssues = validate("x", xdmNodeBuilder);
+    assertEquals(1, validationIssues.size());
+    assertNull(xdmNodeBuilder.getDocumentNode());
+  }
+
+  @Test
+  void validateReusesPooledValidator() {
+    NetexSchemaRepository netexSchemaRepository = new NetexSchemaRepository(1);
+    NetexSchemaValidator validator = new NetexSchemaValidator(
+      MAX_VALIDATION_REPORT_ENTRIES,
+      netexSchemaRepository
+    );
+
+    // the pooled validator is reset after an interrupted validation
+    assertEquals(
+      MAX_VALIDATION_REPORT_ENTRIES,
+      validator.validate(validationContext(NETEX_FRAGMENT_INVALID_TOO_MANY_ERRORS)).size()
+    );
+    assertTrue(validator.validate(validationContext(NETEX_FRAGMENT_VALID)).isEmpty());
+    assertEquals(1, validator.validate(validationContext(NETEX_FRAGMENT_INVALID)).size());
+
+    assertEquals(1, netexSchemaRepository.getValidatorPoolMisses());
+    assertEquals(2, netexSchemaRepository.getValidatorPoolHits());
+  }
+
+  @Test
+  void validateInSinglePassReusesPooledValidatorHandler() {
+    NetexSchemaRepository netexSchemaRepository = new NetexSchemaRepository(1);
+    NetexSchemaValidator validator = new NetexSchemaValidator(
+      MAX_VALIDATION_REPORT_ENTRIES,
+      netexSchemaRepository
+    );
+
+    // the pooled validator handler is reset after an interrupted validation
+    assertEquals(
+      MAX_VALIDATION_REPORT_ENTRIES,
+      validator
+        .validate(singlePassValidationContext(NETEX_FRAGMENT_INVALID_TOO_MANY_ERRORS))
+        .size()
+    );
+    assertTrue(
+      validator.validate(singlePassValidationContext(NETEX_FRAGMENT_VALID)).isEmpty()
+    );
+    assertEquals(
+      1,
+      validator.validate(singlePassValidationContext(NETEX_FRAGMENT_INVALID)).size()
+    );
+
+    assertEquals(1, netexSchemaRepository.getValidatorPoolMisses());
+    assertEquals(2, netexSchemaRepository.getValidatorPoolHits());
+  }
+
+  private static NetexSchemaValidationContext validationContext(String netexFragment) {
+    return new NetexSchemaValidationContext(
+      TEST_FILENAME,
+      TEST_CODESPACE,
+      netexFragment.getBytes(StandardCharsets.UTF_8)
+    );
+  }
+
+  private static NetexSchemaValidationContext singlePassValidationContext(
+    String netexFragment
+  ) {
+    return new NetexSchemaValidationContext(
+      TEST_FILENAME,
+      TEST_CODESPACE,
+      netexFragment.getBytes(StandardCharsets.UTF_8),
+      new NetexXMLParser().newXdmNodeBuildingContentHandler(null)
+    );
+  }
+
   private static List<ValidationIssue> validate(String netexFragment) {
+    return validate(netexFragment, null);
+  }
+
+  private static List<ValidationIssue> validate(
+    String netexFragment,
+    XdmNodeBuildingContentHandler xdmNodeBuilder
+  ) {
     NetexSchemaValidator validator = new NetexSchemaValidator(
       MAX_VALIDATION_REPORT_ENTRIES
     );
     NetexSchemaValidationContext validationContext = new NetexSchemaValidationContext(
       TEST_FILENAME,
       TEST_CODESPACE,
-      netexFragment.getBytes(StandardCharsets.UTF_8)
+      netexFragment.getBytes(StandardCharsets.UTF_8),
+      xdmNodeBuilder
     );
     return validator.validate(validationContext);
   }
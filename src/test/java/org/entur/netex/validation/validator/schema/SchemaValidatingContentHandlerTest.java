@@ -0,0 +1,116 @@
+package org.entur.netex.validation.validator.schema;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.entur.netex.validation.xml.NetexSchemaRepository;
+import org.entur.netex.validation.xml.NetexXMLParser;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+
+class SchemaValidatingContentHandlerTest {
+
+  private static final String NETEX_FRAGMENT_INVALID =
+    """
+        <PublicationDelivery xmlns="http://www.netex.org.uk/netex" version="1.15:NO-NeTEx-networktimetable:1.5">
+          <PublicationTimestamp>2021-10-07T13:40:22.872</PublicationTimestamp>
+        </PublicationDelivery>
+        """;
+
+  private final NetexSchemaRepository netexSchemaRepository = new NetexSchemaRepository(
+    1
+  );
+
+  @Test
+  void testInterruptionByErrorHandler() throws Exception {
+    List<SAXParseException> errors = new ArrayList<>();
+    SchemaValidatingContentHandler schemaValidatingContentHandler = newHandler(
+      new RecordingErrorHandler(errors) {
+        @Override
+        public void error(SAXParseException exception) throws SAXParseException {
+          super.error(exception);
+          throw exception;
+        }
+      }
+    );
+
+    parse(schemaValidatingContentHandler);
+    schemaValidatingContentHandler.returnValidatorHandler();
+
+    assertTrue(schemaValidatingContentHandler.isInterrupted());
+    assertEquals(1, errors.size());
+    // the validator handler is given back to the pool
+    parse(newHandler(new RecordingErrorHandler(new ArrayList<>())));
+    assertEquals(1, netexSchemaRepository.getValidatorPoolHits());
+  }
+
+  @Test
+  void testValidatorFailureIsPropagated() {
+    SchemaValidatingContentHandler schemaValidatingContentHandler = newHandler(
+      new RecordingErrorHandler(new ArrayList<>()) {
+        @Override
+        public void error(SAXParseException exception) {
+          throw new IllegalStateException("validator failure");
+        }
+      }
+    );
+
+    assertThrows(
+      IllegalStateException.class,
+      () -> parse(schemaValidatingContentHandler)
+    );
+    schemaValidatingContentHandler.returnValidatorHandler();
+
+    assertFalse(schemaValidatingContentHandler.isInterrupted());
+    // the failed validator handler is discarded
+    assertEquals(0, netexSchemaRepository.getValidatorPoolHits());
+    assertEquals(1, netexSchemaRepository.getValidatorPoolMisses());
+  }
+
+  private SchemaValidatingContentHandler newHandler(ErrorHandler errorHandler) {
+    return new SchemaValidatingContentHandler(
+      netexSchemaRepository,
+      NetexSchemaRepository::detectNetexSchemaVersion,
+      errorHandler
+    );
+  }
+
+  private static void parse(SchemaValidatingContentHandler schemaValidatingContentHandler)
+    throws Exception {
+    XMLReader xmlReader = NetexXMLParser
+      .getSecureSAXParserFactory()
+      .newSAXParser()
+      .getXMLReader();
+    xmlReader.setContentHandler(schemaValidatingContentHandler);
+    xmlReader.parse(new InputSource(new StringReader(NETEX_FRAGMENT_INVALID)));
+  }
+
+  private static class RecordingErrorHandler implements ErrorHandler {
+
+    private final List<SAXParseException> errors;
+
+    private RecordingErrorHandler(List<SAXParseException> errors) {
+      this.errors = errors;
+    }
+
+    @Override
+    public void warning(SAXParseException exception) throws SAXParseException {
+      errors.add(exception);
+    }
+
+    @Override
+    public void error(SAXParseException exception) throws SAXParseException {
+      errors.add(exception);
+    }
+
+    @Override
+    public void fatalError(SAXParseException exception) throws SAXParseException {
+      error(exception);
+    }
+  }
+}
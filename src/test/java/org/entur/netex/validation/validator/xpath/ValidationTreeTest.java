@@ -8,6 +8,7 @@ import org.entur.netex.validation.test.xpath.support.TestValidationContextBuilde
 import org.entur.netex.validation.test.xpath.support.XPathTestSupport;
 import org.entur.netex.validation.validator.Severity;
 import org.entur.netex.validation.validator.ValidationIssue;
+import org.entur.netex.validation.validator.ValidationRule;
 import org.entur.netex.validation.validator.xpath.rules.ValidateNotExist;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -101,6 +102,50 @@ class ValidationTreeTest {
     assertTrue(validationIssues.isEmpty());
   }
 
+  @Test
+  void testSkipRulesRequiringAbsentElements() {
+    CountingValidationRule ruleOnLine = new CountingValidationRule(Set.of("Line"));
+    CountingValidationRule ruleOnDeadRun = new CountingValidationRule(
+      Set.of("DeadRun")
+    );
+    ValidationTree root = new ValidationTree("Service Frame", "ServiceFrame");
+    root.addValidationRule(ruleOnLine);
+    root.addValidationRule(ruleOnDeadRun);
+    ValidationTree subTree = new ValidationTree("Dead runs", "vehicleJourneys/DeadRun");
+    CountingValidationRule ruleInSubTree = new CountingValidationRule(Set.of());
+    subTree.addValidationRule(ruleInSubTree);
+    root.addSubTree(subTree);
+
+    root.validate(xpathValidationContext);
+
+    assertEquals(1, ruleOnLine.evaluations);
+    assertEquals(0, ruleOnDeadRun.evaluations);
+    assertEquals(0, ruleInSubTree.evaluations);
+  }
+
+  @Test
+  void testRuleOverridingValidateIsNotSkipped() {
+    ValidateNotExist ruleOverridingValidate = new ValidateNotExist(
+      "vehicleJourneys/DeadRun",
+      "NO_DEAD_RUN",
+      "Dead run not allowed",
+      "Illegal element DeadRun",
+      Severity.ERROR
+    ) {
+      @Override
+      public List<ValidationIssue> validate(
+        XPathRuleValidationContext validationContext
+      ) {
+        return RULE_NO_LINE.validate(validationContext);
+      }
+    };
+    ValidationTree root = new ValidationTree("Service Frame", "ServiceFrame");
+    root.addValidationRule(ruleOverridingValidate);
+
+    assertEquals(Set.of(), ruleOverridingValidate.getRequiredElementNames());
+    assertFalse(root.validate(xpathValidationContext).isEmpty());
+  }
+
   @Test
   void testDescribe() {
     tree.addValidationRule(RULE_NO_LINE);
@@ -120,4 +165,30 @@ class ValidationTreeTest {
     assertTrue(message.contains(RULE_NO_LINE.rule().code()));
     assertTrue(message.contains(RULE_NO_LINE.rule().name()));
   }
+
+  private static final class CountingValidationRule implements XPathValidationRule {
+
+    private final Set<String> requiredElementNames;
+    private int evaluations;
+
+    private CountingValidationRule(Set<String> requiredElementNames) {
+      this.requiredElementNames = requiredElementNames;
+    }
+
+    @Override
+    public List<ValidationIssue> validate(XPathRuleValidationContext validationContext) {
+      evaluations++;
+      return List.of();
+    }
+
+    @Override
+    public ValidationRule rule() {
+      return new ValidationRule("COUNTING", "Counting", "Counting", Severity.INFO);
+    }
+
+    @Override
+    public Set<String> getRequiredElementNames() {
+      return requiredElementNames;
+    }
+  }
 }
@@ -5,6 +5,7 @@ import static org.entur.netex.validation.validator.ValidatorTestUtil.validateXPa
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.entur.netex.validation.validator.Severity;
 import org.entur.netex.validation.validator.ValidationIssue;
 import org.entur.netex.validation.validator.xpath.tree.DefaultRootValidationTreeFactory;
@@ -79,6 +80,35 @@ class XPathRuleValidatorTest {
     );
   }
 
+  @Test
+  void testParallelValidationReportsSameIssuesInSameOrder() throws IOException {
+    XPathRuleValidator parallelXPathRuleValidator = new XPathRuleValidator(
+      new PublicationDeliveryValidationTreeFactory(),
+      ForkJoinPool.commonPool(),
+      0
+    );
+    List<String> expected = validateXPath(
+      "FLB",
+      xPathRuleValidator,
+      netexXMLParser,
+      getClass().getResourceAsStream('/' + TEST_DATASET_DAY_TYPE_NOT_ASSIGNED)
+    )
+      .stream()
+      .map(XPathRuleValidatorTest::describe)
+      .toList();
+    List<String> actual = validateXPath(
+      "FLB",
+      parallelXPathRuleValidator,
+      netexXMLParser,
+      getClass().getResourceAsStream('/' + TEST_DATASET_DAY_TYPE_NOT_ASSIGNED)
+    )
+      .stream()
+      .map(XPathRuleValidatorTest::describe)
+      .toList();
+    Assertions.assertFalse(expected.isEmpty());
+    Assertions.assertEquals(expected, actual);
+  }
+
   @Test
   void testDayTypeNotAssigned() throws IOException {
     InputStream testDatasetAsStream = getClass()
@@ -384,4 +414,16 @@ class XPathRuleValidatorTest {
         .anyMatch(validationIssue -> validationIssue.rule().code().equals("NOTICE_7"))
     );
   }
+
+  private static String describe(ValidationIssue validationIssue) {
+    return (
+      validationIssue.rule().code() +
+      " " +
+      validationIssue.dataLocation().getFileName() +
+      " " +
+      validationIssue.dataLocation().getObjectId() +
+      " " +
+      validationIssue.dataLocation().getLineNumber()
+    );
+  }
 }
@@ -0,0 +1,207 @@
+package org.entur.netex.validation.validator.xpath.rules;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.entur.netex.validation.test.xpath.support.TestValidationContextBuilder;
+import org.entur.netex.validation.validator.Severity;
+import org.entur.netex.validation.validator.ValidationIssue;
+import org.entur.netex.validation.validator.xpath.ValidationTree;
+import org.entur.netex.validation.validator.xpath.XPathRuleValidationContext;
+import org.entur.netex.validation.validator.xpath.XPathValidationRule;
+import org.junit.jupiter.api.Test;
+
+class FusedValidateNotExistTest {
+
+  private static final String NETEX_FRAGMENT =
+    """
+  <TimetableFrame xmlns="http://www.netex.org.uk/netex" id="ENT:TimetableFrame:1" version="1">
+    <vehicleJourneys>
+      <ServiceJourney id="ENT:ServiceJourney:1" version="1">
+        <TransportMode>bus</TransportMode>
+      </ServiceJourney>
+      <ServiceJourney id="ENT:ServiceJourney:2" version="1">
+        <JourneyPatternRef ref="ENT:JourneyPattern:1"/>
+      </ServiceJourney>
+      <ServiceJourney id="ENT:ServiceJourney:2" version="1">
+        <passingTimes/>
+      </ServiceJourney>
+    </vehicleJourneys>
+  </TimetableFrame>
+""";
+
+  private static final ValidateNotExist MISSING_PASSING_TIMES = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney[not(passingTimes)]",
+    "RULE_1",
+    "Missing passing times",
+    "Missing passing times",
+    Severity.ERROR
+  );
+
+  private static final ValidateNotExist MISSING_JOURNEY_PATTERN = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney[not(JourneyPatternRef)]",
+    "RULE_2",
+    "Missing journey pattern",
+    "Missing journey pattern",
+    Severity.ERROR
+  );
+
+  private static final ValidateNotExist DUPLICATED_ID = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney[@id = preceding-sibling::ServiceJourney/@id]",
+    "RULE_3",
+    "Duplicated id",
+    "Duplicated id",
+    Severity.ERROR
+  );
+
+  private static final ValidateNotExist POSITIONAL = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney[1]",
+    "RULE_4",
+    "Positional",
+    "Positional",
+    Severity.ERROR
+  );
+
+  private static final ValidateNotExist LAST = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney[position() = last()]",
+    "RULE_5",
+    "Last",
+    "Last",
+    Severity.ERROR
+  );
+
+  @Test
+  void testFusedRulesReportSameIssues() {
+    List<XPathValidationRule> rules = List.of(
+      MISSING_PASSING_TIMES,
+      MISSING_JOURNEY_PATTERN,
+      DUPLICATED_ID,
+      POSITIONAL,
+      LAST
+    );
+    XPathRuleValidationContext validationContext = TestValidationContextBuilder
+      .ofNetexFragment(NETEX_FRAGMENT)
+      .build();
+
+    List<FusedValidateNotExist> fusedRules = FusedValidateNotExist.fuse(rules);
+
+    // the positional rules are not fused
+    assertEquals(1, fusedRules.size());
+    assertEquals(
+      List.of(MISSING_PASSING_TIMES, MISSING_JOURNEY_PATTERN, DUPLICATED_ID),
+      fusedRules.get(0).getRules()
+    );
+    List<String> expected = Stream
+      .of(MISSING_PASSING_TIMES, MISSING_JOURNEY_PATTERN, DUPLICATED_ID)
+      .flatMap(rule -> rule.validate(validationContext).stream())
+      .map(FusedValidateNotExistTest::describe)
+      .toList();
+    assertEquals(5, expected.size());
+    assertEquals(
+      expected,
+      fusedRules
+        .get(0)
+        .validate(validationContext, rule -> true)
+        .stream()
+        .map(FusedValidateNotExistTest::describe)
+        .toList()
+    );
+  }
+
+  private static final ValidateNotExist BUS_MODE = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney/TransportMode[. = 'bus']",
+    "RULE_6",
+    "Bus mode",
+    "Bus mode",
+    Severity.ERROR
+  );
+
+  private static final ValidateNotExist NOT_RAIL_MODE = new ValidateNotExist(
+    "vehicleJourneys/ServiceJourney/TransportMode[. != 'rail']",
+    "RULE_7",
+    "Not rail mode",
+    "Not rail mode",
+    Severity.ERROR
+  );
+
+  @Test
+  void testValidationTreeReportsIssuesInRegistrationOrder() {
+    // two groups of fused rules, interleaved with each other and with rules that are not fused
+    List<XPathValidationRule> rules = List.of(
+      MISSING_PASSING_TIMES,
+      BUS_MODE,
+      POSITIONAL,
+      MISSING_JOURNEY_PATTERN,
+      LAST,
+      NOT_RAIL_MODE,
+      DUPLICATED_ID
+    );
+    ValidationTree validationTree = new ValidationTree("Timetable Frame", "/");
+    validationTree.addValidationRules(rules);
+    XPathRuleValidationContext validationContext = TestValidationContextBuilder
+      .ofNetexFragment(NETEX_FRAGMENT)
+      .build();
+
+    assertEquals(2, FusedValidateNotExist.fuse(rules).size());
+    List<String> unfusedIssues = rules
+      .stream()
+      .flatMap(rule -> rule.validate(validationContext).stream())
+      .map(FusedValidateNotExistTest::describe)
+      .toList();
+    assertEquals(9, unfusedIssues.size());
+    assertEquals(
+      unfusedIssues,
+      validationTree
+        .validate(validationContext)
+        .stream()
+        .map(FusedValidateNotExistTest::describe)
+        .toList()
+    );
+
+    // the group is evaluated at its first rule that matches the filter
+    Predicate<XPathValidationRule> filter = rule -> rule != MISSING_PASSING_TIMES;
+    assertEquals(
+      rules
+        .stream()
+        .filter(filter)
+        .flatMap(rule -> rule.validate(validationContext).stream())
+        .map(FusedValidateNotExistTest::describe)
+        .toList(),
+      validationTree
+        .validate(validationContext, filter)
+        .stream()
+        .map(FusedValidateNotExistTest::describe)
+        .toList()
+    );
+  }
+
+  @Test
+  void testFusedRulesApplyFilter() {
+    XPathRuleValidationContext validationContext = TestValidationContextBuilder
+      .ofNetexFragment(NETEX_FRAGMENT)
+      .build();
+    FusedValidateNotExist fusedRules = FusedValidateNotExist
+      .fuse(List.of(MISSING_PASSING_TIMES, MISSING_JOURNEY_PATTERN))
+      .get(0);
+
+    List<ValidationIssue> validationIssues = fusedRules.validate(
+      validationContext,
+      rule -> rule == MISSING_JOURNEY_PATTERN
+    );
+
+    assertEquals(1, validationIssues.size());
+    assertEquals(MISSING_JOURNEY_PATTERN.rule(), validationIssues.get(0).rule());
+  }
+
+  private static String describe(ValidationIssue validationIssue) {
+    return (
+      validationIssue.rule().code() +
+      " " +
+      validationIssue.dataLocation().getObjectId() +
+      " " +
+      validationIssue.dataLocation().getLineNumber()
+    );
+  }
+}
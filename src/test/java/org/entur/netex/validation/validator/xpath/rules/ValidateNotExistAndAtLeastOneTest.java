@@ -3,6 +3,7 @@ package org.entur.netex.validation.validator.xpath.rules;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.List;
+import org.entur.netex.validation.exception.NetexValidationException;
 import org.entur.netex.validation.test.xpath.support.TestValidationContextBuilder;
 import org.entur.netex.validation.validator.Severity;
 import org.entur.netex.validation.validator.ValidationIssue;
@@ -51,6 +52,14 @@ class ValidateNotExistAndAtLeastOneTest {
     assertEquals(VALIDATION_RULE, validationIssues.get(0).rule());
   }
 
+  @Test
+  void validateNotExistInvalidXPathFailsAtCreation() {
+    assertThrows(
+      NetexValidationException.class,
+      () -> new ValidateNotExist("lines/Line[", VALIDATION_RULE)
+    );
+  }
+
   @Test
   void validateNotExistNoMatch() {
     ValidateNotExist validateNotExist = new ValidateNotExist(
@@ -0,0 +1,106 @@
+package org.entur.netex.validation.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+import javax.xml.transform.stream.StreamSource;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmItem;
+import net.sf.saxon.s9api.XdmNode;
+import org.junit.jupiter.api.Test;
+
+class CompiledXPathTest {
+
+  private static final String NETEX_DOCUMENT =
+    """
+<PublicationDelivery xmlns="http://www.netex.org.uk/netex">
+  <dataObjects>
+    <ServiceFrame id="ENT:ServiceFrame:1" version="1">
+      <journeyPatterns>
+        <JourneyPattern id="ENT:JourneyPattern:1" version="1"/>
+      </journeyPatterns>
+    </ServiceFrame>
+    <TimetableFrame id="ENT:TimetableFrame:1" version="1">
+      <vehicleJourneys>
+        <ServiceJourney id="ENT:ServiceJourney:1" version="1">
+          <JourneyPatternRef ref="ENT:JourneyPattern:1" version="1"/>
+        </ServiceJourney>
+      </vehicleJourneys>
+    </TimetableFrame>
+  </dataObjects>
+</PublicationDelivery>
+""";
+
+  private static final CompiledXPath JOURNEY_PATTERN_IDS = CompiledXPath.compile(
+    "for $a in //ServiceJourney return nv:elements-by-id($a, $a/JourneyPatternRef/@ref)/@id/string()"
+  );
+
+  @Test
+  void testSplitLocationPath() {
+    assertArrayEquals(
+      new String[] { "vehicleJourneys/ServiceJourney", "not(passingTimes)" },
+      CompiledXPath.splitLocationPath("vehicleJourneys/ServiceJourney[not(passingTimes)]")
+    );
+    assertArrayEquals(
+      new String[] { "vehicleJourneys/ServiceJourney/calls", null },
+      CompiledXPath.splitLocationPath("vehicleJourneys/ServiceJourney/calls")
+    );
+    assertArrayEquals(
+      new String[] { "lines/Line", "Name = 'a]b'" },
+      CompiledXPath.splitLocationPath("lines/Line[Name = 'a]b']")
+    );
+    assertNull(CompiledXPath.splitLocationPath("lines/*[Name][not(Mode)]"));
+    assertNull(CompiledXPath.splitLocationPath("for $a in . return $a"));
+  }
+
+  @Test
+  void testRequiredElementNames() {
+    assertEquals(
+      Set.of("vehicleJourneys", "ServiceJourney"),
+      CompiledXPath
+        .compile("vehicleJourneys/ServiceJourney[not(passingTimes)]")
+        .getRequiredElementNames()
+    );
+    assertEquals(
+      Set.of("frames", "ServiceFrame"),
+      CompiledXPath.compile("frames/*/../ServiceFrame").getRequiredElementNames()
+    );
+    assertEquals(
+      Set.of(),
+      CompiledXPath
+        .compile("lines/*[Name] | vehicleJourneys/DeadRun")
+        .getRequiredElementNames()
+    );
+  }
+
+  @Test
+  void testEvaluateOnDocumentBuiltWithAnotherProcessor() throws SaxonApiException {
+    XdmNode sharedDocument = new NetexXMLParser().parseStringToXdmNode(NETEX_DOCUMENT);
+    XdmNode foreignDocument = new Processor(false)
+      .newDocumentBuilder()
+      .build(new StreamSource(new StringReader(NETEX_DOCUMENT)));
+    XdmNode otherForeignDocument = new Processor(false)
+      .newDocumentBuilder()
+      .build(new StreamSource(new StringReader(NETEX_DOCUMENT)));
+
+    List<String> expected = List.of("ENT:JourneyPattern:1");
+    assertEquals(expected, journeyPatternIds(sharedDocument));
+    assertEquals(expected, journeyPatternIds(foreignDocument));
+    assertEquals(expected, journeyPatternIds(otherForeignDocument));
+    // the expression compiled for the last foreign configuration is reused
+    assertEquals(expected, journeyPatternIds(otherForeignDocument));
+    assertEquals(expected, journeyPatternIds(sharedDocument));
+  }
+
+  private static List<String> journeyPatternIds(XdmNode document)
+    throws SaxonApiException {
+    return JOURNEY_PATTERN_IDS
+      .evaluate(document)
+      .stream()
+      .map(XdmItem::getStringValue)
+      .toList();
+  }
+}
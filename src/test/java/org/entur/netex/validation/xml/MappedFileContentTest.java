@@ -0,0 +1,48 @@
+package org.entur.netex.validation.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedFileContentTest {
+
+  private static final String CONTENT =
+    "<PublicationDelivery xmlns=\"http://www.netex.org.uk/netex\"/>";
+
+  @Test
+  void testReadMappedFileSeveralTimes(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve("netex.xml");
+    Files.writeString(file, CONTENT);
+    MappedFileContent mappedFileContent = MappedFileContent.of(file);
+
+    assertEquals(CONTENT.length(), mappedFileContent.size());
+    try (
+      InputStream first = mappedFileContent.get();
+      InputStream second = mappedFileContent.get()
+    ) {
+      assertEquals('<', first.read());
+      // streams are independent
+      assertEquals(CONTENT, new String(second.readAllBytes(), StandardCharsets.UTF_8));
+      assertEquals(
+        CONTENT.substring(1),
+        new String(first.readAllBytes(), StandardCharsets.UTF_8)
+      );
+      assertEquals(-1, first.read());
+    }
+  }
+
+  @Test
+  void testReadEmptyFile(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve("empty.xml");
+    Files.createFile(file);
+    try (InputStream inputStream = MappedFileContent.of(file).get()) {
+      assertEquals(-1, inputStream.read());
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package org.entur.netex.validation.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmNode;
+import org.junit.jupiter.api.Test;
+
+class NetexIdIndexTest {
+
+  private static final String NETEX_FRAGMENT =
+    """
+  <frames xmlns="http://www.netex.org.uk/netex">
+    <ServiceFrame id="ENT:ServiceFrame:1" version="1">
+      <journeyPatterns>
+        <JourneyPattern id="ENT:JourneyPattern:1" version="1"/>
+        <JourneyPattern id="ENT:JourneyPattern:1" version="2"/>
+      </journeyPatterns>
+    </ServiceFrame>
+    <TimetableFrame id="ENT:TimetableFrame:1" version="1">
+      <vehicleJourneys>
+        <ServiceJourney id="ENT:ServiceJourney:1" version="1">
+          <JourneyPatternRef ref="ENT:JourneyPattern:1"/>
+        </ServiceJourney>
+      </vehicleJourneys>
+    </TimetableFrame>
+  </frames>
+""";
+
+  private final NetexXMLParser netexXMLParser = new NetexXMLParser();
+
+  @Test
+  void testGetElementsById() {
+    XdmNode document = netexXMLParser.parseStringToXdmNode(NETEX_FRAGMENT);
+    NetexIdIndex netexIdIndex = NetexIdIndex.of(document);
+
+    List<XdmNode> journeyPatterns = netexIdIndex.get("ENT:JourneyPattern:1");
+    assertEquals(2, journeyPatterns.size());
+    assertEquals("1", journeyPatterns.get(0).attribute("version"));
+    assertEquals("2", journeyPatterns.get(1).attribute("version"));
+    assertTrue(netexIdIndex.get("ENT:JourneyPattern:2").isEmpty());
+    assertSame(netexIdIndex, NetexIdIndex.of(journeyPatterns.get(0)));
+  }
+
+  @Test
+  void testElementsByIdFunction() throws SaxonApiException {
+    XdmNode document = netexXMLParser.parseStringToXdmNode(NETEX_FRAGMENT);
+    CompiledXPath xPath = CompiledXPath.compile(
+      "count(nv:elements-by-id(., //ServiceJourney/JourneyPatternRef/@ref))"
+    );
+
+    assertEquals("2", xPath.evaluate(document).toString());
+  }
+}
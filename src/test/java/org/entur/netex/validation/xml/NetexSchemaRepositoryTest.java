@@ -0,0 +1,121 @@
+package org.entur.netex.validation.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.validation.NeTExValidator;
+import org.xml.sax.SAXException;
+
+class NetexSchemaRepositoryTest {
+
+  private static final Executor NEW_THREAD_EXECUTOR = task -> new Thread(task).start();
+
+  private final Map<NeTExValidator.NetexVersion, AtomicInteger> compilations =
+    new ConcurrentHashMap<>();
+
+  @Test
+  void testPrewarmCompilesEachSchemaOnce() {
+    NetexSchemaRepository netexSchemaRepository = new NetexSchemaRepository(
+      1,
+      this::compile
+    );
+
+    netexSchemaRepository
+      .prewarm(
+        List.of(NeTExValidator.NetexVersion.v1_15, NeTExValidator.NetexVersion.v1_16),
+        NEW_THREAD_EXECUTOR
+      )
+      .join();
+
+    assertEquals(1, compilations(NeTExValidator.NetexVersion.v1_15));
+    assertEquals(1, compilations(NeTExValidator.NetexVersion.v1_16));
+    assertTrue(netexSchemaRepository.isInitialized(NeTExValidator.NetexVersion.v1_15));
+    assertFalse(netexSchemaRepository.isInitialized(NeTExValidator.NetexVersion.v1_14));
+
+    // later lookups reuse the pre-warmed schemas
+    netexSchemaRepository.getNetexSchema(NeTExValidator.NetexVersion.v1_15);
+    netexSchemaRepository.borrowValidator(NeTExValidator.NetexVersion.v1_16);
+    assertEquals(1, compilations(NeTExValidator.NetexVersion.v1_15));
+    assertEquals(1, compilations(NeTExValidator.NetexVersion.v1_16));
+    assertEquals(0, compilations(NeTExValidator.NetexVersion.v1_14));
+  }
+
+  @Test
+  void testLookupDuringPrewarmWaitsForCompilation() throws InterruptedException {
+    CountDownLatch compilationStarted = new CountDownLatch(1);
+    CountDownLatch compilationReleased = new CountDownLatch(1);
+    NetexSchemaRepository netexSchemaRepository = new NetexSchemaRepository(
+      1,
+      version -> {
+        compilationStarted.countDown();
+        try {
+          assertTrue(compilationReleased.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return compile(version);
+      }
+    );
+
+    CompletableFuture<Void> prewarm = netexSchemaRepository.prewarm(
+      List.of(NeTExValidator.NetexVersion.v1_15),
+      NEW_THREAD_EXECUTOR
+    );
+    assertTrue(compilationStarted.await(10, TimeUnit.SECONDS));
+    CompletableFuture<Schema> lookup = CompletableFuture.supplyAsync(
+      () -> netexSchemaRepository.getNetexSchema(NeTExValidator.NetexVersion.v1_15),
+      NEW_THREAD_EXECUTOR
+    );
+    compilationReleased.countDown();
+    prewarm.join();
+
+    assertSame(
+      netexSchemaRepository.getNetexSchema(NeTExValidator.NetexVersion.v1_15),
+      lookup.join()
+    );
+    assertEquals(1, compilations(NeTExValidator.NetexVersion.v1_15));
+  }
+
+  @Test
+  void testPrewarmFailure() {
+    NetexSchemaRepository netexSchemaRepository = new NetexSchemaRepository();
+    // the schema cache rejects a null version: the initialization task fails
+    CompletableFuture<Void> prewarm = netexSchemaRepository.prewarm(
+      Arrays.asList((NeTExValidator.NetexVersion) null),
+      Runnable::run
+    );
+
+    assertTrue(prewarm.isCompletedExceptionally());
+    assertThrows(CompletionException.class, prewarm::join);
+  }
+
+  /**
+   * Count the compilations and return an empty schema, that is much faster to build than a NeTEx schema.
+   */
+  private Schema compile(NeTExValidator.NetexVersion version) {
+    compilations.computeIfAbsent(version, v -> new AtomicInteger()).incrementAndGet();
+    try {
+      return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema();
+    } catch (SAXException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private int compilations(NeTExValidator.NetexVersion version) {
+    AtomicInteger count = compilations.get(version);
+    return count == null ? 0 : count.get();
+  }
+}
@@ -0,0 +1,115 @@
+package org.entur.netex.validation.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.sf.saxon.s9api.Axis;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmNodeKind;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.helpers.DefaultHandler;
+
+class NetexXMLParserTest {
+
+  private static final String NETEX_DOCUMENT =
+    """
+<?xml version="1.0" encoding="UTF-8"?>
+<!-- exported by a test -->
+<PublicationDelivery xmlns="http://www.netex.org.uk/netex" xmlns:gml="http://www.opengis.net/gml/3.2" version="1.15:NO-NeTEx-networktimetable:1.5">
+  <dataObjects>
+    <SiteFrame xmlns:siri="http://www.siri.org.uk/siri" id="ENT:SiteFrame:1" version="1">
+      <stopPlaces>
+        <StopPlace id="ENT:StopPlace:1" version="1"/>
+      </stopPlaces>
+    </SiteFrame>
+    <ServiceFrame id="ENT:ServiceFrame:1" version="1">
+      <!-- routes of the line -->
+      <routes>
+        <Route
+          id="ENT:Route:1"
+          version="1">
+          <Name>Route <![CDATA[A & B]]> 1</Name>
+          <Description>before<!-- inline -->after</Description>
+          <gml:pos>10.7 59.9</gml:pos>
+          <?netex-test keep?>
+        </Route>
+      </routes>
+    </ServiceFrame>
+  </dataObjects>
+</PublicationDelivery>
+""";
+
+  @Test
+  void testSaxAndStaxParsingBuildTheSameTree() {
+    NetexXMLParser netexXMLParser = new NetexXMLParser(Set.of("SiteFrame"));
+
+    XdmNode staxDocument = netexXMLParser.parseInputStreamToXdmNode(inputStream());
+    XdmNode saxDocument = netexXMLParser.parseInputStreamToXdmNode(
+      inputStream(),
+      new DefaultHandler()
+    );
+
+    List<String> expected = describe(staxDocument);
+    assertTrue(expected.stream().noneMatch(node -> node.contains("StopPlace")));
+    assertTrue(expected.stream().anyMatch(node -> node.contains("routes of the line")));
+    assertEquals(expected, describe(saxDocument));
+    assertEquals(
+      NetexXMLParser.getElementNames(staxDocument),
+      NetexXMLParser.getElementNames(saxDocument)
+    );
+  }
+
+  private static ByteArrayInputStream inputStream() {
+    return new ByteArrayInputStream(NETEX_DOCUMENT.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Describe each node of the tree in document order: kind, name, value, and for elements the location,
+   * the attributes and the in-scope namespaces.
+   */
+  private static List<String> describe(XdmNode document) {
+    List<String> nodes = new ArrayList<>();
+    describe(document, nodes);
+    return nodes;
+  }
+
+  private static void describe(XdmNode node, List<String> nodes) {
+    StringBuilder description = new StringBuilder()
+      .append(node.getNodeKind())
+      .append(' ')
+      .append(node.getNodeName());
+    if (node.getNodeKind() == XdmNodeKind.ELEMENT) {
+      description
+        .append(' ')
+        .append(node.getLineNumber())
+        .append(':')
+        .append(node.getColumnNumber());
+      node
+        .axisIterator(Axis.ATTRIBUTE)
+        .forEachRemaining(attribute ->
+          description
+            .append(" @")
+            .append(attribute.getNodeName())
+            .append('=')
+            .append(attribute.getStringValue())
+        );
+      node
+        .axisIterator(Axis.NAMESPACE)
+        .forEachRemaining(namespace ->
+          description
+            .append(" xmlns:")
+            .append(namespace.getNodeName())
+            .append('=')
+            .append(namespace.getStringValue())
+        );
+    } else if (node.getNodeKind() != XdmNodeKind.DOCUMENT) {
+      description.append(' ').append(node.getStringValue());
+    }
+    nodes.add(description.toString());
+    node.axisIterator(Axis.CHILD).forEachRemaining(child -> describe(child, nodes));
+  }
+}
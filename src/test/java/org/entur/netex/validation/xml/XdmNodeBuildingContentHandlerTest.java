@@ -0,0 +1,70 @@
+package org.entur.netex.validation.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.sf.saxon.s9api.XdmNode;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.helpers.DefaultHandler;
+
+class XdmNodeBuildingContentHandlerTest {
+
+  private static final String NETEX_FRAGMENT =
+    """
+        <PublicationDelivery xmlns="http://www.netex.org.uk/netex" xmlns:ns2="http://www.opengis.net/gml/3.2">
+          <dataObjects>
+            <SiteFrame xmlns:ns3="http://www.siri.org.uk/siri" id="ENT:SiteFrame:1" version="1">
+              <stopPlaces xmlns:ns4="http://www.example.com">
+                <StopPlace id="ENT:StopPlace:1" version="1"/>
+              </stopPlaces>
+            </SiteFrame>
+            <ServiceFrame xmlns:ns3="http://www.siri.org.uk/siri" id="ENT:ServiceFrame:1" version="1"/>
+          </dataObjects>
+        </PublicationDelivery>
+        """;
+
+  @Test
+  void testPrefixMappingsOfSkippedElementsAreNotForwarded() {
+    PrefixMappingRecorder listener = new PrefixMappingRecorder();
+
+    XdmNode document = new NetexXMLParser(Set.of("SiteFrame"))
+      .parseInputStreamToXdmNode(
+        new ByteArrayInputStream(NETEX_FRAGMENT.getBytes(StandardCharsets.UTF_8)),
+        listener
+      );
+
+    assertNotNull(document);
+    // the prefixes declared on the skipped SiteFrame and its descendants are neither started nor ended
+    assertEquals(
+      List.of("", "ns2", "ns3"),
+      listener.startedPrefixes.stream().sorted().toList()
+    );
+    assertEquals(
+      List.of("", "ns2", "ns3"),
+      listener.endedPrefixes.stream().sorted().toList()
+    );
+  }
+
+  /**
+   * Record the prefix mapping events received by the listener.
+   */
+  private static class PrefixMappingRecorder extends DefaultHandler {
+
+    private final List<String> startedPrefixes = new ArrayList<>();
+    private final List<String> endedPrefixes = new ArrayList<>();
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+      startedPrefixes.add(prefix);
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) {
+      endedPrefixes.add(prefix);
+    }
+  }
+}